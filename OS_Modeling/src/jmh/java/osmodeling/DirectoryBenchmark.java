@@ -0,0 +1,67 @@
+package osmodeling;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Directory.Add() and Directory.Remove() for different numbers of children and depths
+// Each call adds one file to the deepest directory, after fanOut calls all files are removed from the root,
+// so the parents are found through the depth. The cost of the removal is shared by the calls of the round
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DirectoryBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int fanOut;
+
+    @Param({"1", "16"})
+    public int depth;
+
+    private Directory root;
+    private Directory parent;
+    private File[] files;
+    private int next;
+
+    @Setup
+    public void setUp() throws InvalidFileElementType {
+        FileElementFactory factory = LinuxFileElementFactory.getInstance();
+
+        root = factory.createDirectory("root");
+        parent = root;
+        for(int i=1; i<depth; i++) {
+            Directory child = factory.createDirectory("d" + i);
+            parent.Add(child);
+            parent = child;
+        }
+
+        files = new File[fanOut];
+        for(int i=0; i<fanOut; i++) {
+            files[i] = factory.createFile("f" + i);
+        }
+    }
+
+    @Benchmark
+    public void addAndRemove() throws InvalidFileElementType {
+        parent.Add(files[next++]);
+
+        if(next == fanOut) {
+            for(File file : files) {
+                root.Remove(file);
+            }
+            next = 0;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package osmodeling;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Directory.GetChild() by index and by name while one writer adds and removes children after the stable ones
+// The reads do not lock while nothing is changed, so the reads should scale with the reader threads.
+// Compare the reader throughput of "-tg 1,1" with "-tg 4,1" (readers, writer)
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DirectoryReadBenchmark {
+
+    private static final int STABLE_CHILDREN = 1000;
+
+    private Directory directory;
+    private String[] names;
+    private File[] temporaryFiles;
+
+    // The position of each thread, so the threads do not share a counter
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setUp() throws InvalidFileElementType {
+        directory = new LinuxDirectory("Directory.lnxd");
+        names = new String[STABLE_CHILDREN];
+
+        for(int i=0; i<STABLE_CHILDREN; i++) {
+            names[i] = "File" + i + ".lnx";
+            directory.Add(new LinuxFile(names[i]));
+        }
+
+        temporaryFiles = new File[64];
+        for(int i=0; i<temporaryFiles.length; i++) {
+            temporaryFiles[i] = new LinuxFile("Temporary" + i + ".lnx");
+        }
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(4)
+    public boolean read(Cursor cursor) {
+        int index = cursor.next++ % STABLE_CHILDREN;
+        return directory.GetChild(index) == directory.GetChild(names[index]);
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(1)
+    public void write(Cursor cursor) throws InvalidFileElementType {
+        File file = temporaryFiles[cursor.next++ % temporaryFiles.length];
+        directory.Add(file);
+        directory.Remove(file);
+    }
+}
@@ -0,0 +1,52 @@
+package osmodeling;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// FileSystem.displayFiles() for a large tree, written to a Writer that drops the output
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DisplayFilesBenchmark {
+
+    @Param({"1000", "100000"})
+    public int files;
+
+    private FileSystem fileSystem;
+    private Writer nullWriter;
+
+    @Setup
+    public void setUp() throws InvalidFileElementType {
+        fileSystem = new LinuxFileSystem();
+        nullWriter = Writer.nullWriter();
+
+        for(int i=0; i<10; i++) {
+            Directory directory = fileSystem.createDirectory("d" + i);
+            fileSystem.Add(directory);
+
+            for(int j=0; j<files / 10; j++) {
+                directory.Add(fileSystem.createFile("f" + j));
+            }
+        }
+    }
+
+    @Benchmark
+    public void displayFiles() throws IOException {
+        fileSystem.displayFiles(nullWriter);
+    }
+}
@@ -0,0 +1,53 @@
+package osmodeling;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// FileElementFactory.createFile() and createDirectory() for all factories
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FactoryBenchmark {
+
+    @Param({"LINUX", "BSD", "NT"})
+    public String type; // a FileElementType
+
+    private FileElementFactory factory;
+
+    @Setup
+    public void setUp() {
+        switch (FileElementType.valueOf(type)) {
+            case LINUX:
+                factory = LinuxFileElementFactory.getInstance();
+                break;
+            case BSD:
+                factory = BSDFileElementFactory.getInstance();
+                break;
+            default:
+                factory = NTFileElementFactory.getInstance();
+        }
+    }
+
+    @Benchmark
+    public File createFile() {
+        return factory.createFile("file");
+    }
+
+    @Benchmark
+    public Directory createDirectory() {
+        return factory.createDirectory("dir");
+    }
+}
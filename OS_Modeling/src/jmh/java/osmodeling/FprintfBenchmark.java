@@ -0,0 +1,59 @@
+package osmodeling;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// fprintf() through TranslatorDPToLinux, TranslatorDPToBSD and TranslatorDPToNT for different sizes of the content
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FprintfBenchmark {
+
+    @Param({"LINUX", "BSD", "NT"})
+    public String type; // a FileElementType
+
+    @Param({"16", "1024", "65536"})
+    public int size;
+
+    private DPLanguage translator;
+    private File file;
+    private String content;
+
+    @Setup
+    public void setUp() {
+        OperatingSystem os;
+        switch (FileElementType.valueOf(type)) {
+            case LINUX:
+                os = Linux_OS.getInstance();
+                break;
+            case BSD:
+                os = BSD_OS.getInstance();
+                break;
+            default:
+                os = NT_OS.getInstance();
+        }
+
+        translator = os.getTranslator();
+        file = os.getFileSystem().createFile("benchmark");
+        content = "x".repeat(size);
+    }
+
+    @Benchmark
+    public int fprintf() {
+        translator.fprintf(file, content);
+        return file.getContentLength();
+    }
+}
@@ -0,0 +1,45 @@
+package osmodeling;
+
+// Heap that is kept by the nodes of a tree where the same file names are used in many directories,
+// for the heap objects and for a ColumnarFileSystem. JMH measures the allocation rate, not the retained heap,
+// so it is measured here with the used heap after a GC
+// Run: java -cp target/benchmarks.jar osmodeling.NodeMemory
+public class NodeMemory {
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%-45s %15s %15s%n", "Factory", "nodes", "bytes/node");
+        measure(LinuxFileElementFactory.getInstance());
+        measure(new ColumnarFileSystem(FileElementType.LINUX).getFileElementFactory());
+    }
+
+    private static void measure(FileElementFactory factory) throws InvalidFileElementType {
+        int directories = 1_000;
+        int filesPerDirectory = 1_000;
+
+        long before = usedHeap();
+        Directory root = factory.createDirectory("root");
+
+        for(int i=0; i<directories; i++) {
+            Directory directory = factory.createDirectory("d" + i);
+            root.Add(directory);
+
+            for(int j=0; j<filesPerDirectory; j++) {
+                directory.Add(factory.createFile("file" + j));
+            }
+        }
+
+        long used = usedHeap() - before;
+        long nodes = 1 + directories + (long) directories * filesPerDirectory;
+
+        String name = factory.getClass().getSimpleName() + " (" + root.GetChild(0).getName() + ")";
+        System.out.printf("%-45s %15d %15.1f%n", name, nodes, (double) used / nodes);
+    }
+
+    private static long usedHeap() {
+        for(int i=0; i<3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,50 @@
+package osmodeling;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// IODevice.Notify() with an observer that is slower than the producer, for each backpressure policy
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotifyBenchmark {
+
+    @Param({"BLOCK", "DROP", "DROP_OLDEST"})
+    public String policy; // a BackpressurePolicy
+
+    private NetworkPort networkPort;
+
+    @Setup
+    public void setUp() {
+        networkPort = new NetworkPort();
+        networkPort.Attach(newData -> Blackhole.consumeCPU(1));
+        networkPort.Attach(newData -> Blackhole.consumeCPU(100));
+        networkPort.enableAsyncDispatch(1_024, BackpressurePolicy.valueOf(policy));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println(networkPort.getDispatchStats());
+        networkPort.disableAsyncDispatch();
+    }
+
+    @Benchmark
+    public void asyncNotify() {
+        networkPort.Notify();
+    }
+}
@@ -0,0 +1,56 @@
+package osmodeling;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// NetworkPort.setData() with an Application, so 3 lines are printed for each call
+// The AsyncOutputSink writes to a stream that drops the output, so only the cost of the callers is measured
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputBenchmark {
+
+    @Param({"NULL", "ASYNC"})
+    public String sink;
+
+    private OutputSink output;
+    private NetworkPort networkPort;
+
+    @Setup
+    public void setUp() {
+        output = sink.equals("ASYNC")
+                ? new AsyncOutputSink(OutputStream.nullOutputStream(), 8_192)
+                : NullOutputSink.getInstance();
+
+        networkPort = new NetworkPort();
+        networkPort.setOutput(output);
+        networkPort.Attach(new Application("Application", output));
+    }
+
+    @TearDown
+    public void tearDown() {
+        if(output instanceof AsyncOutputSink) {
+            ((AsyncOutputSink) output).close();
+        }
+    }
+
+    @Benchmark
+    public void setData() {
+        networkPort.setData("value");
+    }
+}
@@ -0,0 +1,331 @@
+package osmodeling;
+
+import java.util.ArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// What the producer does when the ring is full, i.e. the slowest observer has not read the oldest event yet
+enum BackpressurePolicy {
+    BLOCK,       // wait until the slowest observer reads an event
+    DROP,        // drop the new event
+    DROP_OLDEST  // overwrite the oldest event, the observers that have not read it skip it
+}
+
+// Asynchronous dispatch of the events of an IODevice to its Observers
+// The events are written to a preallocated ring buffer and each observer reads them on its own thread
+// with its own sequence, so a slow observer only delays itself (and the producers if the policy is BLOCK)
+// Sequences are counted from 0 and never wrap, the slot of a sequence is (sequence & mask)
+public class AsyncDispatcher {
+
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1); // upper bound for a missed wake up
+
+    private final String name;
+    private final AtomicReferenceArray<String> ring;
+    private final int mask;
+    private final BackpressurePolicy policy;
+    private final Object publishLock; // the producers publish one at a time
+    private volatile long claimed; // number of events whose slot is being written or is written
+    private volatile long published; // number of events that can be read
+    private volatile boolean running;
+    private volatile Thread waitingProducer; // set while a producer waits for space with the BLOCK policy
+    private final CopyOnWriteArrayList<Subscription> subscriptions;
+    private final LongAdder droppedCount; // events that are dropped with the DROP policy
+    private final long startTime;
+
+    // The capacity is rounded up to a power of two
+    public AsyncDispatcher(String name, int capacity, BackpressurePolicy policy) {
+        if(capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if(size < capacity) {
+            size <<= 1;
+        }
+
+        this.name = name;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.policy = policy;
+        this.publishLock = new Object();
+        this.running = true;
+        this.subscriptions = new CopyOnWriteArrayList<>();
+        this.droppedCount = new LongAdder();
+        this.startTime = System.nanoTime();
+    }
+
+    // Start a thread that delivers the events to the observer, it gets the events that are published from now on
+    public void subscribe(Observer observer) {
+        for(Subscription subscription : subscriptions) {
+            if(subscription.observer == observer) {
+                return;
+            }
+        }
+
+        Subscription subscription = new Subscription(observer);
+        synchronized (publishLock) {
+            // Start from the next event, so the producer does not wait for the events this observer never reads
+            subscription.sequence = published;
+            subscriptions.add(subscription);
+        }
+        subscription.thread.start();
+    }
+
+    // Stop the thread of the observer, the events it has not read yet are not delivered to it
+    public void unsubscribe(Observer observer) {
+        for(Subscription subscription : subscriptions) {
+            if(subscription.observer == observer) {
+                subscriptions.remove(subscription);
+                subscription.stop();
+                wakeUpProducer();
+            }
+        }
+    }
+
+    // Write the event to the ring and wake up the observers
+    // Return false if the event is dropped (DROP policy) or the dispatcher is shut down
+    public boolean publish(String data) {
+        synchronized (publishLock) {
+            if(!running) {
+                return false;
+            }
+
+            long sequence = published;
+            if(isFull(sequence)) {
+                if(policy == BackpressurePolicy.DROP) {
+                    droppedCount.increment();
+                    return false;
+                }
+                if(policy == BackpressurePolicy.BLOCK && !awaitSpace(sequence)) {
+                    return false;
+                }
+                // DROP_OLDEST writes over the oldest event
+            }
+
+            // claimed is increased before the slot is written, so an observer that reads the slot
+            // at the same time can see that it may be overwritten
+            claimed = sequence + 1;
+            ring.set((int) sequence & mask, data);
+            published = sequence + 1;
+        }
+
+        for(Subscription subscription : subscriptions) {
+            subscription.wakeUp();
+        }
+        return true;
+    }
+
+    private boolean isFull(long sequence) {
+        for(Subscription subscription : subscriptions) {
+            if(sequence - subscription.sequence > mask) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Wait until the slowest observer reads an event, return false if the dispatcher is shut down in the meantime
+    // It is called while holding publishLock, so the other producers wait at the lock
+    private boolean awaitSpace(long sequence) {
+        waitingProducer = Thread.currentThread();
+        try {
+            while(isFull(sequence)) {
+                if(!running) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+            return true;
+        } finally {
+            waitingProducer = null;
+        }
+    }
+
+    private void wakeUpProducer() {
+        Thread producer = waitingProducer;
+        if(producer != null) {
+            LockSupport.unpark(producer);
+        }
+    }
+
+    // Stop accepting events, deliver the published ones and wait for the observer threads to finish
+    public void shutdown() throws InterruptedException {
+        running = false;
+        wakeUpProducer();
+
+        for(Subscription subscription : subscriptions) {
+            subscription.wakeUp();
+        }
+        for(Subscription subscription : subscriptions) {
+            subscription.thread.join();
+        }
+    }
+
+    public DispatchStats getStats() {
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<long[]> counts = new ArrayList<>();
+
+        for(Subscription subscription : subscriptions) {
+            names.add(String.valueOf(subscription.observer));
+            counts.add(new long[]{subscription.deliveredCount.sum(), subscription.skippedCount.sum(),
+                    subscription.failedCount.sum()});
+        }
+        return new DispatchStats(System.nanoTime() - startTime, published, droppedCount.sum(), names, counts);
+    }
+
+    // Give the exception of an observer to the handler of its thread without ending the thread,
+    // the default handler prints it to System.err
+    static void report(Thread thread, RuntimeException e) {
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
+    // The reader of one observer
+    private class Subscription implements Runnable {
+        final Observer observer;
+        final Thread thread;
+        volatile long sequence; // the next event to read, the producer does not write over it unless the policy is DROP_OLDEST
+        private volatile boolean waiting;
+        private volatile boolean stopped;
+        final LongAdder deliveredCount;
+        final LongAdder skippedCount; // events that are written over before they are read (DROP_OLDEST)
+        final LongAdder failedCount; // events whose Update() threw
+
+        Subscription(Observer observer) {
+            this.observer = observer;
+            this.thread = new Thread(this, name + "-" + observer);
+            this.thread.setDaemon(true);
+            this.deliveredCount = new LongAdder();
+            this.skippedCount = new LongAdder();
+            this.failedCount = new LongAdder();
+        }
+
+        @Override
+        public void run() {
+            long next = sequence;
+
+            while(!stopped) {
+                long available = published;
+
+                if(next == available) {
+                    if(!running) {
+                        return; // all events are delivered
+                    }
+                    await(next);
+                    continue;
+                }
+
+                // Skip the events that are written over
+                long oldest = claimed - (mask + 1);
+                if(next < oldest) {
+                    skippedCount.add(oldest - next);
+                    next = oldest;
+                    continue;
+                }
+
+                String data = ring.get((int) next & mask);
+
+                // The slot may be written over while it is read, then read the oldest event again
+                if(next < claimed - (mask + 1)) {
+                    continue;
+                }
+
+                try {
+                    observer.Update(data);
+                    deliveredCount.increment();
+                } catch (RuntimeException e) {
+                    // The event is not given again, the observer gets the next ones
+                    failedCount.increment();
+                    report(thread, e);
+                }
+                sequence = ++next;
+                wakeUpProducer();
+            }
+        }
+
+        private void await(long next) {
+            waiting = true;
+            if(published == next && running && !stopped) {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+            waiting = false;
+        }
+
+        void wakeUp() {
+            if(waiting) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        void stop() {
+            stopped = true;
+            LockSupport.unpark(thread);
+        }
+    }
+}
+
+// Throughput of an AsyncDispatcher since it is created
+class DispatchStats {
+    private final long elapsedNanos;
+    private final long publishedCount;
+    private final long droppedCount;
+    private final ArrayList<String> observerNames;
+    private final ArrayList<long[]> observerCounts; // {delivered, skipped, failed} for each observer
+
+    DispatchStats(long elapsedNanos, long publishedCount, long droppedCount,
+                  ArrayList<String> observerNames, ArrayList<long[]> observerCounts) {
+        this.elapsedNanos = elapsedNanos;
+        this.publishedCount = publishedCount;
+        this.droppedCount = droppedCount;
+        this.observerNames = observerNames;
+        this.observerCounts = observerCounts;
+    }
+
+    public long getPublishedCount() {
+        return publishedCount;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public long getDeliveredCount(int observer) {
+        return observerCounts.get(observer)[0];
+    }
+
+    public long getSkippedCount(int observer) {
+        return observerCounts.get(observer)[1];
+    }
+
+    // Events whose Update() threw, they are not in the delivered count
+    public long getFailedCount(int observer) {
+        return observerCounts.get(observer)[2];
+    }
+
+    // Published events per second
+    public double getProducerThroughput() {
+        return publishedCount * 1e9 / elapsedNanos;
+    }
+
+    // Delivered events per second for the observer
+    public double getConsumerThroughput(int observer) {
+        return getDeliveredCount(observer) * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("producer: %d published, %d dropped, %.0f events/s",
+                publishedCount, droppedCount, getProducerThroughput()));
+
+        for(int i=0; i<observerNames.size(); i++) {
+            report.append(System.lineSeparator());
+            report.append(String.format("%s: %d delivered, %d skipped, %d failed, %.0f events/s",
+                    observerNames.get(i), getDeliveredCount(i), getSkippedCount(i), getFailedCount(i),
+                    getConsumerThroughput(i)));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,470 @@
+package osmodeling;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Which cached block is dropped when a block is read into a full cache
+enum CachePolicy {
+    LRU, // the least recently used block
+    ARC  // Adaptive Replacement Cache: balances recently and frequently used blocks, so a scan does not flush the hot blocks
+}
+
+// Cache of the fixed size blocks of a disk image file (see HardDisk)
+// The cached blocks are kept in direct buffers, so a large cache does not fill the heap
+// Writes only change the cached block and mark it dirty (write-back). The dirty blocks are written to the image
+// together when there are writeBackBatch of them, when a dirty block is evicted, and by flush(),
+// sorted by their block number and with the neighbour blocks in one write
+// The methods are synchronized, the blocks are read and written while holding the lock
+public class BlockCache implements AutoCloseable {
+
+    private static final int CHUNK_SIZE = 1 << 30; // bytes of a direct buffer, a buffer can not be larger than 2 GB
+
+    private final Path image;
+    private final FileChannel channel;
+    private final int blockSize;
+    private final int capacity; // number of blocks in the cache
+    private final int writeBackBatch;
+    private final ReplacementPolicy replacement;
+    private final ArrayDeque<CacheFrame> freeFrames;
+    private final ArrayList<CacheFrame> dirtyFrames;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LongAdder blocksWritten;
+    private final LongAdder writeCalls;
+
+    public BlockCache(Path image, int blockSize, int capacity, CachePolicy policy, int writeBackBatch) throws IOException {
+        if(blockSize < 1 || blockSize > CHUNK_SIZE || capacity < 1 || writeBackBatch < 1) {
+            throw new IllegalArgumentException("Invalid cache size: " + capacity + " blocks of " + blockSize + " bytes");
+        }
+
+        this.image = image;
+        this.channel = FileChannel.open(image, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.blockSize = blockSize;
+        this.capacity = capacity;
+        this.writeBackBatch = writeBackBatch;
+        this.replacement = (policy == CachePolicy.ARC) ? new ArcReplacement(capacity) : new LruReplacement();
+        this.freeFrames = new ArrayDeque<>(capacity);
+        this.dirtyFrames = new ArrayList<>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        this.blocksWritten = new LongAdder();
+        this.writeCalls = new LongAdder();
+
+        // The frames are slices of a few large direct buffers
+        int framesPerChunk = CHUNK_SIZE / blockSize;
+        ByteBuffer chunk = null;
+        for(int i=0; i<capacity; i++) {
+            if(i % framesPerChunk == 0) {
+                chunk = ByteBuffer.allocateDirect(Math.min(framesPerChunk, capacity - i) * blockSize);
+            }
+            int offset = (i % framesPerChunk) * blockSize;
+            freeFrames.add(new CacheFrame(chunk.slice(offset, blockSize)));
+        }
+    }
+
+    public Path getImage() {
+        return image;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    // Read dst.remaining() bytes from the start of the firstBlock, the bytes after the end of the image are zero
+    public synchronized void read(long firstBlock, ByteBuffer dst) throws IOException {
+        for(long block = firstBlock; dst.hasRemaining(); block++) {
+            ByteBuffer data = getFrame(block).data.duplicate();
+            data.limit(Math.min(blockSize, dst.remaining()));
+            dst.put(data);
+        }
+    }
+
+    // Write the bytes of src from the start of the firstBlock into the cache
+    public synchronized void write(long firstBlock, ByteBuffer src) throws IOException {
+        for(long block = firstBlock; src.hasRemaining(); block++) {
+            int length = Math.min(blockSize, src.remaining());
+
+            // A part of a block is written into the old content of the block, so it must be read first
+            CacheFrame frame = (length == blockSize) ? getFrameToOverwrite(block) : getFrame(block);
+
+            ByteBuffer part = src.duplicate();
+            part.limit(part.position() + length);
+            frame.data.duplicate().put(part);
+            src.position(src.position() + length);
+
+            if(!frame.dirty) {
+                frame.dirty = true;
+                dirtyFrames.add(frame);
+            }
+        }
+
+        if(dirtyFrames.size() >= writeBackBatch) {
+            writeBack();
+        }
+    }
+
+    // Write the dirty blocks to the image and force them to the disk
+    // Return the number of blocks that are written
+    public synchronized int flush() throws IOException {
+        int count = writeBack();
+        channel.force(false);
+        return count;
+    }
+
+    private CacheFrame getFrame(long block) throws IOException {
+        CacheFrame frame = replacement.get(block);
+        if(frame != null) {
+            hits.increment();
+            return frame;
+        }
+
+        misses.increment();
+        frame = allocateFrame(block);
+        try {
+            readBlock(frame);
+        } catch (IOException | RuntimeException e) {
+            freeFrames.push(frame); // the frame is not in the replacement policy yet
+            throw e;
+        }
+        replacement.put(block, frame);
+        return frame;
+    }
+
+    // The whole block is written, so it is not read from the image on a miss
+    private CacheFrame getFrameToOverwrite(long block) throws IOException {
+        CacheFrame frame = replacement.get(block);
+        if(frame != null) {
+            hits.increment();
+            return frame;
+        }
+
+        misses.increment();
+        frame = allocateFrame(block);
+        replacement.put(block, frame);
+        return frame;
+    }
+
+    // A free frame, or the frame of a block that is evicted
+    private CacheFrame allocateFrame(long block) throws IOException {
+        replacement.prepare(block);
+
+        CacheFrame frame = freeFrames.poll();
+        if(frame == null) {
+            // The dirty blocks are written together instead of only the evicted one
+            // They are written before the block is evicted, so a failed write leaves the block in the cache
+            if(replacement.peekVictim().dirty) {
+                writeBack();
+            }
+
+            frame = replacement.evict(block);
+            evictions.increment();
+        }
+
+        frame.block = block;
+        return frame;
+    }
+
+    private void readBlock(CacheFrame frame) throws IOException {
+        ByteBuffer data = frame.data.duplicate();
+        long position = frame.block * blockSize;
+
+        while(data.hasRemaining()) {
+            int read = channel.read(data, position + data.position());
+            if(read < 0) {
+                break; // after the end of the image
+            }
+        }
+        while(data.hasRemaining()) {
+            data.put((byte) 0);
+        }
+    }
+
+    // Write the dirty blocks sorted by their block number, the neighbour blocks are written with one call
+    private int writeBack() throws IOException {
+        int count = dirtyFrames.size();
+        dirtyFrames.sort(Comparator.comparingLong(frame -> frame.block));
+
+        int start = 0;
+        while(start < count) {
+            int end = start + 1;
+            while(end < count && dirtyFrames.get(end).block == dirtyFrames.get(end - 1).block + 1) {
+                end++;
+            }
+
+            ByteBuffer[] run = new ByteBuffer[end - start];
+            long remaining = 0;
+            for(int i=start; i<end; i++) {
+                run[i - start] = dirtyFrames.get(i).data.duplicate();
+                remaining += blockSize;
+            }
+
+            channel.position(dirtyFrames.get(start).block * blockSize);
+            while(remaining > 0) {
+                remaining -= channel.write(run);
+            }
+            writeCalls.increment();
+            start = end;
+        }
+
+        for(CacheFrame frame : dirtyFrames) {
+            frame.dirty = false;
+        }
+        dirtyFrames.clear();
+        blocksWritten.add(count);
+        return count;
+    }
+
+    // Write the dirty blocks and close the image
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return (total == 0) ? 0 : (double) hitCount / total;
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getBlocksWritten() {
+        return blocksWritten.sum();
+    }
+
+    // Number of write calls of the write-backs, neighbour dirty blocks are written with one call
+    public long getWriteCallCount() {
+        return writeCalls.sum();
+    }
+
+    public synchronized int getDirtyCount() {
+        return dirtyFrames.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s cache of %d blocks of %d bytes: %d hits, %d misses (%.1f%% hit), %d evictions, "
+                        + "%d blocks written in %d writes", replacement.getName(), capacity, blockSize,
+                getHitCount(), getMissCount(), getHitRatio() * 100, getEvictionCount(),
+                getBlocksWritten(), getWriteCallCount());
+    }
+}
+
+// A block of the cache
+class CacheFrame {
+    final ByteBuffer data; // blockSize bytes of a direct buffer
+    long block; // the block of the image that is in data
+    boolean dirty; // data is changed and not written to the image yet
+
+    CacheFrame(ByteBuffer data) {
+        this.data = data;
+    }
+}
+
+// Keeps the cached blocks in the order of the CachePolicy, it is only used while holding the lock of the BlockCache
+abstract class ReplacementPolicy {
+
+    // The frame of the cached block, null if it is not cached. A found block is marked as used
+    abstract CacheFrame get(long block);
+
+    // Called for a block that is not cached, before a frame is found for it
+    void prepare(long block) {
+        // Empty
+    }
+
+    // The frame that evict() would return, the cache is full
+    abstract CacheFrame peekVictim();
+
+    // Remove a block from the cache and return its frame, the cache is full
+    abstract CacheFrame evict(long block);
+
+    // Add the block that is read into the frame
+    abstract void put(long block, CacheFrame frame);
+
+    abstract String getName();
+}
+
+// Least Recently Used
+class LruReplacement extends ReplacementPolicy {
+
+    private final LinkedHashMap<Long, CacheFrame> frames; // from the least recently used to the most recently used
+
+    LruReplacement() {
+        this.frames = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    @Override
+    CacheFrame get(long block) {
+        return frames.get(block);
+    }
+
+    @Override
+    CacheFrame peekVictim() {
+        return frames.values().iterator().next();
+    }
+
+    @Override
+    CacheFrame evict(long block) {
+        Iterator<CacheFrame> eldest = frames.values().iterator();
+        CacheFrame frame = eldest.next();
+        eldest.remove();
+        return frame;
+    }
+
+    @Override
+    void put(long block, CacheFrame frame) {
+        frames.put(block, frame);
+    }
+
+    @Override
+    String getName() {
+        return "LRU";
+    }
+}
+
+// Adaptive Replacement Cache (Megiddo and Modha)
+// recent has the blocks that are used once since they are cached, frequent the ones that are used more than once
+// The ghost lists remember the blocks that are evicted from them, without their data. A miss on a block in a ghost
+// list moves the target size of recent towards the list that would have kept it, so the cache adapts to the load
+// prepare() does the cases II-IV of the paper up to REPLACE, evict() is REPLACE, so |T1|+|B1| <= c and
+// |T1|+|T2|+|B1|+|B2| <= 2c
+class ArcReplacement extends ReplacementPolicy {
+
+    private final int capacity;
+    private final LinkedHashMap<Long, CacheFrame> recent; // T1, from the least recently used
+    private final LinkedHashMap<Long, CacheFrame> frequent; // T2, from the least recently used
+    private final LinkedHashSet<Long> recentGhosts; // B1
+    private final LinkedHashSet<Long> frequentGhosts; // B2
+    private int recentTarget; // p, the target size of recent
+    private boolean wasRecentGhost; // the block that is being read was in recentGhosts, set by prepare()
+    private boolean wasFrequentGhost; // the block that is being read was in frequentGhosts, set by prepare()
+    private boolean dropRecent; // recent is full and has no ghosts, its eldest block is dropped without a ghost
+
+    ArcReplacement(int capacity) {
+        this.capacity = capacity;
+        this.recent = new LinkedHashMap<>();
+        this.frequent = new LinkedHashMap<>();
+        this.recentGhosts = new LinkedHashSet<>();
+        this.frequentGhosts = new LinkedHashSet<>();
+    }
+
+    @Override
+    CacheFrame get(long block) {
+        CacheFrame frame = recent.remove(block);
+        if(frame == null) {
+            frame = frequent.remove(block);
+        }
+        if(frame != null) {
+            frequent.put(block, frame); // the most recently used of frequent
+        }
+        return frame;
+    }
+
+    @Override
+    void prepare(long block) {
+        wasRecentGhost = recentGhosts.remove(block);
+        wasFrequentGhost = !wasRecentGhost && frequentGhosts.remove(block);
+        dropRecent = false;
+
+        if(wasRecentGhost) {
+            // Case II
+            recentTarget = Math.min(capacity, recentTarget + Math.max(frequentGhosts.size() / Math.max(1, recentGhosts.size()), 1));
+        } else if(wasFrequentGhost) {
+            // Case III
+            recentTarget = Math.max(0, recentTarget - Math.max(recentGhosts.size() / Math.max(1, frequentGhosts.size()), 1));
+        } else if(recent.size() + recentGhosts.size() >= capacity) {
+            // Case IV.A: a ghost of recent is dropped, or the eldest block of recent if it has no ghosts
+            if(recent.size() < capacity) {
+                removeEldest(recentGhosts);
+            } else {
+                dropRecent = true;
+            }
+        } else if(recent.size() + frequent.size() + recentGhosts.size() + frequentGhosts.size() >= 2 * capacity) {
+            // Case IV.B
+            removeEldest(frequentGhosts);
+        }
+    }
+
+    // REPLACE(x, p) of the paper
+    private boolean evictsFromRecent() {
+        return dropRecent || (!recent.isEmpty()
+                && (recent.size() > recentTarget || (wasFrequentGhost && recent.size() == recentTarget)
+                    || frequent.isEmpty()));
+    }
+
+    @Override
+    CacheFrame peekVictim() {
+        return (evictsFromRecent() ? recent : frequent).values().iterator().next();
+    }
+
+    @Override
+    CacheFrame evict(long block) {
+        boolean fromRecent = evictsFromRecent();
+
+        LinkedHashMap<Long, CacheFrame> list = fromRecent ? recent : frequent;
+        Iterator<Map.Entry<Long, CacheFrame>> eldest = list.entrySet().iterator();
+        Map.Entry<Long, CacheFrame> victim = eldest.next();
+        eldest.remove();
+
+        if(dropRecent) {
+            dropRecent = false; // case IV.A without ghosts, the block is not remembered
+        } else if(fromRecent) {
+            recentGhosts.add(victim.getKey());
+        } else {
+            frequentGhosts.add(victim.getKey());
+        }
+        return victim.getValue();
+    }
+
+    @Override
+    void put(long block, CacheFrame frame) {
+        // A block that was evicted not long ago is used again, so it is frequently used
+        if(wasRecentGhost || wasFrequentGhost) {
+            frequent.put(block, frame);
+        } else {
+            recent.put(block, frame);
+        }
+        wasRecentGhost = false;
+        wasFrequentGhost = false;
+    }
+
+    private static void removeEldest(LinkedHashSet<Long> ghosts) {
+        Iterator<Long> eldest = ghosts.iterator();
+        if(eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    @Override
+    String getName() {
+        return "ARC";
+    }
+}
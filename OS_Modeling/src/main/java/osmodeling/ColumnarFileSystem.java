@@ -0,0 +1,1141 @@
+package osmodeling;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+// A FileSystem that keeps its whole tree in primitive arrays instead of one object for each element
+// The FileElements it returns are only views of the nodes of the tree (ColumnarFile and ColumnarDirectory),
+// they are created when they are asked for and can be dropped at any time, two views of the same node are equal
+// A view is kept while it is used, so asking for the same node again returns the same view
+// The elements must be created by this file system (createFile(), createDirectory() or its factory),
+// elements of other file systems can not be added to it
+// Lazy snapshot restore is not supported, because LazyDirectory keeps its children as objects
+public class ColumnarFileSystem extends FileSystem {
+
+    private final ColumnarTree tree;
+
+    public ColumnarFileSystem(FileElementType type) {
+        this(new ColumnarTree(type));
+    }
+
+    private ColumnarFileSystem(ColumnarTree tree) {
+        super(new ColumnarFileElementFactory(tree), "Columnar " + tree.getType() + " File System");
+        this.tree = tree;
+        tree.setFileSystem(this);
+    }
+
+    // Throw IllegalArgumentException if the fileElement is not created by this file system
+    @Override
+    public void Add(FileElement fileElement) {
+        tree.link(ColumnarTree.ROOT, nodeOf(fileElement));
+    }
+
+    @Override
+    public void Remove(FileElement fileElement) {
+        if(tree.contains(fileElement)) {
+            int node = ((ColumnarElement) fileElement).getNode();
+
+            if(tree.isAncestor(ColumnarTree.ROOT, node)) {
+                tree.unlink(tree.getParentNode(node), node);
+            }
+        }
+    }
+
+    @Override
+    public FileElement Get(int index) {
+        return tree.getChild(ColumnarTree.ROOT, index);
+    }
+
+    @Override
+    public FileElement Get(String name) {
+        return tree.findChild(ColumnarTree.ROOT, name);
+    }
+
+    @Override
+    FileElement[] getFileElements() {
+        return tree.getChildren(ColumnarTree.ROOT);
+    }
+
+    // There is no name index, the names are searched in the arena, so no object is kept for each element
+    @Override
+    public void enableFileNameIndex() {
+        // Empty
+    }
+
+    // There are no LazyDirectories in the tree, so loadLazyDirectories does not change anything
+    @Override
+    public List<FileElement> findByPrefix(String prefix, boolean loadLazyDirectories) {
+        return tree.find(ColumnarTree.ROOT, name -> name.startsWith(prefix));
+    }
+
+    @Override
+    public List<FileElement> findBySuffix(String suffix, boolean loadLazyDirectories) {
+        return tree.find(ColumnarTree.ROOT, name -> name.endsWith(suffix));
+    }
+
+    @Override
+    public List<FileElement> findBySuffix(String suffix, String path, boolean loadLazyDirectories) {
+        FileElement fileElement = resolve(path);
+
+        if(!(fileElement instanceof ColumnarDirectory)) {
+            return new ArrayList<>();
+        }
+        return tree.find(((ColumnarDirectory) fileElement).getNode(), name -> name.endsWith(suffix));
+    }
+
+    private int nodeOf(FileElement fileElement) {
+        if(!tree.contains(fileElement)) {
+            throw new IllegalArgumentException("Element is not created by this file system: " + fileElement.getName());
+        }
+        return ((ColumnarElement) fileElement).getNode();
+    }
+}
+
+// A view of a node of a ColumnarTree
+interface ColumnarElement {
+    ColumnarTree getTree();
+    int getNode();
+}
+
+// Concrete Factory of ColumnarFileSystem
+// It is not a singleton, each factory creates the nodes in the tree of its file system
+class ColumnarFileElementFactory implements FileElementFactory {
+
+    private final ColumnarTree tree;
+
+    ColumnarFileElementFactory(ColumnarTree tree) {
+        this.tree = tree;
+    }
+
+    @Override
+    public File createFile(String name) {
+        return tree.newFile(name);
+    }
+
+    @Override
+    public Directory createDirectory(String name) {
+        return tree.newDirectory(name);
+    }
+
+    // The nodes are created while holding the lock of the tree once
+    @Override
+    public void createFiles(String[] names, File[] files, int offset) {
+        tree.newFiles(names, files, offset);
+    }
+
+    @Override
+    public void createDirectories(String[] names, Directory[] directories, int offset) {
+        tree.newDirectories(names, directories, offset);
+    }
+
+    @Override
+    public FileElementType getType() {
+        return tree.getType();
+    }
+}
+
+// The tree of a ColumnarFileSystem, stored as columns with one entry for each node
+// The children of a directory are a linked list in the firstChild / nextSibling columns
+// The names and the contents are UTF-8 bytes in two arenas, the nodes keep their offsets and lengths
+// A new content is added to the end of the contents arena, the old one is left as garbage,
+// and the arena is compacted when more than half of it is garbage
+// The buffers returned by getContentBytes() stay valid, because the bytes in the arena are never changed,
+// the arena is replaced by a new array when it grows or is compacted
+// Node 0 is the top of the file system. A removed node can be added again like other elements while a view of it
+// (or of a node under it) is used. When none is used anymore, the nodes are put on a free list and reused,
+// and their names become garbage of the names arena, which is compacted like the contents arena
+// One read-write lock guards all columns, the arenas are at most 2 GiB each
+class ColumnarTree {
+
+    static final int NONE = -1;
+    static final int ROOT = 0;
+
+    private static final byte FILE = 0;
+    private static final byte DIRECTORY = 1;
+    private static final byte FREE = 2; // a node on the free list
+    private static final byte[] DEFAULT_CONTENT = {'-'};
+    private static final int NULL_CONTENT = -2; // content offset of a file after setContent(null)
+    private static final int MIN_GARBAGE_TO_COMPACT = 1 << 16;
+
+    private final FileElementType type;
+    private final ReentrantReadWriteLock lock;
+    private FileSystem fileSystem; // the file system of the nodes under ROOT, it is the owner of their views
+
+    // The view of each node while it is used, see view()
+    // The columns below are only changed while holding the write lock, these two are also set by the readers,
+    // so they are atomic arrays. They are replaced by bigger copies while holding the write lock
+    private AtomicReferenceArray<NodeReference> views;
+    private AtomicReferenceArray<int[]> childIndexes; // the children of a directory by index, null after a change
+    private final ReferenceQueue<FileElement> unusedViews; // the views that are garbage collected
+    private int[] freeNodes;
+    private int freeCount;
+
+    private int size; // number of nodes
+    private byte[] kinds; // FILE or DIRECTORY
+    private int[] parents; // NONE if the node is not in a directory
+    private int[] firstChildren;
+    private int[] lastChildren;
+    private int[] nextSiblings;
+    private int[] previousSiblings;
+    private int[] childCounts;
+    private int[] nameOffsets;
+    private int[] nameLengths;
+    private int[] contentOffsets; // NONE while the file has the default content, NULL_CONTENT after setContent(null)
+    private int[] contentLengths;
+
+    private byte[] names;
+    private int namesSize;
+    private int namesGarbage; // bytes of the names arena that are not used by any node anymore
+    private byte[] contents;
+    private int contentsSize;
+    private int contentsGarbage; // bytes of the contents arena that are not used by any file anymore
+
+    ColumnarTree(FileElementType type) {
+        this.type = type;
+        this.lock = new ReentrantReadWriteLock();
+
+        int capacity = 16;
+        this.kinds = new byte[capacity];
+        this.parents = new int[capacity];
+        this.firstChildren = new int[capacity];
+        this.lastChildren = new int[capacity];
+        this.nextSiblings = new int[capacity];
+        this.previousSiblings = new int[capacity];
+        this.childCounts = new int[capacity];
+        this.nameOffsets = new int[capacity];
+        this.nameLengths = new int[capacity];
+        this.contentOffsets = new int[capacity];
+        this.contentLengths = new int[capacity];
+        this.names = new byte[256];
+        this.contents = new byte[256];
+        this.views = new AtomicReferenceArray<>(capacity);
+        this.childIndexes = new AtomicReferenceArray<>(capacity);
+        this.unusedViews = new ReferenceQueue<>();
+        this.freeNodes = new int[16];
+
+        addNode(DIRECTORY, ""); // ROOT
+    }
+
+    FileElementType getType() {
+        return type;
+    }
+
+    void setFileSystem(FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+    }
+
+    // The file system of the node if it is at the top of it, like the owner of the top level elements of FileSystem
+    FileSystem getFileSystem(int node) {
+        lock.readLock().lock();
+        try {
+            return (parents[node] == ROOT) ? fileSystem : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Check whether the fileElement is a view of this tree
+    boolean contains(FileElement fileElement) {
+        return fileElement instanceof ColumnarElement && ((ColumnarElement) fileElement).getTree() == this;
+    }
+
+    ColumnarFile newFile(String name) {
+        lock.writeLock().lock();
+        try {
+            return (ColumnarFile) view(addNode(FILE, name));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    ColumnarDirectory newDirectory(String name) {
+        lock.writeLock().lock();
+        try {
+            return (ColumnarDirectory) view(addNode(DIRECTORY, name));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void newFiles(String[] names, File[] files, int offset) {
+        lock.writeLock().lock();
+        try {
+            for(int i=0; i<names.length; i++) {
+                files[offset + i] = (ColumnarFile) view(addNode(FILE, names[i]));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void newDirectories(String[] names, Directory[] directories, int offset) {
+        lock.writeLock().lock();
+        try {
+            for(int i=0; i<names.length; i++) {
+                directories[offset + i] = (ColumnarDirectory) view(addNode(DIRECTORY, names[i]));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Must be called while holding the write lock
+    private int addNode(byte kind, String name) {
+        freeUnusedNodes();
+
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        names = ensureCapacity(names, namesSize, nameBytes.length);
+        System.arraycopy(nameBytes, 0, names, namesSize, nameBytes.length);
+
+        int node;
+        if(freeCount > 0) {
+            node = freeNodes[--freeCount];
+        } else {
+            if(size == kinds.length) {
+                growNodes();
+            }
+            node = size++;
+        }
+        kinds[node] = kind;
+        parents[node] = NONE;
+        firstChildren[node] = NONE;
+        lastChildren[node] = NONE;
+        nextSiblings[node] = NONE;
+        previousSiblings[node] = NONE;
+        childCounts[node] = 0;
+        nameOffsets[node] = namesSize;
+        nameLengths[node] = nameBytes.length;
+        contentOffsets[node] = NONE;
+        contentLengths[node] = 0;
+
+        namesSize += nameBytes.length;
+        return node;
+    }
+
+    private void growNodes() {
+        int capacity = kinds.length * 2;
+
+        kinds = Arrays.copyOf(kinds, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        lastChildren = Arrays.copyOf(lastChildren, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        previousSiblings = Arrays.copyOf(previousSiblings, capacity);
+        childCounts = Arrays.copyOf(childCounts, capacity);
+        nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+        nameLengths = Arrays.copyOf(nameLengths, capacity);
+        contentOffsets = Arrays.copyOf(contentOffsets, capacity);
+        contentLengths = Arrays.copyOf(contentLengths, capacity);
+
+        AtomicReferenceArray<NodeReference> newViews = new AtomicReferenceArray<>(capacity);
+        AtomicReferenceArray<int[]> newChildIndexes = new AtomicReferenceArray<>(capacity);
+        for(int node=0; node<size; node++) {
+            newViews.set(node, views.get(node));
+            newChildIndexes.set(node, childIndexes.get(node));
+        }
+        views = newViews;
+        childIndexes = newChildIndexes;
+    }
+
+    // A weak reference to the view of a node, it is put on unusedViews when the view is garbage collected
+    private static class NodeReference extends WeakReference<FileElement> {
+        final int node;
+
+        NodeReference(FileElement view, int node, ReferenceQueue<FileElement> queue) {
+            super(view, queue);
+            this.node = node;
+        }
+    }
+
+    // Put the nodes whose views are not used anymore on the free list, if they are not in the file system
+    // Must be called while holding the write lock
+    private void freeUnusedNodes() {
+        NodeReference reference;
+
+        while((reference = (NodeReference) unusedViews.poll()) != null) {
+            // The reference can already be replaced by the view that is created after it
+            if(views.compareAndSet(reference.node, reference, null)) {
+                freeIfUnused(reference.node);
+            }
+        }
+    }
+
+    // Free the tree that contains the node if it is not under ROOT and none of its nodes has a used view
+    // Must be called while holding the write lock
+    private void freeIfUnused(int node) {
+        if(kinds[node] == FREE) {
+            return;
+        }
+
+        int top = node;
+        while(parents[top] != NONE) {
+            top = parents[top];
+        }
+        if(top == ROOT || hasUsedView(top)) {
+            return;
+        }
+
+        int[] pending = new int[16];
+        int pendingSize = 0;
+        pending[pendingSize++] = top;
+
+        while(pendingSize > 0) {
+            int freed = pending[--pendingSize];
+
+            for(int child = firstChildren[freed]; child != NONE; child = nextSiblings[child]) {
+                if(pendingSize == pending.length) {
+                    pending = Arrays.copyOf(pending, pendingSize * 2);
+                }
+                pending[pendingSize++] = child;
+            }
+
+            namesGarbage += nameLengths[freed];
+            if(contentOffsets[freed] >= 0) {
+                contentsGarbage += contentLengths[freed];
+            }
+            contentOffsets[freed] = NONE;
+            kinds[freed] = FREE;
+            parents[freed] = NONE;
+            firstChildren[freed] = NONE;
+            lastChildren[freed] = NONE;
+            nextSiblings[freed] = NONE;
+            previousSiblings[freed] = NONE;
+            views.set(freed, null);
+            childIndexes.set(freed, null);
+
+            if(freeCount == freeNodes.length) {
+                freeNodes = Arrays.copyOf(freeNodes, freeCount * 2);
+            }
+            freeNodes[freeCount++] = freed;
+        }
+
+        compactNamesIfNeeded();
+        compactIfNeeded();
+    }
+
+    // Check whether a view of the node or of a node under it is still used
+    private boolean hasUsedView(int top) {
+        int[] pending = new int[16];
+        int pendingSize = 0;
+        pending[pendingSize++] = top;
+
+        while(pendingSize > 0) {
+            int node = pending[--pendingSize];
+            NodeReference reference = views.get(node);
+
+            if(reference != null && reference.get() != null) {
+                return true;
+            }
+            for(int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+                if(pendingSize == pending.length) {
+                    pending = Arrays.copyOf(pending, pendingSize * 2);
+                }
+                pending[pendingSize++] = child;
+            }
+        }
+        return false;
+    }
+
+    // Return the arena, or a bigger copy of it if there is no room for length more bytes
+    private static byte[] ensureCapacity(byte[] arena, int used, int length) {
+        long required = (long) used + length;
+        if(required <= arena.length) {
+            return arena;
+        }
+        if(required > Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("Arena of the columnar tree is larger than 2 GiB");
+        }
+        return Arrays.copyOf(arena, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, (long) arena.length * 2)));
+    }
+
+    // Return the view of the node, it must be called while holding the lock
+    // The view is created only if the last one is not used anymore, so the name is not decoded on each access
+    private FileElement view(int node) {
+        NodeReference reference = views.get(node);
+        FileElement view = (reference == null) ? null : reference.get();
+        if(view != null) {
+            return view;
+        }
+
+        view = createView(node);
+        NodeReference newReference = new NodeReference(view, node, unusedViews);
+
+        // Other readers can create a view of the node at the same time, only one of them is kept
+        while(!views.compareAndSet(node, reference, newReference)) {
+            reference = views.get(node);
+            FileElement other = (reference == null) ? null : reference.get();
+            if(other != null) {
+                return other;
+            }
+        }
+        return view;
+    }
+
+    // The arena keeps the names without the suffix, the suffix is known from the kind of the node
+    private FileElement createView(int node) {
+        String name = new String(names, nameOffsets[node], nameLengths[node], StandardCharsets.UTF_8);
+
+        if(kinds[node] == DIRECTORY) {
+            return new ColumnarDirectory(this, node, name);
+        }
+        return new ColumnarFile(this, node, name);
+    }
+
+    int getParentNode(int node) {
+        lock.readLock().lock();
+        try {
+            return parents[node];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Return the view of the parent directory, null if the node is at the top or not in a directory
+    Directory getParent(int node) {
+        lock.readLock().lock();
+        try {
+            int parent = parents[node];
+            return (parent == NONE || parent == ROOT) ? null : (Directory) view(parent);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Check whether the node is somewhere under the ancestor
+    boolean isAncestor(int ancestor, int node) {
+        lock.readLock().lock();
+        try {
+            for(int parent = parents[node]; parent != NONE; parent = parents[parent]) {
+                if(parent == ancestor) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Add the node to the end of the children of the parent, it is moved if it is in another directory
+    void link(int parent, int node) {
+        lock.writeLock().lock();
+        try {
+            checkLink(parent, node);
+            linkNode(parent, node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void linkAll(int parent, int[] nodes) {
+        lock.writeLock().lock();
+        try {
+            // All nodes are checked first, so either all of them are linked or none
+            for(int node : nodes) {
+                checkLink(parent, node);
+            }
+            for(int node : nodes) {
+                linkNode(parent, node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A node can not be linked under itself or under a node below it, see checkLink()
+    private void linkNode(int parent, int node) {
+        if(parents[node] != NONE) {
+            unlinkNode(node);
+        }
+
+        int last = lastChildren[parent];
+        if(last == NONE) {
+            firstChildren[parent] = node;
+        } else {
+            nextSiblings[last] = node;
+        }
+
+        previousSiblings[node] = last;
+        lastChildren[parent] = node;
+        parents[node] = parent;
+        childCounts[parent]++;
+        childIndexes.set(parent, null);
+    }
+
+    // Throw IllegalArgumentException if the node is the parent or one of its ancestors
+    // The link would make a cycle that is not under ROOT, and freeIfUnused() would never find its top
+    // Must be called while holding the write lock, so no other thread can move the nodes after the check
+    private void checkLink(int parent, int node) {
+        for(int ancestor = parent; ancestor != NONE; ancestor = parents[ancestor]) {
+            if(ancestor == node) {
+                throw new IllegalArgumentException("Directory cannot be added to itself or to its sub directory: "
+                        + new String(names, nameOffsets[node], nameLengths[node], StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    // Remove the node from the parent, return false if it is not a child of the parent
+    boolean unlink(int parent, int node) {
+        lock.writeLock().lock();
+        try {
+            if(parent == NONE || parents[node] != parent) {
+                return false;
+            }
+            unlinkNode(node);
+            freeUnusedNodes();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void unlinkChildren(int parent) {
+        lock.writeLock().lock();
+        try {
+            while(firstChildren[parent] != NONE) {
+                int child = firstChildren[parent];
+                unlinkNode(child);
+                freeIfUnused(child); // nothing may have a view of the child, then it is not freed by freeUnusedNodes()
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unlinkNode(int node) {
+        int parent = parents[node];
+        int previous = previousSiblings[node];
+        int next = nextSiblings[node];
+
+        if(previous == NONE) {
+            firstChildren[parent] = next;
+        } else {
+            nextSiblings[previous] = next;
+        }
+        if(next == NONE) {
+            lastChildren[parent] = previous;
+        } else {
+            previousSiblings[next] = previous;
+        }
+
+        parents[node] = NONE;
+        previousSiblings[node] = NONE;
+        nextSiblings[node] = NONE;
+        childCounts[parent]--;
+        childIndexes.set(parent, null);
+    }
+
+    FileElement[] getChildren(int parent) {
+        lock.readLock().lock();
+        try {
+            FileElement[] children = new FileElement[childCounts[parent]];
+            int i = 0;
+
+            for(int child = firstChildren[parent]; child != NONE; child = nextSiblings[child]) {
+                children[i++] = view(child);
+            }
+            return children;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The children are a linked list, so the first call after a change puts them into an array by index
+    FileElement getChild(int parent, int index) {
+        lock.readLock().lock();
+        try {
+            if(index < 0 || index >= childCounts[parent]) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + childCounts[parent]);
+            }
+
+            int[] children = childIndexes.get(parent);
+            if(children == null) {
+                children = new int[childCounts[parent]];
+                int i = 0;
+
+                for(int child = firstChildren[parent]; child != NONE; child = nextSiblings[child]) {
+                    children[i++] = child;
+                }
+                childIndexes.set(parent, children); // no writer can change the children while the read lock is held
+            }
+            return view(children[index]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Find the child by its name (e.g. "File1.lnx"), the names are compared as bytes in the arena
+    // The children are searched from the end, so the last added one is returned like in Directory
+    FileElement findChild(int parent, String name) {
+        byte kind;
+        String baseName;
+
+        if(name.endsWith(type.getDirectorySuffix())) {
+            kind = DIRECTORY;
+            baseName = name.substring(0, name.length() - type.getDirectorySuffix().length());
+        } else if(name.endsWith(type.getFileSuffix())) {
+            kind = FILE;
+            baseName = name.substring(0, name.length() - type.getFileSuffix().length());
+        } else {
+            return null;
+        }
+
+        byte[] nameBytes = baseName.getBytes(StandardCharsets.UTF_8);
+
+        lock.readLock().lock();
+        try {
+            for(int child = lastChildren[parent]; child != NONE; child = previousSiblings[child]) {
+                int offset = nameOffsets[child];
+
+                if(kinds[child] == kind && Arrays.equals(names, offset, offset + nameLengths[child],
+                        nameBytes, 0, nameBytes.length)) {
+                    return view(child);
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // All nodes under the directory whose name (with the suffix) matches
+    List<FileElement> find(int directory, Predicate<String> matcher) {
+        ArrayList<FileElement> result = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            int[] pending = new int[16];
+            int pendingSize = 0;
+            pending[pendingSize++] = directory;
+
+            while(pendingSize > 0) {
+                int parent = pending[--pendingSize];
+
+                for(int child = firstChildren[parent]; child != NONE; child = nextSiblings[child]) {
+                    String suffix = (kinds[child] == DIRECTORY) ? type.getDirectorySuffix() : type.getFileSuffix();
+                    String name = new String(names, nameOffsets[child], nameLengths[child], StandardCharsets.UTF_8);
+
+                    if(matcher.test(name.concat(suffix))) {
+                        result.add(view(child));
+                    }
+                    if(firstChildren[child] != NONE) {
+                        if(pendingSize == pending.length) {
+                            pending = Arrays.copyOf(pending, pendingSize * 2);
+                        }
+                        pending[pendingSize++] = child;
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Return a read-only view of the content bytes of the file
+    ByteBuffer getContentBytes(int node) {
+        lock.readLock().lock();
+        try {
+            if(contentOffsets[node] == NONE) {
+                return ByteBuffer.wrap(DEFAULT_CONTENT).asReadOnlyBuffer();
+            }
+            if(contentOffsets[node] == NULL_CONTENT) {
+                return ByteBuffer.allocate(0).asReadOnlyBuffer();
+            }
+            return ByteBuffer.wrap(contents, contentOffsets[node], contentLengths[node]).slice().asReadOnlyBuffer();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    String getContentText(int node) {
+        lock.readLock().lock();
+        try {
+            if(contentOffsets[node] == NONE) {
+                return "-";
+            }
+            if(contentOffsets[node] == NULL_CONTENT) {
+                return null;
+            }
+            return new String(contents, contentOffsets[node], contentLengths[node], StandardCharsets.UTF_8);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int getContentLength(int node) {
+        lock.readLock().lock();
+        try {
+            if(contentOffsets[node] == NONE) {
+                return DEFAULT_CONTENT.length;
+            }
+            return (contentOffsets[node] == NULL_CONTENT) ? 0 : contentLengths[node];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The content as a FileContent that uses the bytes in the arena without copying them
+    // It stays valid after the content is changed, because the bytes in the arena are never changed
+    FileContent getFileContent(int node) {
+        lock.readLock().lock();
+        try {
+            if(contentOffsets[node] == NONE) {
+                return FileContent.of(DEFAULT_CONTENT);
+            }
+            if(contentOffsets[node] == NULL_CONTENT) {
+                return FileContent.of((String) null);
+            }
+            return FileContent.of(ByteBuffer.wrap(contents, contentOffsets[node], contentLengths[node]));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The content of setContent(null), getContentText() returns null for it
+    void setNullContent(int node) {
+        lock.writeLock().lock();
+        try {
+            if(contentOffsets[node] >= 0) {
+                contentsGarbage += contentLengths[node];
+            }
+            contentOffsets[node] = NULL_CONTENT;
+            contentLengths[node] = 0;
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Copy the bytes to the end of the contents arena and use them as the content of the file
+    void setContent(int node, byte[] content, int offset, int length) {
+        lock.writeLock().lock();
+        try {
+            if(contentOffsets[node] >= 0) {
+                contentsGarbage += contentLengths[node];
+            }
+
+            contents = ensureCapacity(contents, contentsSize, length);
+            System.arraycopy(content, offset, contents, contentsSize, length);
+            contentOffsets[node] = contentsSize;
+            contentLengths[node] = length;
+            contentsSize += length;
+
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void setContent(int node, ByteBuffer content) {
+        byte[] bytes = new byte[content.remaining()];
+        content.duplicate().get(bytes);
+        setContent(node, bytes, 0, bytes.length);
+    }
+
+    // If the content is at the end of the arena, the bytes are added after it without copying it
+    void appendContent(int node, byte[] content) {
+        lock.writeLock().lock();
+        try {
+            int offset = contentOffsets[node];
+            int length = contentLengths[node];
+
+            if(offset >= 0 && offset + length == contentsSize) {
+                contents = ensureCapacity(contents, contentsSize, content.length);
+                System.arraycopy(content, 0, contents, contentsSize, content.length);
+                contentLengths[node] = length + content.length;
+                contentsSize += content.length;
+                return;
+            }
+
+            // The appended bytes follow the default content, and replace the content of setContent(null)
+            byte[] current = (offset >= 0) ? contents : DEFAULT_CONTENT;
+            int currentOffset = (offset >= 0) ? offset : 0;
+            int currentLength = (offset >= 0) ? length : (offset == NONE) ? DEFAULT_CONTENT.length : 0;
+
+            contents = ensureCapacity(contents, contentsSize, currentLength + content.length);
+            System.arraycopy(current, currentOffset, contents, contentsSize, currentLength);
+            System.arraycopy(content, 0, contents, contentsSize + currentLength, content.length);
+
+            if(offset >= 0) {
+                contentsGarbage += length;
+            }
+            contentOffsets[node] = contentsSize;
+            contentLengths[node] = currentLength + content.length;
+            contentsSize += currentLength + content.length;
+
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Copy the names of the used nodes to a new arena when more than half of the arena is garbage
+    // It must be called while holding the write lock
+    private void compactNamesIfNeeded() {
+        if(namesGarbage < MIN_GARBAGE_TO_COMPACT || namesGarbage <= namesSize / 2) {
+            return;
+        }
+
+        int used = namesSize - namesGarbage;
+        byte[] compacted = new byte[Math.max(256, used + used / 2)];
+        int compactedSize = 0;
+
+        for(int node=0; node<size; node++) {
+            if(kinds[node] != FREE) {
+                System.arraycopy(names, nameOffsets[node], compacted, compactedSize, nameLengths[node]);
+                nameOffsets[node] = compactedSize;
+                compactedSize += nameLengths[node];
+            }
+        }
+
+        names = compacted;
+        namesSize = compactedSize;
+        namesGarbage = 0;
+    }
+
+    // Copy the used contents to a new arena when more than half of the arena is garbage
+    // It must be called while holding the write lock
+    private void compactIfNeeded() {
+        if(contentsGarbage < MIN_GARBAGE_TO_COMPACT || contentsGarbage <= contentsSize / 2) {
+            return;
+        }
+
+        int used = contentsSize - contentsGarbage;
+        byte[] compacted = new byte[Math.max(256, used + used / 2)];
+        int compactedSize = 0;
+
+        for(int node=0; node<size; node++) {
+            if(contentOffsets[node] >= 0) {
+                System.arraycopy(contents, contentOffsets[node], compacted, compactedSize, contentLengths[node]);
+                contentOffsets[node] = compactedSize;
+                compactedSize += contentLengths[node];
+            }
+        }
+
+        contents = compacted;
+        contentsSize = compactedSize;
+        contentsGarbage = 0;
+    }
+}
+
+// View of a file node of a ColumnarTree
+// The content is kept in the tree, the content field of File is not used
+class ColumnarFile extends File implements ColumnarElement {
+
+    private final ColumnarTree tree;
+    private final int node;
+
+    ColumnarFile(ColumnarTree tree, int node, String baseName) {
+        super(tree.getType(), baseName, true);
+        this.tree = tree;
+        this.node = node;
+    }
+
+    @Override
+    public ColumnarTree getTree() {
+        return tree;
+    }
+
+    @Override
+    public int getNode() {
+        return node;
+    }
+
+    @Override
+    public Directory getParent() {
+        return tree.getParent(node);
+    }
+
+    // The views are created again, so the owner of a top level node is kept in the tree instead of the view
+    @Override
+    FileSystem getFileSystem() {
+        return tree.getFileSystem(node);
+    }
+
+    @Override
+    public String getContent() {
+        return tree.getContentText(node);
+    }
+
+    @Override
+    public void setContent(String content) {
+        if(content == null) {
+            tree.setNullContent(node);
+            return;
+        }
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        tree.setContent(node, bytes, 0, bytes.length);
+    }
+
+    // The bytes are copied into the tree, so the array can be changed after this call
+    @Override
+    public void setContent(byte[] content) {
+        tree.setContent(node, content, 0, content.length);
+    }
+
+    @Override
+    public void setContent(byte[] content, int offset, int length) {
+        tree.setContent(node, content, offset, length);
+    }
+
+    @Override
+    public void setContent(ByteBuffer content) {
+        tree.setContent(node, content);
+    }
+
+    // The mapped bytes are copied, so the tree does not depend on the snapshot
+    @Override
+    void setMappedContent(ByteBuffer content, LazyDirectory source) {
+        tree.setContent(node, content);
+    }
+
+    @Override
+    boolean hasMappedContent() {
+        return false;
+    }
+
+    @Override
+    FileContent getFileContent() {
+        return tree.getFileContent(node);
+    }
+
+    @Override
+    void restoreContent(FileContent content) {
+        if(content.isNull()) {
+            tree.setNullContent(node);
+        } else {
+            tree.setContent(node, content.getBytes());
+        }
+    }
+
+    @Override
+    public void appendContent(byte[] content) {
+        tree.appendContent(node, content);
+    }
+
+    @Override
+    public ByteBuffer getContentBytes() {
+        return tree.getContentBytes(node);
+    }
+
+    @Override
+    public int getContentLength() {
+        return tree.getContentLength(node);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ColumnarFile && ((ColumnarFile) o).tree == tree && ((ColumnarFile) o).node == node;
+    }
+
+    @Override
+    public int hashCode() {
+        return node;
+    }
+}
+
+// View of a directory node of a ColumnarTree
+// It has no list, name indexes or lock of its own, the children are kept in the tree
+// Add(), AddAll() and Remove() are the template methods of Directory, the hooks they use are overridden
+class ColumnarDirectory extends Directory implements ColumnarElement {
+
+    private final ColumnarTree tree;
+    private final int node;
+
+    ColumnarDirectory(ColumnarTree tree, int node, String baseName) {
+        super(tree.getType(), baseName, true, false);
+        this.tree = tree;
+        this.node = node;
+    }
+
+    @Override
+    public ColumnarTree getTree() {
+        return tree;
+    }
+
+    @Override
+    public int getNode() {
+        return node;
+    }
+
+    @Override
+    public Directory getParent() {
+        return tree.getParent(node);
+    }
+
+    // The views are created again, so the owner of a top level node is kept in the tree instead of the view
+    @Override
+    FileSystem getFileSystem() {
+        return tree.getFileSystem(node);
+    }
+
+    // Only the elements of the same tree can be added, so the type is always the type of the tree
+    @Override
+    protected boolean checkType(FileElement fileElement) {
+        return tree.contains(fileElement);
+    }
+
+    @Override
+    void addChild(FileElement fileElement) {
+        tree.link(node, ((ColumnarElement) fileElement).getNode());
+    }
+
+    @Override
+    void addChildren(FileElement[] batch) {
+        int[] nodes = new int[batch.length];
+        for(int i=0; i<batch.length; i++) {
+            nodes[i] = ((ColumnarElement) batch[i]).getNode();
+        }
+        tree.linkAll(node, nodes);
+    }
+
+    @Override
+    boolean isAncestorOf(FileElement fileElement) {
+        return tree.contains(fileElement) && tree.isAncestor(node, ((ColumnarElement) fileElement).getNode());
+    }
+
+    @Override
+    boolean unlink(FileElement fileElement) {
+        return tree.contains(fileElement) && tree.unlink(node, ((ColumnarElement) fileElement).getNode());
+    }
+
+    @Override
+    FileElement[] getChildren() {
+        return tree.getChildren(node);
+    }
+
+    @Override
+    void clearChildren() {
+        tree.unlinkChildren(node);
+    }
+
+    @Override
+    public FileElement GetChild(int index) {
+        return tree.getChild(node, index);
+    }
+
+    @Override
+    public FileElement GetChild(String name) {
+        return tree.findChild(node, name);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ColumnarDirectory && ((ColumnarDirectory) o).tree == tree && ((ColumnarDirectory) o).node == node;
+    }
+
+    @Override
+    public int hashCode() {
+        return node;
+    }
+}
@@ -0,0 +1,176 @@
+package osmodeling;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Command (Command Pattern)
+public interface Command {
+    void Execute();
+
+    // The lane of the CommandExecutor that runs the command
+    default CommandPriority getPriority() {
+        return CommandPriority.NORMAL;
+    }
+}
+
+// A command that can be executed together with other commands of the same batch key
+// The CommandExecutor calls ExecuteBatch() of the first command with the commands that are next to each other in a lane
+interface BatchableCommand extends Command {
+    Object getBatchKey();
+    void ExecuteBatch(List<Command> batch);
+}
+
+// Concrete Command (Command Pattern)
+class ShutDownCommand implements Command {
+
+    private final OperatingSystem operatingSystem;
+
+    public ShutDownCommand(OperatingSystem operatingSystem) {
+        this.operatingSystem = operatingSystem;
+    }
+
+    // call reset() method of operating system in Execute()
+    @Override
+    public void Execute() {
+        operatingSystem.reset();
+    }
+
+    // The commands that are already submitted are executed before the shutdown
+    @Override
+    public CommandPriority getPriority() {
+        return CommandPriority.LOW;
+    }
+}
+
+// Concrete Command for printing a content to a file with the translator of an operating system
+// The commands of the same translator are written with one fprintf() call when they are batched
+class PrintToFileCommand implements BatchableCommand {
+
+    private final DPLanguage translator;
+    private final File file;
+    private final String content;
+
+    public PrintToFileCommand(DPLanguage translator, File file, String content) {
+        this.translator = translator;
+        this.file = file;
+        this.content = content;
+    }
+
+    @Override
+    public void Execute() {
+        translator.fprintf(file, content);
+    }
+
+    @Override
+    public Object getBatchKey() {
+        return translator;
+    }
+
+    // If a file is written more than once in the batch, the last content is written like in Execute() one by one
+    @Override
+    public void ExecuteBatch(List<Command> batch) {
+        LinkedHashMap<File, String> writes = new LinkedHashMap<>();
+
+        for(Command command : batch) {
+            PrintToFileCommand print = (PrintToFileCommand) command;
+            writes.put(print.file, print.content);
+        }
+        translator.fprintf(writes, false);
+    }
+}
+
+// Concrete Command for adding a file element to a directory
+class AddFileElementCommand implements Command {
+
+    private final Directory directory;
+    private final FileElement fileElement;
+
+    public AddFileElementCommand(Directory directory, FileElement fileElement) {
+        this.directory = directory;
+        this.fileElement = fileElement;
+    }
+
+    // The future of the command fails with IllegalArgumentException if the types are not matching
+    @Override
+    public void Execute() {
+        try {
+            directory.Add(fileElement);
+        } catch (InvalidFileElementType e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+}
+
+// Concrete Command for removing a file element from a directory or one of its sub directories
+class RemoveFileElementCommand implements Command {
+
+    private final Directory directory;
+    private final FileElement fileElement;
+
+    public RemoveFileElementCommand(Directory directory, FileElement fileElement) {
+        this.directory = directory;
+        this.fileElement = fileElement;
+    }
+
+    @Override
+    public void Execute() {
+        directory.Remove(fileElement);
+    }
+}
+
+// Concrete Command for resetting one device
+class ResetDeviceCommand implements Command {
+
+    private final Device device;
+
+    public ResetDeviceCommand(Device device) {
+        this.device = device;
+    }
+
+    @Override
+    public void Execute() {
+        device.resetDevice();
+    }
+
+    @Override
+    public CommandPriority getPriority() {
+        return CommandPriority.HIGH;
+    }
+}
+
+// Concrete Command for sending data to an I/O device
+class SendDataCommand implements Command {
+
+    private final IODevice ioDevice;
+    private final String data;
+
+    public SendDataCommand(IODevice ioDevice, String data) {
+        this.ioDevice = ioDevice;
+        this.data = data;
+    }
+
+    @Override
+    public void Execute() {
+        ioDevice.setData(data);
+    }
+}
+
+// Invoker (Command Pattern)
+class User {
+    private final Command shutdown;
+
+    public User(Command shutdown) {
+        this.shutdown = shutdown;
+    }
+
+    // Execute the shutdown command
+    public void shutdownOS() {
+        shutdown.Execute();
+    }
+
+    // Submit the shutdown command to the executor, the future is completed when the command is executed
+    public CompletableFuture<Void> shutdownOS(CommandExecutor executor) throws InterruptedException {
+        return executor.submit(shutdown);
+    }
+}
\ No newline at end of file
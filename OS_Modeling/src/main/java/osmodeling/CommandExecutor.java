@@ -0,0 +1,291 @@
+package osmodeling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// The lanes of the CommandExecutor, a lane is only taken from when the lanes before it are empty
+enum CommandPriority {
+    HIGH,
+    NORMAL,
+    LOW
+}
+
+// Executes the Commands of many clients asynchronously (Invoker in Command Pattern)
+// Each priority has a bounded lane, submit() waits while the lane of the command is full
+// A dispatcher thread takes the commands from the lanes by priority when an execution slot is free,
+// and runs them on virtual threads (see VirtualThreads). BatchableCommands with the same batch key
+// that are next to each other in a lane are executed together with one ExecuteBatch() call
+// The commands run at the same time, so the clients must wait for the future of a command
+// when a later command depends on it
+// The time a command waits in its lane and the time it takes to execute are measured separately
+public class CommandExecutor {
+
+    private final List<ArrayBlockingQueue<Submission>> lanes;
+    private final int maxBatchSize;
+    private final Semaphore queued; // number of commands in the lanes, only released after the command is in its lane
+    private final Semaphore slots; // free execution slots
+    private final ExecutorService executor;
+    private final Thread dispatcher;
+    private volatile boolean running;
+    private volatile boolean stopped; // the dispatcher has stopped, the commands that are still in the lanes are cancelled
+    private final AtomicInteger submitting; // submit() calls that have passed the running check
+    private final CommandStats[] stats; // for each priority
+
+    public CommandExecutor(int laneCapacity, int maxConcurrency, int maxBatchSize) {
+        CommandPriority[] priorities = CommandPriority.values();
+
+        this.lanes = new ArrayList<>(priorities.length);
+        this.stats = new CommandStats[priorities.length];
+        for(int i=0; i<priorities.length; i++) {
+            lanes.add(new ArrayBlockingQueue<>(laneCapacity));
+            stats[i] = new CommandStats();
+        }
+
+        this.maxBatchSize = maxBatchSize;
+        this.queued = new Semaphore(0);
+        this.slots = new Semaphore(maxConcurrency);
+        this.executor = VirtualThreads.newExecutor("command");
+        this.running = true;
+        this.submitting = new AtomicInteger();
+        this.dispatcher = new Thread(this::dispatch, "command-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    // Put the command to its lane, wait while the lane is full
+    // The future is completed when the command is executed, or completed exceptionally if Execute() throws
+    // It is cancelled if shutdown() times out before the command is executed
+    public CompletableFuture<Void> submit(Command command) throws InterruptedException {
+        // The dispatcher does not stop while a submit() is between the check and the release
+        submitting.incrementAndGet();
+        try {
+            if(!running) {
+                throw new RejectedExecutionException("Command executor is shut down");
+            }
+
+            Submission submission = new Submission(command);
+            ArrayBlockingQueue<Submission> lane = lanes.get(command.getPriority().ordinal());
+            lane.put(submission);
+            queued.release();
+
+            // A put() that waited for a full lane can end after shutdown() has cancelled the lanes
+            if(stopped && lane.remove(submission)) {
+                submission.future.cancel(false);
+            }
+            return submission.future;
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    private void dispatch() {
+        try {
+            while(true) {
+                slots.acquire();
+
+                // Wait for a command, check running again from time to time
+                while(!queued.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    if(!running && submitting.get() == 0 && queued.availablePermits() == 0) {
+                        slots.release();
+                        return;
+                    }
+                }
+
+                List<Submission> batch = takeBatch();
+                executor.execute(() -> execute(batch));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Take the first command of the highest priority lane that has one and the commands after it
+    // that can be batched with it. It is called after a permit of queued is acquired, so there is a command
+    private List<Submission> takeBatch() {
+        for(ArrayBlockingQueue<Submission> lane : lanes) {
+            Submission first = lane.poll();
+            if(first == null) {
+                continue;
+            }
+
+            ArrayList<Submission> batch = new ArrayList<>(1);
+            batch.add(first);
+
+            if(first.command instanceof BatchableCommand) {
+                Object batchKey = ((BatchableCommand) first.command).getBatchKey();
+
+                while(batch.size() < maxBatchSize) {
+                    Submission next = lane.peek();
+                    if(next == null || !(next.command instanceof BatchableCommand)
+                            || !batchKey.equals(((BatchableCommand) next.command).getBatchKey())
+                            || !queued.tryAcquire()) {
+                        break;
+                    }
+                    // The dispatcher is the only thread that takes from the lanes, so next is still the head
+                    batch.add(lane.poll());
+                }
+            }
+            return batch;
+        }
+        throw new IllegalStateException("No command in the lanes");
+    }
+
+    private void execute(List<Submission> batch) {
+        long start = System.nanoTime();
+        CommandStats commandStats = stats[batch.get(0).command.getPriority().ordinal()];
+        Throwable failure = null;
+
+        try {
+            try {
+                if(batch.size() == 1) {
+                    batch.get(0).command.Execute();
+                } else {
+                    ArrayList<Command> commands = new ArrayList<>(batch.size());
+                    for(Submission submission : batch) {
+                        commands.add(submission.command);
+                    }
+                    ((BatchableCommand) commands.get(0)).ExecuteBatch(commands);
+                }
+            } catch (Throwable e) {
+                failure = e;
+            }
+
+            // The failed commands are counted too, with the time until they failed
+            long end = System.nanoTime();
+            for(Submission submission : batch) {
+                commandStats.record(start - submission.submitTime, end - start, failure != null);
+                if(failure == null) {
+                    submission.future.complete(null);
+                } else {
+                    submission.future.completeExceptionally(failure);
+                }
+            }
+        } finally {
+            if(batch.size() > 1) {
+                commandStats.batchCount.increment();
+            }
+            slots.release();
+        }
+    }
+
+    // Stop accepting commands, execute the ones in the lanes and wait until they are finished
+    // The commands that are still in the lanes when the timeout ends are cancelled. With timeout 0 it does not wait,
+    // all commands that are not started yet are cancelled
+    // Return false if a command is still running
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        running = false;
+
+        TimeUnit.NANOSECONDS.timedJoin(dispatcher, deadline - System.nanoTime()); // does not wait if timeout <= 0
+        if(dispatcher.isAlive()) {
+            // The dispatcher must not give a command to the executor after it is shut down
+            dispatcher.interrupt();
+            dispatcher.join();
+        }
+
+        stopped = true;
+        for(ArrayBlockingQueue<Submission> lane : lanes) {
+            Submission submission;
+            while((submission = lane.poll()) != null) {
+                submission.future.cancel(false);
+            }
+        }
+
+        executor.shutdown();
+        return executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    public CommandStats getStats(CommandPriority priority) {
+        return stats[priority.ordinal()];
+    }
+
+    private static class Submission {
+        final Command command;
+        final long submitTime;
+        final CompletableFuture<Void> future;
+
+        Submission(Command command) {
+            this.command = command;
+            this.submitTime = System.nanoTime();
+            this.future = new CompletableFuture<>();
+        }
+    }
+}
+
+// Latencies of the commands of one priority, the times are in nanoseconds
+class CommandStats {
+    private final LongAdder count;
+    private final LongAdder failedCount; // commands whose Execute() threw, they are also in count
+    private final LongAdder totalQueueWait;
+    private final LongAdder totalExecution; // a batch is counted for each command in it
+    private final LongAccumulator maxQueueWait;
+    private final LongAccumulator maxExecution;
+    final LongAdder batchCount; // number of batches with more than one command
+
+    CommandStats() {
+        this.count = new LongAdder();
+        this.failedCount = new LongAdder();
+        this.totalQueueWait = new LongAdder();
+        this.totalExecution = new LongAdder();
+        this.maxQueueWait = new LongAccumulator(Math::max, 0);
+        this.maxExecution = new LongAccumulator(Math::max, 0);
+        this.batchCount = new LongAdder();
+    }
+
+    void record(long queueWait, long execution, boolean failed) {
+        count.increment();
+        if(failed) {
+            failedCount.increment();
+        }
+        totalQueueWait.add(queueWait);
+        totalExecution.add(execution);
+        maxQueueWait.accumulate(queueWait);
+        maxExecution.accumulate(execution);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public double getAverageQueueWait() {
+        long n = count.sum();
+        return (n == 0) ? 0 : (double) totalQueueWait.sum() / n;
+    }
+
+    public double getAverageExecution() {
+        long n = count.sum();
+        return (n == 0) ? 0 : (double) totalExecution.sum() / n;
+    }
+
+    public long getMaxQueueWait() {
+        return maxQueueWait.get();
+    }
+
+    public long getMaxExecution() {
+        return maxExecution.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d commands, %d failed, %d batches, queue wait avg %.3f ms max %.3f ms, execution avg %.3f ms max %.3f ms",
+                getCount(), getFailedCount(), getBatchCount(), getAverageQueueWait() / 1e6, getMaxQueueWait() / 1e6,
+                getAverageExecution() / 1e6, getMaxExecution() / 1e6);
+    }
+}
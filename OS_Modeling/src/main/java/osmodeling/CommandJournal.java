@@ -0,0 +1,820 @@
+package osmodeling;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+// Redo journal of the changes of the file system of an OperatingSystem
+// Each change (Add, Remove, fprintf) is done through the journal: it is applied to the file system,
+// written to the journal as a JournalCommand, and the call returns when the journal is on the disk
+// The change is applied before its record is on the disk (apply-then-log), so the records are in the order
+// of the changes, but other threads can see a change before it is durable
+// The threads that commit at the same time share one write and one force() of the channel (group commit):
+// the first thread that waits writes the records of all waiting threads
+// If a write or force() fails, the journal is failed: the changes that are not on the disk are undone
+// in the reverse order, their calls throw IOException, and the journal must be opened again
+// open() restores the last checkpoint and replays the journals written after it into the file system
+// When the journal is larger than checkpointBytes, a new journal is started and the file system is saved
+// with FileSystemSnapshot, so the replay time stays bounded
+//
+// Files in the directory (N is the generation, it is increased by each checkpoint):
+//   checkpoint-N.snap : the file system at the start of the generation (not written for generation 0)
+//   journal-N.log     : the records of the generation
+// The checkpoint is written after its journal is started, until then the previous checkpoint and both journals are used
+// Record: int payload length, int CRC32 of the payload, payload (see JournalCommand)
+// A record that is not completely written (e.g. the JVM is killed while writing) is dropped by open()
+//
+// The elements are written with their paths (see FileSystem.resolve()), so the paths must be unique
+public class CommandJournal implements AutoCloseable {
+
+    private static final String CHECKPOINT_PREFIX = "checkpoint-";
+    private static final String CHECKPOINT_SUFFIX = ".snap";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+    private static final int RECORD_HEADER = 8;
+
+    private final OperatingSystem os;
+    private final Path directory;
+    private final long checkpointBytes;
+    private final LongAdder failedCheckpointCount;
+    private final Object lock; // guards all fields below
+
+    private long generation;
+    private FileChannel channel;
+    private long journalSize; // bytes written to the channel
+    private JournalBuffer pending; // records that are not written yet
+    private JournalBuffer spare; // the buffer that is being written by the flushing thread
+    private final CRC32 crc;
+    private long appended; // number of records appended to pending
+    private long durable; // number of records that are forced to the disk
+    private final ArrayList<JournalCommand> unflushed; // applied commands whose records are not on the disk, in order
+    private IOException failure; // the failed write, nothing is written after it
+    private boolean flushing;
+    private boolean checkpointing; // a checkpoint is being saved without the lock
+    private boolean closed;
+
+    private CommandJournal(OperatingSystem os, Path directory, long checkpointBytes) {
+        this.os = os;
+        this.directory = directory;
+        this.checkpointBytes = checkpointBytes;
+        this.failedCheckpointCount = new LongAdder();
+        this.lock = new Object();
+        this.pending = new JournalBuffer();
+        this.spare = new JournalBuffer();
+        this.crc = new CRC32();
+        this.unflushed = new ArrayList<>();
+    }
+
+    // Restore the file system of the OperatingSystem from the directory and open the journal for new changes
+    // The file system must be empty
+    public static CommandJournal open(OperatingSystem os, Path directory, long checkpointBytes)
+            throws IOException, InvalidFileElementType {
+        Files.createDirectories(directory);
+        CommandJournal journal = new CommandJournal(os, directory, checkpointBytes);
+
+        long checkpointGeneration = journal.findLastCheckpoint();
+        Path checkpoint = journal.checkpointPath(checkpointGeneration);
+        if(Files.exists(checkpoint)) {
+            FileSystemSnapshot.restore(checkpoint, os.getFileSystem());
+        }
+
+        long generation = checkpointGeneration;
+        Path journalPath = journal.journalPath(generation);
+        long validSize = Files.exists(journalPath) ? journal.replay(journalPath) : 0;
+
+        // The journals of a checkpoint that is not saved yet, each one continues the previous one
+        while(Files.exists(journal.journalPath(generation + 1))) {
+            if(validSize < Files.size(journalPath)) {
+                throw new IOException("Journal is not completely written but it is continued: " + journalPath);
+            }
+            generation++;
+            journalPath = journal.journalPath(generation);
+            validSize = journal.replay(journalPath);
+        }
+
+        journal.generation = generation;
+        journal.channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        journal.channel.truncate(validSize); // drop a record that is not completely written
+        journal.channel.position(validSize);
+        journal.journalSize = validSize;
+        journal.deleteOldGenerations(checkpointGeneration);
+        return journal;
+    }
+
+    // Add the fileElement to the directory, or to the top of the file system if directory is null
+    // If the fileElement is already in the file system, it is moved
+    public void Add(Directory directory, FileElement fileElement) throws IOException, InvalidFileElementType {
+        try {
+            commit(() -> {
+                String directoryPath = (directory == null) ? "" : pathInFileSystem(directory);
+                FileElement existing = os.getFileSystem().resolve(fileElement.getPath());
+
+                if(fileElement.equals(existing)) {
+                    return new JournalMoveCommand(os, fileElement.getPath(), fileElement, directoryPath, directory);
+                }
+                return new JournalAddCommand(os, directoryPath, directory, fileElement);
+            });
+        } catch (IllegalArgumentException e) {
+            if(e.getCause() instanceof InvalidFileElementType) {
+                throw (InvalidFileElementType) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // Remove the fileElement from the file system
+    public void Remove(FileElement fileElement) throws IOException {
+        commit(() -> new JournalRemoveCommand(os, pathInFileSystem(fileElement), fileElement));
+    }
+
+    // Print the content to the file with the translator of the OperatingSystem
+    public void fprintf(File file, String content, boolean append) throws IOException {
+        commit(() -> new JournalPrintCommand(os, pathInFileSystem(file), file, content, append));
+    }
+
+    // The path of the fileElement in the file system
+    // Throw IllegalArgumentException if the fileElement is not in the file system or its path is not unique
+    private String pathInFileSystem(FileElement fileElement) {
+        String path = fileElement.getPath();
+
+        if(!fileElement.equals(os.getFileSystem().resolve(path))) {
+            throw new IllegalArgumentException("Element is not in the file system or its path is not unique: " + path);
+        }
+        return path;
+    }
+
+    // Create and apply the command, append it to the pending records and wait until it is on the disk
+    // The command is created while holding the lock, so the paths do not change until it is applied
+    // If Execute() throws, the command is not written. If the record can not be written, the command is undone
+    private void commit(Supplier<JournalCommand> commandSupplier) throws IOException {
+        long sequence;
+
+        synchronized (lock) {
+            checkOpen();
+
+            JournalCommand command = commandSupplier.get();
+            command.Execute();
+            appendRecord(command);
+            unflushed.add(command);
+            sequence = ++appended;
+        }
+
+        awaitDurable(sequence);
+
+        // The change is already durable, so a failed checkpoint does not fail it
+        // The journals after the last saved checkpoint are kept and replayed by open()
+        try {
+            checkpoint(true);
+        } catch (IOException e) {
+            failedCheckpointCount.increment();
+            os.getOutput().println("Journal checkpoint has failed: {}", e);
+        }
+    }
+
+    // Number of checkpoints that are started by a change and could not be saved
+    public long getFailedCheckpointCount() {
+        return failedCheckpointCount.sum();
+    }
+
+    // Called while holding the lock
+    private void checkOpen() throws IOException {
+        if(closed) {
+            throw new IOException("Journal is closed");
+        }
+        if(failure != null) {
+            throw new IOException("Journal write has failed, the journal must be opened again", failure);
+        }
+    }
+
+    private void appendRecord(JournalCommand command) {
+        int start = pending.position();
+        pending.putInt(0); // the length and the CRC are set after the payload is written
+        pending.putInt(0);
+        command.writeTo(pending);
+
+        int length = pending.position() - start - RECORD_HEADER;
+        crc.reset();
+        crc.update(pending.slice(start + RECORD_HEADER, length));
+
+        pending.putInt(start, length);
+        pending.putInt(start + 4, (int) crc.getValue());
+    }
+
+    // Group commit: if no thread is writing, this thread writes the pending records of all threads,
+    // otherwise it waits for the writing thread and checks again
+    private void awaitDurable(long sequence) throws IOException {
+        while(true) {
+            JournalBuffer records;
+            FileChannel target;
+            long upTo;
+
+            synchronized (lock) {
+                while(durable < sequence && flushing && failure == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for the journal", e);
+                    }
+                }
+                if(durable >= sequence) {
+                    return;
+                }
+                if(failure != null) {
+                    throw new IOException("Journal write has failed, the change is undone", failure);
+                }
+
+                flushing = true;
+                records = pending;
+                pending = spare;
+                spare = null;
+                target = channel;
+                upTo = appended;
+            }
+
+            boolean written = false;
+            IOException error = null;
+            try {
+                write(target, records);
+                target.force(false);
+                written = true;
+            } catch (IOException e) {
+                error = e;
+                throw e;
+            } finally {
+                synchronized (lock) {
+                    if(written) {
+                        unflushed.subList(0, (int) (upTo - durable)).clear();
+                        durable = upTo;
+                        journalSize += records.position();
+                    } else {
+                        fail(target, (error != null) ? error : new IOException("Journal write has failed"));
+                    }
+                    records.clear();
+                    spare = records;
+                    flushing = false;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    // After a failed write or force() it is not known which bytes are on the disk, so the journal is not written again
+    // The records that are not durable are dropped and their changes are undone in the reverse order,
+    // a record whose bytes reached the disk anyway is dropped by truncating the channel if that still works
+    // Called while holding the lock
+    private void fail(FileChannel target, IOException cause) {
+        failure = cause;
+        try {
+            target.truncate(journalSize);
+        } catch (IOException e) {
+            // The bytes may be replayed by open()
+        }
+
+        for(int i=unflushed.size()-1; i>=0; i--) {
+            try {
+                unflushed.get(i).Undo();
+            } catch (RuntimeException e) {
+                // Undo the other changes anyway
+            }
+        }
+        unflushed.clear();
+        pending.clear();
+        lock.notifyAll();
+    }
+
+    private static void write(FileChannel target, JournalBuffer records) throws IOException {
+        ByteBuffer bytes = records.slice(0, records.position());
+        while(bytes.hasRemaining()) {
+            target.write(bytes);
+        }
+    }
+
+    // Start a new journal and save the file system as the checkpoint of its generation
+    // The changes only wait while the tree is copied, not while the checkpoint is written
+    public void checkpoint() throws IOException {
+        checkpoint(false);
+    }
+
+    // If onlyIfNeeded is true, the checkpoint is only done if the journal is larger than checkpointBytes
+    private void checkpoint(boolean onlyIfNeeded) throws IOException {
+        FileSystemSnapshot.CapturedElement[] captured;
+        FileElementType type;
+        long next;
+
+        synchronized (lock) {
+            if(onlyIfNeeded && journalSize <= checkpointBytes) {
+                return;
+            }
+
+            while(flushing || checkpointing) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the journal", e);
+                }
+            }
+            checkOpen();
+            if(onlyIfNeeded && journalSize <= checkpointBytes) {
+                return; // done by another thread in the meantime
+            }
+
+            // The records of the current generation must be on the disk before the next journal is started
+            try {
+                write(channel, pending);
+                channel.force(false);
+            } catch (IOException e) {
+                fail(channel, e);
+                throw e;
+            }
+            journalSize += pending.position();
+            pending.clear();
+            unflushed.clear();
+            durable = appended;
+            lock.notifyAll();
+
+            // The tree is copied while no change is applied, so the checkpoint has exactly the changes
+            // of the journals before the next one
+            captured = FileSystemSnapshot.capture(os.getFileSystem());
+            type = os.getFileSystem().getFileElementFactory().getType();
+            next = generation + 1;
+
+            FileChannel nextChannel = FileChannel.open(journalPath(next), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            channel.close();
+            channel = nextChannel;
+            journalSize = 0;
+            generation = next;
+            checkpointing = true;
+        }
+
+        // The changes are written to the new journal in the meantime
+        try {
+            FileSystemSnapshot.save(captured, type, checkpointPath(next));
+            deleteOldGenerations(next);
+        } finally {
+            synchronized (lock) {
+                checkpointing = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // Write the pending records and close the journal
+    @Override
+    public void close() throws IOException {
+        long sequence;
+
+        synchronized (lock) {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            sequence = (failure == null) ? appended : durable; // nothing is written after a failure
+        }
+
+        try {
+            awaitDurable(sequence);
+        } finally {
+            synchronized (lock) {
+                channel.close();
+            }
+        }
+    }
+
+    // Execute the records of the journal, return the size of the records that are completely written
+    private long replay(Path journalPath) throws IOException {
+        ByteBuffer buffer = FileSystemSnapshot.map(journalPath);
+        CRC32 recordCrc = new CRC32();
+
+        while(buffer.remaining() >= RECORD_HEADER) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int expectedCrc = buffer.getInt();
+
+            if(length < 0 || length > buffer.remaining()) {
+                return start;
+            }
+
+            ByteBuffer payload = buffer.slice(buffer.position(), length);
+            recordCrc.reset();
+            recordCrc.update(payload.duplicate());
+            if((int) recordCrc.getValue() != expectedCrc) {
+                return start;
+            }
+
+            try {
+                JournalCommand.read(os, payload).Execute();
+            } catch (RuntimeException e) {
+                throw new IOException("Journal record at offset " + start + " can not be replayed", e);
+            }
+            buffer.position(buffer.position() + length);
+        }
+        return buffer.position();
+    }
+
+    private long findLastCheckpoint() throws IOException {
+        long last = 0;
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, CHECKPOINT_PREFIX + "*" + CHECKPOINT_SUFFIX)) {
+            for(Path file : files) {
+                String name = file.getFileName().toString();
+                String number = name.substring(CHECKPOINT_PREFIX.length(), name.length() - CHECKPOINT_SUFFIX.length());
+
+                try {
+                    last = Math.max(last, Long.parseLong(number));
+                } catch (NumberFormatException e) {
+                    // Not a checkpoint of the journal
+                }
+            }
+        }
+        return last;
+    }
+
+    // Delete the files of the generations before the checkpoint
+    private void deleteOldGenerations(long checkpointGeneration) throws IOException {
+        for(long old = checkpointGeneration - 1; old >= 0; old--) {
+            boolean deleted = Files.deleteIfExists(journalPath(old)) | Files.deleteIfExists(checkpointPath(old));
+            if(!deleted) {
+                break; // the older ones are deleted by an earlier checkpoint
+            }
+        }
+    }
+
+    private Path checkpointPath(long generation) {
+        return directory.resolve(CHECKPOINT_PREFIX + generation + CHECKPOINT_SUFFIX);
+    }
+
+    private Path journalPath(long generation) {
+        return directory.resolve(JOURNAL_PREFIX + generation + JOURNAL_SUFFIX);
+    }
+}
+
+// A growable heap buffer for the records of the journal
+class JournalBuffer {
+    private ByteBuffer buffer;
+
+    JournalBuffer() {
+        this.buffer = ByteBuffer.allocate(4_096);
+    }
+
+    private void ensure(int size) {
+        if(buffer.remaining() < size) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+    }
+
+    int position() {
+        return buffer.position();
+    }
+
+    void put(byte value) {
+        ensure(1);
+        buffer.put(value);
+    }
+
+    void putInt(int value) {
+        ensure(4);
+        buffer.putInt(value);
+    }
+
+    void putInt(int index, int value) {
+        buffer.putInt(index, value);
+    }
+
+    void putBytes(ByteBuffer bytes) {
+        putInt(bytes.remaining());
+        ensure(bytes.remaining());
+        buffer.put(bytes);
+    }
+
+    void putString(String value) {
+        putBytes(ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    void append(JournalBuffer other) {
+        ensure(other.position());
+        buffer.put(other.slice(0, other.position()));
+    }
+
+    ByteBuffer slice(int index, int length) {
+        return buffer.slice(index, length);
+    }
+
+    void clear() {
+        buffer.clear();
+    }
+}
+
+// A change of the file system in the journal
+// It keeps the changed elements for Execute() when it is created by the journal,
+// and finds them by their paths when it is read from the journal
+// Payload: byte kind of the command, then the fields of the command
+abstract class JournalCommand implements Command {
+
+    static final byte ADD = 1;
+    static final byte MOVE = 2;
+    static final byte REMOVE = 3;
+    static final byte PRINT = 4;
+
+    protected final OperatingSystem os;
+
+    JournalCommand(OperatingSystem os) {
+        this.os = os;
+    }
+
+    abstract void writeTo(JournalBuffer out);
+
+    // Revert Execute(), it is only called for a command created by the journal after its record could not be written
+    abstract void Undo();
+
+    static JournalCommand read(OperatingSystem os, ByteBuffer in) throws IOException {
+        byte kind = in.get();
+
+        switch (kind) {
+            case ADD:
+                return JournalAddCommand.read(os, in);
+            case MOVE:
+                return new JournalMoveCommand(os, readString(in), null, readString(in), null);
+            case REMOVE:
+                return new JournalRemoveCommand(os, readString(in), null);
+            case PRINT:
+                return new JournalPrintCommand(os, readString(in), null, readString(in), in.get() != 0);
+            default:
+                throw new IOException("Invalid command in journal: " + kind);
+        }
+    }
+
+    static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    protected FileElement resolve(String path) {
+        FileElement fileElement = os.getFileSystem().resolve(path);
+        if(fileElement == null) {
+            throw new IllegalStateException("Element is not found: " + path);
+        }
+        return fileElement;
+    }
+
+    // The directory of the path, null for the top of the file system
+    protected Directory resolveDirectory(String path, Directory directory) {
+        if(path.isEmpty()) {
+            return null;
+        }
+        if(directory != null) {
+            return directory;
+        }
+
+        FileElement fileElement = resolve(path);
+        if(!(fileElement instanceof Directory)) {
+            throw new IllegalStateException("Not a directory: " + path);
+        }
+        return (Directory) fileElement;
+    }
+
+    // Add the fileElement to the directory, or to the top of the file system if directory is null
+    protected void addTo(Directory directory, FileElement fileElement) {
+        if(directory == null) {
+            os.getFileSystem().Add(fileElement);
+            return;
+        }
+
+        try {
+            directory.Add(fileElement);
+        } catch (InvalidFileElementType e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+}
+
+// Add a new element and everything under it
+// The elements are written in pre-order: byte 0 for a file with its name and content,
+// byte 1 for a directory with its name and number of children
+class JournalAddCommand extends JournalCommand {
+
+    private final String directoryPath;
+    private final Directory directory;
+    private final FileElement fileElement;
+
+    JournalAddCommand(OperatingSystem os, String directoryPath, Directory directory, FileElement fileElement) {
+        super(os);
+        this.directoryPath = directoryPath;
+        this.directory = directory;
+        this.fileElement = fileElement;
+    }
+
+    @Override
+    public void Execute() {
+        addTo(resolveDirectory(directoryPath, directory), fileElement);
+    }
+
+    @Override
+    void Undo() {
+        os.getFileSystem().Remove(fileElement);
+    }
+
+    @Override
+    void writeTo(JournalBuffer out) {
+        out.put(ADD);
+        out.putString(directoryPath);
+
+        ArrayDeque<FileElement> pending = new ArrayDeque<>();
+        pending.push(fileElement);
+
+        while(!pending.isEmpty()) {
+            FileElement element = pending.pop();
+
+            if(element instanceof Directory) {
+                FileElement[] children = ((Directory) element).getChildren();
+                out.put((byte) 1);
+                out.putString(element.getBaseName());
+                out.putInt(children.length);
+
+                for(int i=children.length-1; i>=0; i--) {
+                    pending.push(children[i]);
+                }
+            } else {
+                out.put((byte) 0);
+                out.putString(element.getBaseName());
+                out.putBytes(((File) element).getContentBytes());
+            }
+        }
+    }
+
+    // Create the elements with the factory of the file system
+    static JournalAddCommand read(OperatingSystem os, ByteBuffer in) {
+        FileSystem fileSystem = os.getFileSystem();
+        String directoryPath = readString(in);
+
+        FileElement root = null;
+        ArrayDeque<Directory> directories = new ArrayDeque<>();
+        ArrayDeque<int[]> remaining = new ArrayDeque<>(); // children that are not read yet for each directory
+
+        do {
+            boolean isDirectory = in.get() == 1;
+            String name = readString(in);
+            FileElement element;
+
+            if(isDirectory) {
+                element = fileSystem.createDirectory(name);
+            } else {
+                byte[] content = new byte[in.getInt()];
+                in.get(content);
+                element = fileSystem.createFile(name);
+                ((File) element).setContent(content);
+            }
+
+            if(root == null) {
+                root = element;
+            } else {
+                remaining.peek()[0]--;
+                directories.peek().addChild(element);
+            }
+
+            if(isDirectory) {
+                directories.push((Directory) element);
+                remaining.push(new int[]{in.getInt()});
+            }
+
+            while(!remaining.isEmpty() && remaining.peek()[0] == 0) {
+                remaining.pop();
+                directories.pop();
+            }
+        } while(!remaining.isEmpty());
+
+        return new JournalAddCommand(os, directoryPath, null, root);
+    }
+}
+
+// Move an element that is already in the file system to another directory or to the top
+class JournalMoveCommand extends JournalCommand {
+
+    private final String path;
+    private final FileElement fileElement;
+    private final String directoryPath;
+    private final Directory directory;
+    private FileElement moved;
+    private Directory previousDirectory; // null if the element was at the top of the file system
+
+    JournalMoveCommand(OperatingSystem os, String path, FileElement fileElement, String directoryPath, Directory directory) {
+        super(os);
+        this.path = path;
+        this.fileElement = fileElement;
+        this.directoryPath = directoryPath;
+        this.directory = directory;
+    }
+
+    @Override
+    public void Execute() {
+        moved = (fileElement != null) ? fileElement : resolve(path);
+        previousDirectory = moved.getParent();
+        addTo(resolveDirectory(directoryPath, directory), moved);
+    }
+
+    // The element is added to the end of its previous directory
+    @Override
+    void Undo() {
+        addTo(previousDirectory, moved);
+    }
+
+    @Override
+    void writeTo(JournalBuffer out) {
+        out.put(MOVE);
+        out.putString(path);
+        out.putString(directoryPath);
+    }
+}
+
+class JournalRemoveCommand extends JournalCommand {
+
+    private final String path;
+    private final FileElement fileElement;
+    private FileElement removed;
+    private Directory previousDirectory; // null if the element was at the top of the file system
+
+    JournalRemoveCommand(OperatingSystem os, String path, FileElement fileElement) {
+        super(os);
+        this.path = path;
+        this.fileElement = fileElement;
+    }
+
+    @Override
+    public void Execute() {
+        removed = (fileElement != null) ? fileElement : resolve(path);
+        previousDirectory = removed.getParent();
+        os.getFileSystem().Remove(removed);
+    }
+
+    // The element is added to the end of its previous directory
+    @Override
+    void Undo() {
+        addTo(previousDirectory, removed);
+    }
+
+    @Override
+    void writeTo(JournalBuffer out) {
+        out.put(REMOVE);
+        out.putString(path);
+    }
+}
+
+// fprintf() with the translator of the OperatingSystem
+class JournalPrintCommand extends JournalCommand {
+
+    private final String path;
+    private final File file;
+    private final String content;
+    private final boolean append;
+    private File printed;
+    private FileContent previousContent;
+
+    JournalPrintCommand(OperatingSystem os, String path, File file, String content, boolean append) {
+        super(os);
+        this.path = path;
+        this.file = file;
+        this.content = content;
+        this.append = append;
+    }
+
+    @Override
+    public void Execute() {
+        FileElement target = (file != null) ? file : resolve(path);
+        if(!(target instanceof File)) {
+            throw new IllegalStateException("Not a file: " + path);
+        }
+
+        printed = (File) target;
+        previousContent = printed.getFileContent(); // it is never changed, so keeping it does not copy the content
+        os.getTranslator().fprintf(printed, content, append);
+    }
+
+    @Override
+    void Undo() {
+        printed.restoreContent(previousContent);
+    }
+
+    @Override
+    void writeTo(JournalBuffer out) {
+        out.put(PRINT);
+        out.putString(path);
+        out.putString(content);
+        out.put((byte) (append ? 1 : 0));
+    }
+}
@@ -0,0 +1,116 @@
+package osmodeling;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Decorator of an Observer that only gets the newest data (see IODevice.Attach(observer, interval, unit))
+// Update() only keeps the data and schedules a delivery if none is scheduled, so the values that are
+// changed again before the delivery are never given to the observer
+// With an interval the observer is updated at most once per interval, with interval 0 it is updated
+// once per drain cycle, i.e. as soon as a thread of the executor is free, with the newest data at that time
+// The deliveries of one observer never run at the same time
+public class ConflatingObserver implements Observer {
+
+    private static final Object NONE = new Object(); // there is no data to deliver, null is a valid data
+
+    // Created when it is first used, its threads do not keep the JVM running
+    private static class ExecutorHolder {
+        private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+        private static final ScheduledExecutorService EXECUTOR = Executors.newScheduledThreadPool(
+                Runtime.getRuntime().availableProcessors(), runnable -> {
+                    Thread thread = new Thread(runnable, "conflation-" + THREAD_COUNT.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private final Observer observer;
+    private final long intervalNanos;
+    private final AtomicReference<Object> latest; // the newest data that is not delivered yet, or NONE
+    private final AtomicBoolean scheduled; // true while a delivery is scheduled or running
+    private final Runnable deliveryTask; // kept in a field, so it is not allocated for each delivery
+    private volatile long lastDeliveryTime;
+    private volatile boolean cancelled;
+    private final LongAdder receivedCount;
+    private final LongAdder deliveredCount;
+
+    public ConflatingObserver(Observer observer, long interval, TimeUnit unit) {
+        this.observer = observer;
+        this.intervalNanos = unit.toNanos(interval);
+        this.latest = new AtomicReference<>(NONE);
+        this.scheduled = new AtomicBoolean();
+        this.deliveryTask = this::deliver;
+        this.lastDeliveryTime = System.nanoTime() - intervalNanos; // the first data is delivered at once
+        this.receivedCount = new LongAdder();
+        this.deliveredCount = new LongAdder();
+    }
+
+    public Observer getObserver() {
+        return observer;
+    }
+
+    @Override
+    public void Update(String newData) {
+        receivedCount.increment();
+        latest.set(newData);
+
+        if(scheduled.compareAndSet(false, true)) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        long delay = lastDeliveryTime + intervalNanos - System.nanoTime();
+
+        if(delay <= 0) {
+            ExecutorHolder.EXECUTOR.execute(deliveryTask);
+        } else {
+            ExecutorHolder.EXECUTOR.schedule(deliveryTask, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void deliver() {
+        Object data = latest.getAndSet(NONE);
+
+        try {
+            if(data != NONE && !cancelled) {
+                lastDeliveryTime = System.nanoTime();
+                observer.Update((String) data);
+                deliveredCount.increment();
+            }
+        } finally {
+            // Also if the observer throws, otherwise scheduled stays true and it never gets another data
+            scheduled.set(false);
+
+            // The data may be changed while it is delivered, and Update() does not schedule while scheduled is true
+            if(latest.get() != NONE && scheduled.compareAndSet(false, true)) {
+                schedule();
+            }
+        }
+    }
+
+    // Stop the deliveries, it is called when the observer is detached
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // Number of data that is given to Update()
+    public long getReceivedCount() {
+        return receivedCount.sum();
+    }
+
+    // Number of data that is given to the observer
+    public long getDeliveredCount() {
+        return deliveredCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(observer);
+    }
+}
@@ -0,0 +1,291 @@
+package osmodeling;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Competing consumers (Observer Pattern)
+// The group is attached to an IODevice like any other Observer, but each data it gets is consumed
+// by exactly one Application of the group instead of all of them
+// Each member has its own queue and thread. The data is put to the queues in turn, and a member
+// whose queue is empty takes the oldest data from the queues of the other members
+public class ConsumerGroup implements Observer {
+
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1); // upper bound for a missed wake up
+
+    private final String name;
+    private final CopyOnWriteArrayList<Member> members;
+    private final AtomicInteger next; // the member that gets the next data
+    private final LongAdder rejectedCount; // data that is given after the shutdown or when there is no member
+    private volatile boolean running;
+
+    public ConsumerGroup(String name) {
+        this.name = name;
+        this.members = new CopyOnWriteArrayList<>();
+        this.next = new AtomicInteger();
+        this.rejectedCount = new LongAdder();
+        this.running = true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Start a thread that consumes the data for the application
+    public void Add(Application application) {
+        Member member = new Member(application);
+        members.add(member);
+        member.thread.start();
+    }
+
+    // Stop the thread of the application, the data in its queue is given to the other members
+    public void Remove(Application application) {
+        for(Member member : members) {
+            if(member.application == application) {
+                members.remove(member);
+                member.stop();
+                redeliver(member);
+            }
+        }
+    }
+
+    // Give the data in the queue of a removed member to the other members
+    private void redeliver(Member member) {
+        Delivery delivery;
+        while((delivery = member.poll()) != null) {
+            enqueue(delivery);
+        }
+    }
+
+    // Called by the IODevice for each new data
+    @Override
+    public void Update(String newData) {
+        enqueue(new Delivery(newData));
+    }
+
+    private void enqueue(Delivery delivery) {
+        Member[] current = members.toArray(new Member[0]);
+        if(current.length == 0 || !running) {
+            rejectedCount.increment(); // there is no one to consume it
+            return;
+        }
+
+        Member member = current[Math.floorMod(next.getAndIncrement(), current.length)];
+        member.offer(delivery);
+        member.wakeUp();
+
+        // shutdown() can have started after running is read, and the members may have found the queues empty and ended
+        // A member reads running before it looks at the queues, so if it has seen running false it sees the data,
+        // otherwise this check sees running false and takes the data back. If a member has taken it, it consumes it
+        if(!running) {
+            if(member.remove(delivery)) {
+                rejectedCount.increment();
+            }
+            return;
+        }
+
+        // The member can be removed after current is read, and Remove() can have taken its queue before the offer
+        // stopped is set before Remove() takes the queue, so either Remove() or this check sees the data
+        if(member.stopped) {
+            redeliver(member);
+            return;
+        }
+
+        // If the member is busy, let an idle member take the data
+        if(!member.idle) {
+            for(Member other : current) {
+                if(other.idle) {
+                    other.wakeUp();
+                    break;
+                }
+            }
+        }
+    }
+
+    // Number of data that is consumed by the application
+    public long getConsumedCount(Application application) {
+        for(Member member : members) {
+            if(member.application == application) {
+                return member.consumedCount.sum();
+            }
+        }
+        return 0;
+    }
+
+    // Number of data whose Consume() threw, they are not counted as consumed
+    public long getFailedCount(Application application) {
+        for(Member member : members) {
+            if(member.application == application) {
+                return member.failedCount.sum();
+            }
+        }
+        return 0;
+    }
+
+    // Number of data that is not consumed, because it is given after shutdown() or when the group has no member
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    // Number of data that is consumed by a member after it took it from the queue of another member
+    public long getStolenCount() {
+        long stolen = 0;
+        for(Member member : members) {
+            stolen += member.stolenCount.sum();
+        }
+        return stolen;
+    }
+
+    // Consume the data that is already in the queues and stop the threads
+    // The data that is given from now on is rejected
+    public void shutdown() throws InterruptedException {
+        running = false;
+
+        for(Member member : members) {
+            member.wakeUp();
+        }
+        for(Member member : members) {
+            member.thread.join();
+        }
+    }
+
+    // A data for the group, the member that consumes it claims it first
+    private static class Delivery {
+        private static final AtomicReferenceFieldUpdater<Delivery, Application> CONSUMER =
+                AtomicReferenceFieldUpdater.newUpdater(Delivery.class, Application.class, "consumer");
+
+        final String data;
+        private volatile Application consumer;
+
+        Delivery(String data) {
+            this.data = data;
+        }
+
+        // Only one application can claim the data, so it is consumed exactly once
+        // even if it is moved between the queues while it is taken
+        boolean claim(Application application) {
+            return CONSUMER.compareAndSet(this, null, application);
+        }
+    }
+
+    private class Member implements Runnable {
+        final Application application;
+        final Thread thread;
+        final ConcurrentLinkedDeque<Delivery> queue;
+        final AtomicInteger queued; // number of data in the queue, ConcurrentLinkedDeque.size() walks the whole queue
+        final LongAdder consumedCount;
+        final LongAdder stolenCount;
+        final LongAdder failedCount;
+        volatile boolean idle;
+        volatile boolean stopped;
+
+        Member(Application application) {
+            this.application = application;
+            this.thread = new Thread(this, name + "-" + application.getName());
+            this.thread.setDaemon(true);
+            this.queue = new ConcurrentLinkedDeque<>();
+            this.queued = new AtomicInteger();
+            this.consumedCount = new LongAdder();
+            this.stolenCount = new LongAdder();
+            this.failedCount = new LongAdder();
+        }
+
+        @Override
+        public void run() {
+            while(!stopped) {
+                boolean wasRunning = running; // read before the queues, see enqueue()
+                Delivery delivery = poll();
+                boolean stolen = false;
+
+                if(delivery == null) {
+                    delivery = steal();
+                    stolen = true;
+                }
+
+                if(delivery == null) {
+                    if(!wasRunning) {
+                        return; // all queues are empty
+                    }
+                    await();
+                    continue;
+                }
+
+                if(delivery.claim(application)) {
+                    try {
+                        application.Consume(delivery.data);
+                        consumedCount.increment();
+                        if(stolen) {
+                            stolenCount.increment();
+                        }
+                    } catch (RuntimeException e) {
+                        // The data is claimed, so it is not given to another member
+                        failedCount.increment();
+                        AsyncDispatcher.report(thread, e);
+                    }
+                }
+            }
+        }
+
+        // Take the oldest data of the member with the longest queue, it is the one that has waited the longest
+        private Delivery steal() {
+            Member busiest = null;
+            int longest = 0;
+
+            for(Member member : members) {
+                if(member != this) {
+                    int size = member.queued.get();
+                    if(size > longest) {
+                        busiest = member;
+                        longest = size;
+                    }
+                }
+            }
+            return (busiest == null) ? null : busiest.poll();
+        }
+
+        // The counter is increased first, so it is never less than the number of data in the queue
+        void offer(Delivery delivery) {
+            queued.incrementAndGet();
+            queue.offerLast(delivery);
+        }
+
+        // Take the oldest data of the queue, null if it is empty
+        Delivery poll() {
+            Delivery delivery = queue.pollFirst();
+            if(delivery != null) {
+                queued.decrementAndGet();
+            }
+            return delivery;
+        }
+
+        // Take the data out of the queue if it is still there
+        boolean remove(Delivery delivery) {
+            if(queue.removeLastOccurrence(delivery)) {
+                queued.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        private void await() {
+            idle = true;
+            if(queue.isEmpty() && running && !stopped) {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+            idle = false;
+        }
+
+        void wakeUp() {
+            LockSupport.unpark(thread);
+        }
+
+        void stop() {
+            stopped = true;
+            LockSupport.unpark(thread);
+        }
+    }
+}
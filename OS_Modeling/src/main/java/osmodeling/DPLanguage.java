@@ -0,0 +1,260 @@
+package osmodeling;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+// Target in Adapter Pattern
+public interface DPLanguage {
+    void fprintf(File handle, String str);
+
+    // If append is true, str is added to the end of the file instead of replacing its content
+    void fprintf(File handle, String str, boolean append);
+
+    // Print each String to its File in one call
+    // If parallel is true, the files are written by the threads of the common ForkJoinPool
+    void fprintf(Map<File, String> writes, boolean parallel);
+}
+
+// Adapter (1) in Adapter Pattern
+// It is used to translate DPLanguage print statement to LinuxFileSystem print statement
+class TranslatorDPToLinux implements DPLanguage {
+
+    private final LinuxFileSystem adaptee; // Linux or BSD File System
+
+    public TranslatorDPToLinux(Linux_OS linux_os) {
+        this.adaptee = (LinuxFileSystem) linux_os.getFileSystem();
+    }
+
+    @Override
+    public void fprintf(File handle, String str) {
+        fprintf(handle, str, false);
+    }
+
+    @Override
+    public void fprintf(File handle, String str, boolean append) {
+        long start = OperationMetrics.ENABLED ? System.nanoTime() : 0;
+
+        adaptee.uprintf(str, handle, append);
+
+        if(OperationMetrics.ENABLED) {
+            OperationMetrics.record(MeteredOperation.FPRINTF, FileElementType.LINUX, start);
+        }
+    }
+
+    // The Strings are encoded into shared buffers, see BatchEncoder
+    @Override
+    public void fprintf(Map<File, String> writes, boolean parallel) {
+        long start = OperationMetrics.ENABLED ? System.nanoTime() : 0;
+
+        BatchEncoder.print(writes, parallel, adaptee::uprintf);
+
+        if(OperationMetrics.ENABLED) {
+            OperationMetrics.record(MeteredOperation.FPRINTF_BATCH, FileElementType.LINUX, start);
+        }
+    }
+}
+
+// Adapter (2) in Adapter Pattern
+// It is used to translate DPLanguage print statement to BSDFileSystem print statement
+class TranslatorDPToBSD implements DPLanguage {
+
+    private final BSDFileSystem adaptee;
+
+    public TranslatorDPToBSD(BSD_OS bsd_os) {
+        this.adaptee = (BSDFileSystem) bsd_os.getFileSystem();
+    }
+
+    @Override
+    public void fprintf(File handle, String str) {
+        fprintf(handle, str, false);
+    }
+
+    @Override
+    public void fprintf(File handle, String str, boolean append) {
+        long start = OperationMetrics.ENABLED ? System.nanoTime() : 0;
+
+        adaptee.uprintf(str, handle, append);
+
+        if(OperationMetrics.ENABLED) {
+            OperationMetrics.record(MeteredOperation.FPRINTF, FileElementType.BSD, start);
+        }
+    }
+
+    // The Strings are encoded into shared buffers, see BatchEncoder
+    @Override
+    public void fprintf(Map<File, String> writes, boolean parallel) {
+        long start = OperationMetrics.ENABLED ? System.nanoTime() : 0;
+
+        BatchEncoder.print(writes, parallel, adaptee::uprintf);
+
+        if(OperationMetrics.ENABLED) {
+            OperationMetrics.record(MeteredOperation.FPRINTF_BATCH, FileElementType.BSD, start);
+        }
+    }
+}
+
+// Adapter (3) in Adapter Pattern
+// It is used to translate DPLanguage print statement to NTFileSystem print statement
+class TranslatorDPToNT implements DPLanguage {
+
+    private final NTFileSystem adaptee; // NT System
+
+    public TranslatorDPToNT(NT_OS nt_os) {
+        this.adaptee = (NTFileSystem) nt_os.getFileSystem();
+    }
+
+    @Override
+    public void fprintf(File handle, String str) {
+        fprintf(handle, str, false);
+    }
+
+    @Override
+    public void fprintf(File handle, String str, boolean append) {
+        long start = OperationMetrics.ENABLED ? System.nanoTime() : 0;
+
+        byte[] charArray = (str == null) ? null : str.getBytes(StandardCharsets.UTF_8);
+        adaptee.printf(charArray, handle, append);
+
+        if(OperationMetrics.ENABLED) {
+            OperationMetrics.record(MeteredOperation.FPRINTF, FileElementType.NT, start);
+        }
+    }
+
+    // The Strings are encoded into shared buffers, see BatchEncoder
+    @Override
+    public void fprintf(Map<File, String> writes, boolean parallel) {
+        long start = OperationMetrics.ENABLED ? System.nanoTime() : 0;
+
+        BatchEncoder.print(writes, parallel, adaptee::printf);
+
+        if(OperationMetrics.ENABLED) {
+            OperationMetrics.record(MeteredOperation.FPRINTF_BATCH, FileElementType.NT, start);
+        }
+    }
+}
+
+// Encodes the Strings of a batch to UTF-8 into shared buffers for the translators
+// The Strings are encoded into a reused buffer, then the used part is copied into a chunk of exactly that size,
+// so a batch allocates one small chunk for many small files. A chunk is at most CHUNK_SIZE bytes,
+// so a file that keeps its content after the others are rewritten does not keep a large buffer alive
+// A write to a null File is skipped and a null String sets the content to null, like fprintf() of one file
+class BatchEncoder {
+
+    private static final int CHUNK_SIZE = 1 << 12;
+
+    // The print statement of a file system for length bytes of the array from offset
+    interface Target {
+        void print(byte[] bytes, int offset, int length, File file);
+    }
+
+    private final CharsetEncoder encoder;
+    private final ByteBuffer buffer; // the chunk that is being filled, it is never given to a file
+    private final ArrayList<File> pendingFiles; // files whose content is in the buffer
+    private int[] pendingOffsets; // offset of the content of each pending file in the buffer
+
+    public BatchEncoder() {
+        this.encoder = StandardCharsets.UTF_8.newEncoder();
+        this.buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        this.pendingFiles = new ArrayList<>();
+        this.pendingOffsets = new int[16];
+    }
+
+    // Print each String to its File
+    // If parallel is true, the writes are split into one part for each processor, each part has its own encoder
+    public static void print(Map<File, String> writes, boolean parallel, Target target) {
+        ArrayList<Map.Entry<File, String>> entries = new ArrayList<>(writes.entrySet());
+
+        if(!parallel) {
+            new BatchEncoder().print(entries, 0, entries.size(), target);
+        } else {
+            int size = entries.size();
+            int parts = Math.min(size, Runtime.getRuntime().availableProcessors());
+            IntStream.range(0, parts).parallel().forEach(part ->
+                    new BatchEncoder().print(entries, size * part / parts, size * (part + 1) / parts, target));
+        }
+    }
+
+    // Print the writes from start (inclusive) to end (exclusive)
+    public void print(List<Map.Entry<File, String>> writes, int start, int end, Target target) {
+        for(int i=start; i<end; i++) {
+            File file = writes.get(i).getKey();
+            String str = writes.get(i).getValue();
+
+            if(file == null) {
+                continue;
+            }
+            if(str == null) {
+                flush(target);
+                file.setContent((String) null);
+                continue;
+            }
+
+            // A UTF-8 character needs at most 3 bytes for each char of the String
+            int maxLength = str.length() * 3;
+
+            if(maxLength > CHUNK_SIZE / 4) {
+                // Large Strings get their own array, the pending files are printed first to keep the order
+                flush(target);
+                printBytes(str, file, target);
+                continue;
+            }
+
+            if(buffer.remaining() < maxLength) {
+                flush(target);
+            }
+
+            int offset = buffer.position();
+            encoder.reset();
+            CoderResult result = encoder.encode(CharBuffer.wrap(str), buffer, true);
+            if(result.isUnderflow()) {
+                result = encoder.flush(buffer);
+            }
+            if(!result.isUnderflow()) {
+                // Malformed input, e.g. an unpaired surrogate, is encoded with the replacement by getBytes()
+                buffer.position(offset);
+                flush(target);
+                printBytes(str, file, target);
+                continue;
+            }
+
+            if(pendingFiles.size() == pendingOffsets.length) {
+                pendingOffsets = Arrays.copyOf(pendingOffsets, pendingOffsets.length * 2);
+            }
+            pendingOffsets[pendingFiles.size()] = offset;
+            pendingFiles.add(file);
+        }
+
+        flush(target);
+    }
+
+    private static void printBytes(String str, File file, Target target) {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        target.print(bytes, 0, bytes.length, file);
+    }
+
+    // Copy the used part of the buffer into a chunk of its size and print the pending files from it
+    private void flush(Target target) {
+        if(pendingFiles.isEmpty()) {
+            return;
+        }
+
+        int size = buffer.position();
+        byte[] chunk = Arrays.copyOf(buffer.array(), size);
+
+        for(int i=0; i<pendingFiles.size(); i++) {
+            int end = (i + 1 < pendingFiles.size()) ? pendingOffsets[i + 1] : size;
+            target.print(chunk, pendingOffsets[i], end - pendingOffsets[i], pendingFiles.get(i));
+        }
+
+        pendingFiles.clear();
+        buffer.clear();
+    }
+}
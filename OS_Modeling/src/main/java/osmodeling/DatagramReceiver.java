@@ -0,0 +1,115 @@
+package osmodeling;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.function.Consumer;
+
+// Reads the datagrams of a NetworkPort from a non-blocking DatagramChannel with a Selector
+// The datagrams are received into slices of one preallocated direct buffer, the slices are reused
+// for the next datagrams, so no memory is allocated for each datagram
+// When the channel is readable, all waiting datagrams are received (up to the number of slices),
+// then they are given to the NetworkPort one by one
+public class DatagramReceiver implements Runnable {
+
+    private final NetworkPort networkPort;
+    private final DatagramChannel channel;
+    private final Selector selector;
+    private final ByteBuffer[] slots; // pooled slices, a datagram longer than a slice is truncated
+    private final Consumer<SelectionKey> onReadable; // kept in a field, so select() does not allocate it
+    private final Thread thread;
+    private volatile boolean running;
+    private int received; // number of slots that are filled by the last receive()
+
+    DatagramReceiver(NetworkPort networkPort, InetSocketAddress address, int slotSize, int slotCount) throws IOException {
+        this.networkPort = networkPort;
+        this.channel = DatagramChannel.open();
+        this.selector = Selector.open();
+
+        try {
+            channel.configureBlocking(false);
+            channel.bind(address);
+            channel.register(selector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            channel.close();
+            selector.close();
+            throw e;
+        }
+
+        ByteBuffer pool = ByteBuffer.allocateDirect(slotSize * slotCount);
+        this.slots = new ByteBuffer[slotCount];
+        for(int i=0; i<slotCount; i++) {
+            slots[i] = pool.slice(i * slotSize, slotSize);
+        }
+
+        this.onReadable = key -> receive();
+        this.thread = new Thread(this, "NetworkPort-" + address.getPort());
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        running = true;
+        thread.start();
+    }
+
+    InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while(running) {
+                selector.select(onReadable);
+
+                for(int i=0; i<received; i++) {
+                    try {
+                        networkPort.receive(slots[i]);
+                    } catch (RuntimeException e) {
+                        // An observer has thrown, the other datagrams are still given to the port
+                        AsyncDispatcher.report(thread, e);
+                    }
+                }
+                received = 0;
+            }
+        } catch (IOException e) {
+            if(running) {
+                networkPort.getOutput().println("Network Port is closed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void receive() {
+        try {
+            while(received < slots.length) {
+                ByteBuffer slot = slots[received];
+                slot.clear();
+
+                if(channel.receive(slot) == null) {
+                    return; // no more datagrams
+                }
+                slot.flip();
+                received++;
+            }
+        } catch (IOException e) {
+            running = false;
+        }
+    }
+
+    void close() throws IOException {
+        running = false;
+        selector.wakeup();
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        channel.close();
+        selector.close();
+    }
+}
@@ -0,0 +1,680 @@
+package osmodeling;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+// Abstract Class (Template Method Pattern)
+abstract public class Device {
+    private String name;
+    private volatile long resetTimeout; // in milliseconds, see DeviceResetScheduler
+    private volatile OperationMetrics metrics; // metrics of the OperatingSystem of the device, null if they are not enabled
+    private volatile OutputSink output; // set by the OperatingSystem of the device
+
+    public Device(String name) {
+        this.name = name;
+        this.resetTimeout = 5_000;
+        this.output = SystemOutputSink.getInstance();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // The types of the devices that must be reset before this device
+    // The devices are reset in parallel otherwise (see DeviceResetScheduler)
+    public List<Class<? extends Device>> getResetDependencies() {
+        return List.of();
+    }
+
+    public long getResetTimeout() {
+        return resetTimeout;
+    }
+
+    public void setResetTimeout(long resetTimeout) {
+        this.resetTimeout = resetTimeout;
+    }
+
+    public OutputSink getOutput() {
+        return output;
+    }
+
+    public void setOutput(OutputSink output) {
+        this.output = output;
+    }
+
+    OperationMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Called when the device is added to an OperatingSystem
+    void setMetrics(OperationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Template Method
+    public void resetDevice() {
+        long start = OperationMetrics.ENABLED ? System.nanoTime() : 0;
+
+        output.println("---------------------------------------");
+        reset();
+        output.println("{} has been reset.", this.name);
+        output.println("---------------------------------------");
+
+        OperationMetrics operationMetrics = this.metrics;
+        if(OperationMetrics.ENABLED && operationMetrics != null) {
+            operationMetrics.record(MeteredOperation.RESET_DEVICE, start);
+        }
+    }
+
+    // Primitive Operation
+    protected abstract void reset();
+}
+
+// Concrete Class 1 (Template Method)
+class CPU extends Device {
+
+    public CPU() {
+        super("CPU");
+    }
+
+    // The buffer of the hard disk must be flushed before the processes are terminated
+    @Override
+    public List<Class<? extends Device>> getResetDependencies() {
+        return List.of(HardDisk.class);
+    }
+
+    // Override the reset() method for reset CPU
+    @Override
+    public void reset() {
+        getOutput().println("All Processes are terminated...");
+    }
+}
+
+// Concrete Class 2 (Template Method)
+// Stores the contents of Files in the blocks of a disk image through a BlockCache (see attach())
+// The content of a file is written to a run of neighbour blocks, the run is reused while the content fits in it
+// When the content grows out of its run, the run is given back to the free runs and a new one is taken,
+// the free runs are reused first (first fit), so the image only grows when none of them is large enough
+// The runs are kept for the File objects until delete() is called for them.
+// flush() saves them by the paths of the files in the extent table next to the image ("<image>.extents"),
+// and attach() loads the table, so the files can be read again after a restart. The free runs are the blocks
+// that are not in the table. The paths must be unique, flush() fails if two written files have the same path
+class HardDisk extends  Device {
+
+    private static final int EXTENT_TABLE_MAGIC = 0x45585454; // "EXTT"
+
+    private volatile DiskImage image; // null until a disk image is attached
+
+    public HardDisk() {
+        super("Hard Disk");
+    }
+
+    // Use the cache of a disk image, the files that are stored in the previous one are forgotten
+    // The extent table of the image is loaded if it exists
+    public synchronized void attach(BlockCache cache) throws IOException {
+        this.image = new DiskImage(cache, cache.getImage().resolveSibling(cache.getImage().getFileName() + ".extents"));
+    }
+
+    public BlockCache getCache() {
+        DiskImage diskImage = this.image;
+        return (diskImage == null) ? null : diskImage.cache;
+    }
+
+    // Write the content of the file to the disk, it is written to the image by the cache later
+    public void write(File file) throws IOException {
+        DiskImage diskImage = requireImage();
+        BlockCache blockCache = diskImage.cache;
+        ByteBuffer content = file.getContentBytes();
+        int length = content.remaining();
+        int blockCount = Math.max(1, (length + blockCache.getBlockSize() - 1) / blockCache.getBlockSize());
+
+        // The lock of the cache keeps the extent and the blocks of a file together while another thread writes it
+        synchronized (blockCache) {
+            Extent old = diskImage.find(file);
+            Extent extent;
+
+            if(old != null && old.blockCount >= blockCount) {
+                // The blocks after the new end are not used by the file anymore
+                diskImage.release(old.firstBlock + blockCount, old.blockCount - blockCount);
+                extent = new Extent(old.firstBlock, blockCount, length);
+            } else {
+                // The old run is given back first, so the file can grow into the free blocks after it
+                if(old != null) {
+                    diskImage.release(old.firstBlock, old.blockCount);
+                }
+                extent = new Extent(diskImage.allocate(blockCount), blockCount, length);
+            }
+
+            diskImage.extents.put(file, extent);
+            blockCache.write(extent.firstBlock, content);
+        }
+    }
+
+    // Forget the content of the file, its blocks can be given to other files
+    // Return false if the file is not written to this disk
+    public boolean delete(File file) {
+        DiskImage diskImage = requireImage();
+
+        synchronized (diskImage.cache) {
+            Extent extent = diskImage.find(file);
+            if(extent == null) {
+                return false;
+            }
+
+            diskImage.extents.remove(file);
+            diskImage.release(extent.firstBlock, extent.blockCount);
+            return true;
+        }
+    }
+
+    // Number of blocks from the start of the image up to the end of the last run that is used by a file
+    public long getUsedBlockCount() {
+        DiskImage diskImage = requireImage();
+
+        synchronized (diskImage.cache) {
+            return diskImage.nextBlock;
+        }
+    }
+
+    // Set the content of the file to the content that is written to the disk
+    // Return false if the file is not written to this disk
+    public boolean read(File file) throws IOException {
+        DiskImage diskImage = requireImage();
+        BlockCache blockCache = diskImage.cache;
+        byte[] content;
+
+        synchronized (blockCache) {
+            Extent extent = diskImage.find(file);
+            if(extent == null) {
+                return false;
+            }
+
+            content = new byte[extent.length];
+            blockCache.read(extent.firstBlock, ByteBuffer.wrap(content));
+        }
+        file.setContent(content);
+        return true;
+    }
+
+    // Write the dirty blocks to the image and save the extent table
+    // Return the number of blocks that are written
+    public int flush() throws IOException {
+        DiskImage diskImage = requireImage();
+
+        synchronized (diskImage.cache) {
+            int count = diskImage.cache.flush();
+            diskImage.save();
+            return count;
+        }
+    }
+
+    private DiskImage requireImage() {
+        DiskImage diskImage = this.image;
+        if(diskImage == null) {
+            throw new IllegalStateException("No disk image is attached to " + getName());
+        }
+        return diskImage;
+    }
+
+    // Override the reset() method for reset HardDisk
+    // The dirty blocks of the cache are written to the image
+    @Override
+    public void reset() {
+        DiskImage diskImage = this.image;
+        if(diskImage == null) {
+            getOutput().println("The data in buffer: no disk image");
+            return;
+        }
+
+        try {
+            getOutput().println("The data in buffer: {} dirty blocks are written", flush());
+            getOutput().println(diskImage.cache.toString()); // the statistics at the time of the reset
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The cache of a disk image and the runs of the files in it, guarded by the lock of the cache
+    private static class DiskImage {
+        final BlockCache cache;
+        final Path extentTable;
+        final HashMap<File, Extent> extents; // the runs of the files that are written or read since attach()
+        final HashMap<String, Extent> savedExtents; // the runs in the extent table that are not used yet, by path
+        final TreeMap<Long, Integer> freeRuns; // first block and block count of the runs before nextBlock that are free
+        long nextBlock; // the first block after the last run that is given to a file
+
+        DiskImage(BlockCache cache, Path extentTable) throws IOException {
+            this.cache = cache;
+            this.extentTable = extentTable;
+            this.extents = new HashMap<>();
+            this.savedExtents = new HashMap<>();
+            this.freeRuns = new TreeMap<>();
+
+            if(Files.exists(extentTable)) {
+                load();
+            }
+        }
+
+        // The run of the file, a run in the extent table is given to the file with its path
+        Extent find(File file) {
+            Extent extent = extents.get(file);
+            if(extent == null && !savedExtents.isEmpty()) {
+                extent = savedExtents.remove(file.getPath());
+                if(extent != null) {
+                    extents.put(file, extent);
+                }
+            }
+            return extent;
+        }
+
+        // Take the first free run that is large enough, or a new run at the end of the image
+        long allocate(int blockCount) {
+            for(Map.Entry<Long, Integer> run : freeRuns.entrySet()) {
+                int runBlockCount = run.getValue();
+                if(runBlockCount >= blockCount) {
+                    long firstBlock = run.getKey();
+                    freeRuns.remove(firstBlock);
+                    if(runBlockCount > blockCount) {
+                        freeRuns.put(firstBlock + blockCount, runBlockCount - blockCount);
+                    }
+                    return firstBlock;
+                }
+            }
+
+            long firstBlock = nextBlock;
+            nextBlock += blockCount;
+            return firstBlock;
+        }
+
+        // Give the blocks back, they are joined with the free runs next to them
+        // A free run at the end of the used blocks is not kept, the used blocks end before it instead
+        void release(long firstBlock, long blockCount) {
+            if(blockCount <= 0) {
+                return;
+            }
+
+            Map.Entry<Long, Integer> previous = freeRuns.floorEntry(firstBlock);
+            if(previous != null && previous.getKey() + previous.getValue() == firstBlock) {
+                freeRuns.remove(previous.getKey());
+                firstBlock = previous.getKey();
+                blockCount += previous.getValue();
+            }
+
+            Integer next = freeRuns.remove(firstBlock + blockCount);
+            if(next != null) {
+                blockCount += next;
+            }
+
+            if(firstBlock + blockCount == nextBlock) {
+                nextBlock = firstBlock;
+            } else {
+                freeRuns.put(firstBlock, (int) blockCount);
+            }
+        }
+
+        // Format: int magic, long nextBlock, int count, then for each run:
+        // int path length, path (UTF-8), long firstBlock, int blockCount, int length
+        // Written to a temporary file and moved, so a table is never partly written
+        // A run in the table whose path is used by a written file now (e.g. the file is moved there) is released,
+        // it could not be found by the path anymore
+        void save() throws IOException {
+            HashMap<String, Extent> all = new HashMap<>();
+            for(Map.Entry<File, Extent> entry : extents.entrySet()) {
+                String path = entry.getKey().getPath();
+                if(all.put(path, entry.getValue()) != null) {
+                    throw new IOException("Two files on the disk have the same path, the extent table is not saved: " + path);
+                }
+            }
+            for(Map.Entry<String, Extent> entry : new ArrayList<>(savedExtents.entrySet())) {
+                if(all.containsKey(entry.getKey())) {
+                    savedExtents.remove(entry.getKey());
+                    release(entry.getValue().firstBlock, entry.getValue().blockCount);
+                } else {
+                    all.put(entry.getKey(), entry.getValue());
+                }
+            }
+
+            ByteBuffer table = ByteBuffer.allocate(16 + all.size() * 32);
+            table.putInt(EXTENT_TABLE_MAGIC).putLong(nextBlock).putInt(all.size());
+            for(Map.Entry<String, Extent> entry : all.entrySet()) {
+                byte[] path = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                if(table.remaining() < 20 + path.length) {
+                    table = ByteBuffer.allocate(Math.max(table.capacity() * 2, table.position() + 20 + path.length))
+                            .put(table.flip());
+                }
+
+                Extent extent = entry.getValue();
+                table.putInt(path.length).put(path).putLong(extent.firstBlock).putInt(extent.blockCount).putInt(extent.length);
+            }
+            table.flip();
+
+            Path temp = extentTable.resolveSibling(extentTable.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while(table.hasRemaining()) {
+                    channel.write(table);
+                }
+                channel.force(false);
+            }
+            Files.move(temp, extentTable, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private void load() throws IOException {
+            ByteBuffer table = ByteBuffer.wrap(Files.readAllBytes(extentTable));
+
+            try {
+                if(table.getInt() != EXTENT_TABLE_MAGIC) {
+                    throw new IOException("Not an extent table: " + extentTable);
+                }
+                nextBlock = table.getLong();
+
+                for(int count = table.getInt(); count > 0; count--) {
+                    byte[] path = new byte[table.getInt()];
+                    table.get(path);
+                    savedExtents.put(new String(path, StandardCharsets.UTF_8),
+                            new Extent(table.getLong(), table.getInt(), table.getInt()));
+                }
+
+                // The blocks between the runs in the table are free
+                ArrayList<Extent> used = new ArrayList<>(savedExtents.values());
+                used.sort(Comparator.comparingLong(extent -> extent.firstBlock));
+                long end = 0;
+                for(Extent extent : used) {
+                    if(extent.firstBlock > end) {
+                        freeRuns.put(end, (int) (extent.firstBlock - end));
+                    }
+                    end = Math.max(end, extent.firstBlock + extent.blockCount);
+                }
+                if(nextBlock > end) {
+                    nextBlock = end;
+                }
+            } catch (BufferUnderflowException | NegativeArraySizeException e) {
+                throw new IOException("Extent table is not complete: " + extentTable, e);
+            }
+        }
+    }
+
+    // The blocks of the content of a file
+    private static class Extent {
+        final long firstBlock;
+        final int blockCount;
+        final int length; // bytes of the content
+
+        Extent(long firstBlock, int blockCount, int length) {
+            this.firstBlock = firstBlock;
+            this.blockCount = blockCount;
+            this.length = length;
+        }
+    }
+}
+
+
+// Subject (Observer Pattern)
+// By default Notify() calls the observers on the thread that changes the data
+// After enableAsyncDispatch() the data is written to a ring buffer and each observer
+// is updated on its own thread (see AsyncDispatcher)
+abstract class IODevice extends Device {
+
+    protected volatile String data; // subjectState, it can be set by a receiver thread (see NetworkPort)
+    private final CopyOnWriteArrayList<Observer> observers; // can be changed while Notify() is running
+    private volatile AsyncDispatcher dispatcher; // null while the observers are notified synchronously
+
+    public IODevice() {
+        super("I/O Device");
+        this.observers = new CopyOnWriteArrayList<>();
+    }
+
+    public synchronized void Attach(Observer observer) {
+        this.observers.add(observer);
+
+        if(dispatcher != null) {
+            dispatcher.subscribe(observer);
+        }
+    }
+
+    // The observer only gets the newest data, at most once per interval (see ConflatingObserver)
+    // If interval is 0, it gets the newest data as soon as the previous Update() has returned
+    // The returned ConflatingObserver has the counts of the received and delivered data
+    public ConflatingObserver Attach(Observer observer, long interval, TimeUnit unit) {
+        ConflatingObserver conflatingObserver = new ConflatingObserver(observer, interval, unit);
+        Attach(conflatingObserver);
+        return conflatingObserver;
+    }
+
+    public synchronized void Detach(Observer observer) {
+        for(Observer attached : this.observers) {
+            // An observer that is attached with an interval is found by the observer it wraps
+            if(attached != observer && !(attached instanceof ConflatingObserver
+                    && ((ConflatingObserver) attached).getObserver() == observer)) {
+                continue;
+            }
+
+            this.observers.remove(attached);
+            if(attached instanceof ConflatingObserver) {
+                ((ConflatingObserver) attached).cancel();
+            }
+            if(dispatcher != null) {
+                dispatcher.unsubscribe(attached);
+            }
+        }
+    }
+
+    protected boolean hasObservers() {
+        return !this.observers.isEmpty();
+    }
+
+    // With asynchronous dispatch the measured time is the time of publishing, not of the updates
+    public void Notify() {
+        long start = OperationMetrics.ENABLED ? System.nanoTime() : 0;
+
+        AsyncDispatcher asyncDispatcher = this.dispatcher;
+        if(asyncDispatcher != null) {
+            asyncDispatcher.publish(this.data);
+        } else {
+            for(Observer observer : this.observers) {
+                observer.Update(this.data);
+            }
+        }
+
+        OperationMetrics operationMetrics = getMetrics();
+        if(OperationMetrics.ENABLED && operationMetrics != null) {
+            operationMetrics.record(MeteredOperation.NOTIFY, start);
+        }
+    }
+
+    // Notify the observers on their own threads through a ring buffer with the capacity
+    // The policy tells what Notify() does when the slowest observer is capacity events behind
+    public synchronized void enableAsyncDispatch(int capacity, BackpressurePolicy policy) {
+        disableAsyncDispatch();
+
+        AsyncDispatcher asyncDispatcher = new AsyncDispatcher(getName(), capacity, policy);
+        for(Observer observer : this.observers) {
+            asyncDispatcher.subscribe(observer);
+        }
+        this.dispatcher = asyncDispatcher;
+    }
+
+    // Deliver the events that are already published, then notify the observers synchronously again
+    public synchronized void disableAsyncDispatch() {
+        AsyncDispatcher asyncDispatcher = this.dispatcher;
+        if(asyncDispatcher == null) {
+            return;
+        }
+
+        this.dispatcher = null;
+        try {
+            asyncDispatcher.shutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Producer and observer throughput of the asynchronous dispatch, null if it is not enabled
+    public DispatchStats getDispatchStats() {
+        AsyncDispatcher asyncDispatcher = this.dispatcher;
+        return (asyncDispatcher == null) ? null : asyncDispatcher.getStats();
+    }
+
+    public String getData() {
+        return data;
+    }
+
+    abstract public void setData(String data);
+}
+
+// ConcreteSubject (Observer Pattern)
+// Concrete Class 3 (Template Method)
+// After bind() it also receives datagrams from a socket, see DatagramReceiver
+class NetworkPort extends IODevice {
+
+    private static final int SLOT_SIZE = 2_048; // longest datagram, longer ones are truncated
+    private static final int SLOT_COUNT = 64; // datagrams that are received in one batch
+
+    private final CopyOnWriteArrayList<ByteBufferObserver> bufferObservers;
+    private DatagramReceiver receiver; // null while the port is not bound
+    // Taken by setData() and the receiver thread while they change the data and notify the observers,
+    // so Notify() gives the data that is set by the same thread
+    private final Object dataLock;
+
+    public NetworkPort() {
+        this.bufferObservers = new CopyOnWriteArrayList<>();
+        this.dataLock = new Object();
+    }
+
+    public void AttachBufferObserver(ByteBufferObserver observer) {
+        this.bufferObservers.add(observer);
+    }
+
+    public void DetachBufferObserver(ByteBufferObserver observer) {
+        this.bufferObservers.remove(observer);
+    }
+
+    // Receive the datagrams that are sent to the address, e.g. new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)
+    // Return the bound address, its port is chosen by the system if the port of the address is 0
+    public synchronized InetSocketAddress bind(InetSocketAddress address) throws IOException {
+        if(receiver != null) {
+            throw new IOException("Network Port is already bound to " + receiver.getLocalAddress());
+        }
+
+        receiver = new DatagramReceiver(this, address, SLOT_SIZE, SLOT_COUNT);
+        receiver.start();
+        return receiver.getLocalAddress();
+    }
+
+    public synchronized void close() throws IOException {
+        if(receiver != null) {
+            receiver.close();
+            receiver = null;
+        }
+    }
+
+    // Called by the DatagramReceiver for each datagram
+    // The ByteBufferObservers get the pooled buffer itself, the observers get the data as a String,
+    // so the String is only created if there are observers
+    void receive(ByteBuffer payload) {
+        int limit = payload.limit();
+
+        for(ByteBufferObserver observer : this.bufferObservers) {
+            payload.limit(limit).position(0);
+            observer.Update(payload);
+        }
+
+        if(hasObservers()) {
+            payload.limit(limit).position(0);
+            String text = StandardCharsets.UTF_8.decode(payload).toString();
+
+            synchronized (dataLock) {
+                super.data = text;
+                Notify();
+            }
+        }
+    }
+
+    // Override the reset() method for reset NetworkPort
+    @Override
+    public void reset() {
+        getOutput().println("The data in network port: {}", super.data);
+    }
+
+    // When the object's state is changed, call Notify() to notify observers
+    @Override
+    public void setData(String data) {
+        OutputSink output = getOutput();
+
+        synchronized (dataLock) {
+            output.println("Network Port Data (old): {}", super.data);
+            super.data = data;
+            output.println("Network Port Data (new): {}", super.data);
+            Notify();
+        }
+    }
+}
+
+// Observer
+interface Observer {
+    void Update(String newData);
+}
+
+// Observer of the datagrams of a NetworkPort
+// The buffer is reused for the next datagrams, so it is only valid until Update() returns
+// and it must be copied if the data is needed later
+interface ByteBufferObserver {
+    void Update(ByteBuffer payload);
+}
+
+// ConcreteObserver
+// Every attached application is updated with the new data, but the data is consumed
+// by only one application of a ConsumerGroup
+class Application implements Observer {
+
+    private String name; // name of the Application
+    private volatile String data; // observerState
+    private final OutputSink output;
+
+    public Application(String name) {
+        this(name, SystemOutputSink.getInstance());
+    }
+
+    // Print the updates to the output, e.g. the output of the OperatingSystem
+    public Application(String name, OutputSink output) {
+        this.name = name;
+        this.output = output;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    @Override
+    public void Update(String newData) {
+        this.data = newData;
+        output.println("{}'s data is updated: {}", this.name, newData);
+    }
+
+    // Called by the ConsumerGroup for the data that is claimed by this application
+    public void Consume(String data) {
+        output.println("(Consumed {} from {})", data, this.name);
+    }
+}
\ No newline at end of file
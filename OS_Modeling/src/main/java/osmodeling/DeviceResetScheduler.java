@@ -0,0 +1,221 @@
+package osmodeling;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Resets the devices of an OperatingSystem in parallel in the order of their dependencies
+// A device is reset after all devices it depends on (Device.getResetDependencies()) are reset,
+// the devices that do not depend on each other are reset at the same time on virtual threads
+// A device that does not finish in its timeout is reported as timed out, and the devices that depend on it
+// are skipped because it may still be running, so one stuck device does not stop the shutdown
+public class DeviceResetScheduler {
+
+    private DeviceResetScheduler() {}
+
+    // Throw IllegalArgumentException if the dependencies have a cycle
+    public static ResetReport reset(List<Device> devices) {
+        int[][] dependencies = findDependencies(devices);
+        int[] order = sort(dependencies);
+
+        ExecutorService executor = VirtualThreads.newExecutor("reset");
+        long start = System.nanoTime();
+
+        try {
+            List<CompletableFuture<DeviceResetResult>> results = new ArrayList<>(Collections.nCopies(devices.size(), null));
+
+            // The devices are started in the sorted order, so the futures of the dependencies already exist
+            for(int device : order) {
+                List<CompletableFuture<DeviceResetResult>> before = new ArrayList<>();
+                for(int dependency : dependencies[device]) {
+                    before.add(results.get(dependency));
+                }
+
+                results.set(device, CompletableFuture.allOf(before.toArray(new CompletableFuture<?>[0]))
+                        .thenCompose(ignored -> resetAfter(devices.get(device), before, executor, start)));
+            }
+
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+
+            ArrayList<DeviceResetResult> deviceResults = new ArrayList<>();
+            for(CompletableFuture<DeviceResetResult> result : results) {
+                deviceResults.add(result.join());
+            }
+            return new ResetReport(deviceResults, System.nanoTime() - start);
+        } finally {
+            executor.shutdown(); // the threads of the devices that are timed out are not waited for
+        }
+    }
+
+    // Skip the device if one of its dependencies did not finish its reset, it may still be running
+    private static CompletableFuture<DeviceResetResult> resetAfter(Device device,
+            List<CompletableFuture<DeviceResetResult>> before, ExecutorService executor, long start) {
+        for(CompletableFuture<DeviceResetResult> dependency : before) {
+            DeviceResetResult result = dependency.join(); // already completed
+            if(!result.isFinished()) {
+                return CompletableFuture.completedFuture(new DeviceResetResult(device.getName(),
+                        "SKIPPED: " + result.getDeviceName() + " is not reset", System.nanoTime() - start, 0));
+            }
+        }
+        return resetDevice(device, executor, start);
+    }
+
+    // The returned future always completes normally, a failure or a timeout is kept in the result
+    private static CompletableFuture<DeviceResetResult> resetDevice(Device device, ExecutorService executor, long start) {
+        long deviceStart = System.nanoTime();
+
+        return CompletableFuture.runAsync(device::resetDevice, executor)
+                .orTimeout(device.getResetTimeout(), TimeUnit.MILLISECONDS)
+                .handle((ignored, e) -> {
+                    long end = System.nanoTime();
+                    Throwable cause = (e instanceof CompletionException) ? e.getCause() : e;
+
+                    String status;
+                    if(cause == null) {
+                        status = "OK";
+                    } else if(cause instanceof TimeoutException) {
+                        status = "TIMED OUT";
+                    } else {
+                        status = "FAILED: " + cause;
+                    }
+                    return new DeviceResetResult(device.getName(), status, deviceStart - start, end - deviceStart);
+                });
+    }
+
+    // The indexes of the devices each device depends on
+    private static int[][] findDependencies(List<Device> devices) {
+        int[][] dependencies = new int[devices.size()][];
+
+        for(int i=0; i<devices.size(); i++) {
+            ArrayList<Integer> before = new ArrayList<>();
+
+            for(Class<? extends Device> type : devices.get(i).getResetDependencies()) {
+                for(int j=0; j<devices.size(); j++) {
+                    if(j != i && type.isInstance(devices.get(j)) && !before.contains(j)) {
+                        before.add(j);
+                    }
+                }
+            }
+
+            dependencies[i] = before.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return dependencies;
+    }
+
+    // Sort the devices so each device comes after its dependencies (Kahn's algorithm)
+    private static int[] sort(int[][] dependencies) {
+        int count = dependencies.length;
+        int[] remaining = new int[count]; // number of dependencies that are not sorted yet
+        ArrayList<ArrayList<Integer>> dependents = new ArrayList<>();
+
+        for(int i=0; i<count; i++) {
+            dependents.add(new ArrayList<>());
+        }
+        for(int i=0; i<count; i++) {
+            remaining[i] = dependencies[i].length;
+            for(int dependency : dependencies[i]) {
+                dependents.get(dependency).add(i);
+            }
+        }
+
+        ArrayDeque<Integer> ready = new ArrayDeque<>();
+        for(int i=0; i<count; i++) {
+            if(remaining[i] == 0) {
+                ready.add(i);
+            }
+        }
+
+        int[] order = new int[count];
+        int size = 0;
+
+        while(!ready.isEmpty()) {
+            int device = ready.poll();
+            order[size++] = device;
+
+            for(int dependent : dependents.get(device)) {
+                if(--remaining[dependent] == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if(size < count) {
+            throw new IllegalArgumentException("Reset dependencies of the devices have a cycle");
+        }
+        return order;
+    }
+}
+
+// The reset of one device, the times are in nanoseconds
+class DeviceResetResult {
+    private final String deviceName;
+    private final String status; // "OK", "TIMED OUT", "FAILED: " and the exception, or "SKIPPED: " and the dependency
+    private final long startOffset; // time from the start of the whole reset to the start of this device
+    private final long duration;
+
+    DeviceResetResult(String deviceName, String status, long startOffset, long duration) {
+        this.deviceName = deviceName;
+        this.status = status;
+        this.startOffset = startOffset;
+        this.duration = duration;
+    }
+
+    public String getDeviceName() {
+        return deviceName;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public long getStartOffset() {
+        return startOffset;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    // False if the reset of the device timed out or was skipped, its dependents are skipped then
+    public boolean isFinished() {
+        return status.equals("OK") || status.startsWith("FAILED");
+    }
+}
+
+// How long each device took to reset
+class ResetReport {
+    private final List<DeviceResetResult> results;
+    private final long totalDuration; // wall time of the whole reset in nanoseconds
+
+    ResetReport(List<DeviceResetResult> results, long totalDuration) {
+        this.results = results;
+        this.totalDuration = totalDuration;
+    }
+
+    public List<DeviceResetResult> getResults() {
+        return results;
+    }
+
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-20s %12s %12s  %s%n", "Device", "start (ms)", "took (ms)", "status"));
+
+        for(DeviceResetResult result : results) {
+            report.append(String.format("%-20s %12.3f %12.3f  %s%n", result.getDeviceName(),
+                    result.getStartOffset() / 1e6, result.getDuration() / 1e6, result.getStatus()));
+        }
+        report.append(String.format("%-20s %12s %12.3f", "Total", "", totalDuration / 1e6));
+        return report.toString();
+    }
+}
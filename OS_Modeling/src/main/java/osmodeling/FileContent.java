@@ -0,0 +1,230 @@
+package osmodeling;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+// The content of a File, stored as UTF-8 bytes
+// Large contents are copied to a direct (off-heap) buffer, so they do not fill the heap
+// The String of the content is decoded only when it is asked for
+// A FileContent is never changed after it is created, a new one is created for each write
+//
+// Appending does not copy the existing bytes, it creates a new FileContent that points to the
+// previous one and holds only the appended chunk (a rope). The chunks are joined into one buffer
+// the first time the bytes or the text are read, so an append costs O(length of the appended data)
+public class FileContent {
+
+    static final int OFF_HEAP_THRESHOLD = 1 << 16; // contents with this many bytes or more are stored off-heap
+
+    // The content of setContent(null), getText() returns null for it like a File without a content
+    private static final FileContent NULL = new FileContent(ByteBuffer.allocate(0), null);
+
+    private volatile FileContent previous; // content before the appended chunk, set to null once the chunks are joined
+    private final ByteBuffer chunk; // the appended bytes, or all bytes if the content is not created by append()
+    private final int length; // number of bytes of the whole content
+    private volatile ByteBuffer bytes; // all bytes in one buffer, null until the chunks are joined
+    private volatile String text; // decoded content, only cached for on-heap contents
+    private final boolean mapped; // true if the bytes are a part of a mapped snapshot
+
+    private FileContent(ByteBuffer bytes, String text) {
+        this(bytes, text, false);
+    }
+
+    private FileContent(ByteBuffer bytes, String text, boolean mapped) {
+        this.chunk = bytes;
+        this.length = bytes.remaining();
+        this.bytes = bytes;
+        this.text = text;
+        this.mapped = mapped;
+    }
+
+    private FileContent(FileContent previous, ByteBuffer chunk) {
+        this.previous = previous;
+        this.chunk = chunk;
+        this.length = previous.length + chunk.remaining();
+        this.mapped = false;
+    }
+
+    public static FileContent of(String text) {
+        if(text == null) {
+            return NULL;
+        }
+
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+        if(bytes.length >= OFF_HEAP_THRESHOLD) {
+            return new FileContent(toDirect(bytes), null);
+        }
+        return new FileContent(ByteBuffer.wrap(bytes), text);
+    }
+
+    // The array is used without copying if the content is stored on the heap,
+    // so it must not be changed by the caller after this call
+    public static FileContent of(byte[] bytes) {
+        return of(bytes, 0, bytes.length);
+    }
+
+    // Use length bytes of the array from offset, e.g. a part of a shared encoding buffer
+    public static FileContent of(byte[] bytes, int offset, int length) {
+        if(length >= OFF_HEAP_THRESHOLD) {
+            return new FileContent(toDirect(bytes, offset, length), null);
+        }
+        return new FileContent(ByteBuffer.wrap(bytes, offset, length).slice(), null);
+    }
+
+    // Use the buffer without copying, e.g. a part of a memory-mapped snapshot
+    // The bytes of the buffer must not be changed after this call
+    public static FileContent of(ByteBuffer bytes) {
+        return new FileContent(bytes.slice(), null);
+    }
+
+    // Use a part of a mapped snapshot without copying it, see FileSystemSnapshot
+    // source is the LazyDirectory that reads the file, null if the file is not read by a LazyDirectory
+    static FileContent mapped(ByteBuffer bytes, LazyDirectory source) {
+        if(source == null) {
+            return new FileContent(bytes.slice(), null, true);
+        }
+        return new LazyContent(bytes.slice(), source);
+    }
+
+    boolean isMapped() {
+        return mapped;
+    }
+
+    // Check whether it is the content of setContent(null)
+    boolean isNull() {
+        return this == NULL;
+    }
+
+    // The LazyDirectory that must be told before this content is replaced, see LazyDirectory.beginChange()
+    LazyDirectory getSource() {
+        return null;
+    }
+
+    // The load of the source that has created this content
+    int getGeneration() {
+        return 0;
+    }
+
+    // Return a new content with the bytes added to the end of this one
+    // The array is not copied, so it must not be changed by the caller after this call
+    public FileContent append(byte[] bytes) {
+        if(bytes.length == 0) {
+            return this;
+        }
+        return new FileContent(this, ByteBuffer.wrap(bytes));
+    }
+
+    private static ByteBuffer toDirect(byte[] bytes) {
+        return toDirect(bytes, 0, bytes.length);
+    }
+
+    private static ByteBuffer toDirect(byte[] bytes, int offset, int length) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+        buffer.put(bytes, offset, length);
+        buffer.flip();
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean isOffHeap() {
+        return join().isDirect();
+    }
+
+    // Return a read-only view of the bytes, it does not copy the content
+    public ByteBuffer getBytes() {
+        return join().asReadOnlyBuffer();
+    }
+
+    public String getText() {
+        String text = this.text;
+
+        if(text == null && this != NULL) {
+            ByteBuffer bytes = join();
+
+            if(bytes.hasArray()) {
+                text = new String(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(), StandardCharsets.UTF_8);
+            } else {
+                text = StandardCharsets.UTF_8.decode(bytes.duplicate()).toString();
+            }
+
+            // Do not keep the decoded String of a large content on the heap,
+            // small ones are cached also if their bytes are off-heap, e.g. a part of a mapped snapshot
+            if(length < OFF_HEAP_THRESHOLD) {
+                this.text = text;
+            }
+        }
+        return text;
+    }
+
+    // A part of a mapped snapshot that is read by a LazyDirectory
+    // It remembers the load of the directory, so a file that is evicted with the directory can be found out
+    private static final class LazyContent extends FileContent {
+        private final LazyDirectory source;
+        private final int generation;
+
+        LazyContent(ByteBuffer bytes, LazyDirectory source) {
+            super(bytes, null, true);
+            this.source = source;
+            this.generation = source.getGeneration();
+        }
+
+        @Override
+        LazyDirectory getSource() {
+            return source;
+        }
+
+        @Override
+        int getGeneration() {
+            return generation;
+        }
+    }
+
+    // Return all bytes in one buffer, join the appended chunks on the first call
+    private ByteBuffer join() {
+        ByteBuffer bytes = this.bytes;
+        if(bytes != null) {
+            return bytes;
+        }
+
+        synchronized (this) {
+            if(this.bytes != null) {
+                return this.bytes;
+            }
+
+            // Collect the chunks from the end until a content that is already joined
+            ArrayList<ByteBuffer> chunks = new ArrayList<>();
+            FileContent content = this;
+            ByteBuffer base;
+
+            while(true) {
+                base = content.bytes;
+                if(base != null) {
+                    break;
+                }
+
+                FileContent previous = content.previous;
+                if(previous == null) {
+                    // It is joined by another thread in the meantime, bytes is set before previous is cleared
+                    continue;
+                }
+                chunks.add(content.chunk);
+                content = previous;
+            }
+
+            bytes = (length >= OFF_HEAP_THRESHOLD) ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+            bytes.put(base.duplicate());
+            for(int i=chunks.size()-1; i>=0; i--) {
+                bytes.put(chunks.get(i).duplicate());
+            }
+            bytes.flip();
+
+            this.bytes = bytes;
+            this.previous = null; // let the previous chunks be garbage collected
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,922 @@
+package osmodeling;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// The name suffixes of the files and the directories of each type
+enum FileElementType {
+    LINUX(".lnx", ".lnxd"),
+    BSD(".bsd", ".bsdir"),
+    NT(".nt", ".ntdir");
+
+    private final String fileSuffix;
+    private final String directorySuffix;
+
+    FileElementType(String fileSuffix, String directorySuffix) {
+        this.fileSuffix = fileSuffix;
+        this.directorySuffix = directorySuffix;
+    }
+
+    public String getFileSuffix() {
+        return fileSuffix;
+    }
+
+    public String getDirectorySuffix() {
+        return directorySuffix;
+    }
+}
+
+// The exception for checking the type of the file when a
+// directory is trying to add a file that types are not matched
+class InvalidFileElementType extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public InvalidFileElementType() {
+        super("File type and FileSystem type is not matching..!");
+    }
+}
+
+// Component in Composite Pattern
+abstract public class FileElement {
+
+    private static final AtomicReferenceFieldUpdater<FileElement, Object> OWNER =
+            AtomicReferenceFieldUpdater.newUpdater(FileElement.class, Object.class, "owner");
+
+    private final FileElementType type;
+    // The name without the suffix of the type, e.g. "File1" for "File1.lnx"
+    // It is interned, so the many elements with the same name (e.g. in each directory) share one String
+    protected String name;
+    private final boolean suffixed; // true if the full name is the name with the suffix of the type
+    // The Directory that contains this element, or the FileSystem for the elements at the top of a file system
+    // It is one field, so a directory and a file system cannot both claim the element at the same time
+    private volatile Object owner;
+    private int position; // index of this element in the fileElements of the parent, guarded by the lock of the parent
+
+    // If isBaseName is false, the name is the full name and the suffix is removed from it if it has one,
+    // otherwise the name is given without the suffix (e.g. by the factories) and the suffix is added to it
+    FileElement(FileElementType type, String name, String suffix, boolean isBaseName) {
+        this.type = type;
+
+        if(isBaseName) {
+            this.name = name.intern();
+            this.suffixed = true;
+        } else if(name.endsWith(suffix)) {
+            this.name = name.substring(0, name.length() - suffix.length()).intern();
+            this.suffixed = true;
+        } else {
+            this.name = name.intern();
+            this.suffixed = false;
+        }
+    }
+
+    public FileElementType getType() {
+        return type;
+    }
+
+    // Return the full name, e.g. "File1.lnx"
+    // It is created from the base name and the suffix, use hasName() to compare it without creating it
+    public String getName() {
+        return suffixed ? name.concat(getSuffix()) : name;
+    }
+
+    // Return the name without the suffix of the type, e.g. "File1" for "File1.lnx"
+    // It is the name that is given to the factory, e.g. when the element is created again from a snapshot
+    public String getBaseName() {
+        return name;
+    }
+
+    // Check whether the full name of this element is the given name, without creating the full name
+    public boolean hasName(String name) {
+        if(!suffixed) {
+            return this.name.equals(name);
+        }
+        String suffix = getSuffix();
+        return name.length() == this.name.length() + suffix.length()
+                && name.startsWith(this.name) && name.endsWith(suffix);
+    }
+
+    // Check whether the full name is the base name with the suffix of the type
+    boolean hasSuffix() {
+        return suffixed;
+    }
+
+    // Suffix of the name, it depends on the type and whether the element is a file or a directory
+    protected abstract String getSuffix();
+
+    public Directory getParent() {
+        Object owner = this.owner;
+        return (owner instanceof Directory) ? (Directory) owner : null;
+    }
+
+    // Called by the parent directory when this element is added to it
+    // Only one directory or file system can claim the element, so it fails if the element is already in one
+    boolean attach(Directory parent, int position) {
+        if(!OWNER.compareAndSet(this, null, parent)) {
+            return false;
+        }
+        this.position = position;
+        return true;
+    }
+
+    // Called by the file system when this element is added to its top level
+    boolean attach(FileSystem fileSystem) {
+        return OWNER.compareAndSet(this, null, fileSystem);
+    }
+
+    // Called by the parent directory or the file system when this element is removed from it
+    void detach() {
+        this.owner = null;
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    // The file system that contains this element, only set for the top level elements
+    FileSystem getFileSystem() {
+        Object owner = this.owner;
+        return (owner instanceof FileSystem) ? (FileSystem) owner : null;
+    }
+
+    // Return the path of this element from the top of its tree, e.g. "Directory1.lnxd/Directory2.lnxd/File2.lnx"
+    // It is the path that FileSystem.resolve() finds the element by
+    String getPath() {
+        ArrayDeque<String> names = new ArrayDeque<>();
+        for(FileElement element = this; element != null; element = element.getParent()) {
+            names.push(element.getName());
+        }
+        return String.join("/", names);
+    }
+
+    // Return the name index of the file system that contains this element, null if it is not in a file system
+    FileNameIndex getFileNameIndex() {
+        FileSystem fileSystem = getRoot().getFileSystem();
+        return (fileSystem == null) ? null : fileSystem.getFileNameIndex();
+    }
+
+    // Return the output of the file system that contains this element, System.out if it is not in a file system
+    OutputSink getOutput() {
+        FileSystem fileSystem = getRoot().getFileSystem();
+        return (fileSystem == null) ? SystemOutputSink.getInstance() : fileSystem.getOutput();
+    }
+
+    // The top level element above this element, or this element if it is at the top
+    private FileElement getRoot() {
+        FileElement root = this;
+        while(root.getParent() != null) {
+            root = root.getParent();
+        }
+        return root;
+    }
+
+    void setPosition(int position) {
+        this.position = position;
+    }
+
+    // Composite Pattern Methods
+    public abstract void Display(int indent); // indent value for extra blanks to print a tree structure
+    public abstract void Add(FileElement fileElement) throws InvalidFileElementType;
+    public abstract boolean Remove(FileElement fileElement);
+    public abstract FileElement GetChild(int index);
+    public abstract FileElement GetChild(String name);
+}
+
+// Leaf in Composite Pattern
+// Product 1 in Abstract Factory
+abstract class File extends FileElement {
+
+    private static final FileContent DEFAULT_CONTENT = FileContent.of("-");
+    private static final AtomicReferenceFieldUpdater<File, FileContent> CONTENT =
+            AtomicReferenceFieldUpdater.newUpdater(File.class, FileContent.class, "content");
+
+    private volatile FileContent content; // volatile to publish the content safely to other threads
+
+    public File(FileElementType type, String name) {
+        this(type, name, false);
+    }
+
+    File(FileElementType type, String name, boolean isBaseName) {
+        super(type, name, type.getFileSuffix(), isBaseName);
+        this.content = DEFAULT_CONTENT;
+    }
+
+    @Override
+    public void Display(int indent) {
+        FileElementRenderer.display(this, indent);
+    }
+
+    @Override
+    public void Add(FileElement fileElement) {
+        // Empty
+    }
+
+    @Override
+    public boolean Remove(FileElement fileElement) {
+        // Empty
+        return false;
+    }
+
+    @Override
+    public FileElement GetChild(int index) {
+        return null;
+    }
+
+    @Override
+    public FileElement GetChild(String name) {
+        return null;
+    }
+
+    @Override
+    protected String getSuffix() {
+        return getType().getFileSuffix();
+    }
+
+    // The content is decoded from its bytes only when it is asked for as a String
+    public String getContent() {
+        return content.getText();
+    }
+
+    public void setContent(String content) {
+        write(FileContent.of(content));
+    }
+
+    // Store the UTF-8 bytes as the content without decoding them
+    // The array must not be changed by the caller after this call
+    public void setContent(byte[] content) {
+        write(FileContent.of(content));
+    }
+
+    // Store length bytes of the array from offset as the content
+    // The array must not be changed by the caller after this call
+    public void setContent(byte[] content, int offset, int length) {
+        write(FileContent.of(content, offset, length));
+    }
+
+    // Store the bytes of the buffer as the content without copying them
+    // The bytes of the buffer must not be changed after this call
+    public void setContent(ByteBuffer content) {
+        write(FileContent.of(content));
+    }
+
+    // Replace the content
+    // If the content is still the one read by a LazyDirectory, the directory is told first, so it is not evicted
+    // while the content is changed (see LazyDirectory.beginChange())
+    private void write(FileContent content) {
+        FileContent current = this.content;
+        LazyDirectory source = current.getSource();
+
+        if(source == null) {
+            this.content = content;
+            return;
+        }
+
+        source.beginChange(current.getGeneration());
+        try {
+            this.content = content;
+        } finally {
+            source.endChange();
+        }
+    }
+
+    // Use a part of a mapped snapshot as the content, see FileSystemSnapshot
+    // source is the LazyDirectory that reads this file, null if it is not read by a LazyDirectory
+    void setMappedContent(ByteBuffer content, LazyDirectory source) {
+        this.content = FileContent.mapped(content, source);
+    }
+
+    // Check whether the content is still the one that is read from a snapshot
+    boolean hasMappedContent() {
+        return content.isMapped();
+    }
+
+    // Add the text to the end of the content without copying the existing content
+    public void appendContent(String content) {
+        appendContent(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Add the UTF-8 bytes to the end of the content without copying the existing content
+    // The array must not be changed by the caller after this call
+    public void appendContent(byte[] content) {
+        while(true) {
+            FileContent current = this.content;
+            LazyDirectory source = current.getSource();
+
+            if(source == null) {
+                if(CONTENT.compareAndSet(this, current, current.append(content))) {
+                    return;
+                }
+                continue;
+            }
+
+            source.beginChange(current.getGeneration());
+            try {
+                if(CONTENT.compareAndSet(this, current, current.append(content))) {
+                    return;
+                }
+            } finally {
+                source.endChange();
+            }
+        }
+    }
+
+    // The content is never changed after it is created, so it can be kept to read or restore it later
+    FileContent getFileContent() {
+        return content;
+    }
+
+    // Put back a content that is returned by getFileContent(), e.g. to undo a change
+    void restoreContent(FileContent content) {
+        write(content);
+    }
+
+    // Return a read-only view of the UTF-8 bytes of the content
+    public ByteBuffer getContentBytes() {
+        return content.getBytes();
+    }
+
+    public int getContentLength() {
+        return content.length();
+    }
+}
+
+// Subclasses of File
+class LinuxFile extends File {
+    public LinuxFile(String name) {
+        super(FileElementType.LINUX, name);
+    }
+
+    LinuxFile(String name, boolean isBaseName) {
+        super(FileElementType.LINUX, name, isBaseName);
+    }
+}
+
+class BSDFile extends File {
+    public BSDFile(String name) {
+        super(FileElementType.BSD, name);
+    }
+
+    BSDFile(String name, boolean isBaseName) {
+        super(FileElementType.BSD, name, isBaseName);
+    }
+}
+
+class NTFile extends File {
+    public NTFile(String name) {
+        super(FileElementType.NT, name);
+    }
+
+    NTFile(String name, boolean isBaseName) {
+        super(FileElementType.NT, name, isBaseName);
+    }
+}
+
+
+// Composite in Composite Pattern
+// Abstract Class in Template Method()
+// Product 2 in Abstract Factory
+// Each directory has its own lock, so different directories can be changed at the same time
+// GetChild(int), GetChild(String) and getChildren() only take the read lock when the children are changed
+abstract class Directory extends FileElement {
+
+    // Directories with more children than this have a name index for GetChild(String), smaller ones are searched
+    private static final int NAME_INDEX_THRESHOLD = 8;
+
+    private final ArrayList<FileElement> fileElements; // removed elements leave a null slot until the list is compacted
+    private int removedCount; // number of null slots in fileElements
+    // Name index of fileElements, it is created when the directory gets more than NAME_INDEX_THRESHOLD children,
+    // so the many small directories do not have a map. Only changed while holding the write lock
+    private volatile NameIndex fileElementsByName;
+    // Number of children in the name index that are hidden by a later child with the same name
+    // Only while it is not 0, removing an indexed child has to search for another child with its name
+    private int hiddenNameCount;
+    private final ReentrantReadWriteLock lock; // guards fileElements, removedCount and the positions of the children
+    // The children without the removed ones for GetChild(int) and getChildren(), so they can read them without locking
+    // Writers set it to null, it is created again by the next reader while holding the read lock
+    private volatile FileElement[] children;
+
+    public Directory(FileElementType type, String name) {
+        this(type, name, false, true);
+    }
+
+    // isBaseName is false for a full name, see FileElement
+    // If hasStorage is false, the directory does not create its own list and lock
+    // It is used by directories that keep their children somewhere else (e.g. ColumnarDirectory),
+    // they must override all methods that use the children
+    Directory(FileElementType type, String name, boolean isBaseName, boolean hasStorage) {
+        super(type, name, type.getDirectorySuffix(), isBaseName);
+        this.fileElements = hasStorage ? new ArrayList<>() : null;
+        this.lock = hasStorage ? new ReentrantReadWriteLock() : null;
+    }
+
+    // First display the name of itself then
+    // display each fileElement in the list (see FileElementRenderer)
+    @Override
+    public void Display(int indent) {
+        FileElementRenderer.display(this, indent);
+    }
+
+    @Override
+    protected String getSuffix() {
+        return getType().getDirectorySuffix();
+    }
+
+    // Add the new child to the name index, or create the index if the directory has become large enough
+    // It must be called while holding the write lock
+    private void indexName(FileElement fileElement) {
+        NameIndex fileElementsByName = this.fileElementsByName;
+
+        if(fileElementsByName != null) {
+            if(fileElementsByName.put(fileElement) != null) {
+                hiddenNameCount++;
+            }
+        } else if(fileElements.size() - removedCount > NAME_INDEX_THRESHOLD) {
+            fileElementsByName = new NameIndex(getType());
+            for(FileElement child : fileElements) {
+                if(child != null && fileElementsByName.put(child) != null) {
+                    hiddenNameCount++;
+                }
+            }
+            this.fileElementsByName = fileElementsByName; // published after it is filled
+        }
+    }
+
+    // Primitive Operation
+    abstract protected boolean checkType(FileElement fileElement);
+
+    // Called before the children are used
+    // Empty for normal directories, LazyDirectory overrides it to fill the children on first access
+    protected void load() {
+        // Empty
+    }
+
+    // Check whether the children are created, it is false for a LazyDirectory that is not loaded yet
+    public boolean isLoaded() {
+        return true;
+    }
+
+    // Template Method
+    @Override
+    public void Add(FileElement fileElement) throws InvalidFileElementType {
+        long start = OperationMetrics.ENABLED ? System.nanoTime() : 0;
+
+        // First checkType the fileElement by comparing the file element types of the directory and the file
+        boolean isOk = checkType(fileElement);
+
+        // If file element types are not matched, throw InvalidFileElementType()
+        if(!isOk) {
+            throw new InvalidFileElementType();
+        }
+        checkNotAncestor(fileElement);
+
+        load();
+        addChild(fileElement);
+
+        if(OperationMetrics.ENABLED) {
+            OperationMetrics.record(MeteredOperation.DIRECTORY_ADD, getType(), start);
+        }
+    }
+
+    // Add all elements of the batch to the end of the children
+    // The types of the whole batch are checked before anything is added, so either all elements are added
+    // or none of them, and the write lock is taken once for the batch instead of once for each element
+    public void AddAll(FileElement[] fileElements) throws InvalidFileElementType {
+        for(FileElement fileElement : fileElements) {
+            if(!checkType(fileElement)) {
+                throw new InvalidFileElementType();
+            }
+            checkNotAncestor(fileElement);
+        }
+
+        load();
+        addChildren(fileElements);
+    }
+
+    // A directory cannot be added to itself or to one of its sub directories, it would make a cycle
+    // that is not reachable from the top any more, and walking up the parents would never end
+    private void checkNotAncestor(FileElement fileElement) {
+        if(fileElement == this || (fileElement instanceof Directory && ((Directory) fileElement).isAncestorOf(this))) {
+            throw new IllegalArgumentException("Directory cannot be added to itself or to its sub directory: "
+                    + fileElement.getName());
+        }
+    }
+
+    // Add the fileElement to the end of the children without checking its type
+    void addChild(FileElement fileElement) {
+        while(true) {
+            // A file element can be in only one place, so move it if it is already somewhere else
+            unlinkFromOwner(fileElement);
+
+            // If there is no problem with the type of the file,
+            // add the file to fileElements of the directory
+            lock.writeLock().lock();
+            try {
+                // attach() fails if another thread has added the fileElement to a directory in the meantime
+                if(fileElement.attach(this, fileElements.size())) {
+                    fileElements.add(fileElement);
+                    children = null;
+                    indexName(fileElement);
+
+                    // Index the names of the new elements if this directory is in a file system
+                    FileNameIndex fileNameIndex = getFileNameIndex();
+                    if(fileNameIndex != null) {
+                        fileNameIndex.add(fileElement);
+                    }
+                    return;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Add the batch to the end of the children without checking their types
+    void addChildren(FileElement[] batch) {
+        for(FileElement fileElement : batch) {
+            unlinkFromOwner(fileElement);
+        }
+
+        ArrayList<FileElement> moved = null; // elements that are added to a directory by another thread in the meantime
+
+        lock.writeLock().lock();
+        try {
+            FileNameIndex fileNameIndex = getFileNameIndex();
+            fileElements.ensureCapacity(fileElements.size() + batch.length);
+            children = null;
+
+            for(FileElement fileElement : batch) {
+                if(fileElement.attach(this, fileElements.size())) {
+                    fileElements.add(fileElement);
+                    indexName(fileElement);
+
+                    if(fileNameIndex != null) {
+                        fileNameIndex.add(fileElement);
+                    }
+                } else {
+                    if(moved == null) {
+                        moved = new ArrayList<>();
+                    }
+                    moved.add(fileElement);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Add them one by one, addChild() moves them from their new directory
+        if(moved != null) {
+            for(FileElement fileElement : moved) {
+                addChild(fileElement);
+            }
+        }
+    }
+
+    // Take the fileElement out of its directory, or out of the top of its file system if it has no directory
+    private static void unlinkFromOwner(FileElement fileElement) {
+        Directory oldParent = fileElement.getParent();
+        if(oldParent != null) {
+            oldParent.unlink(fileElement);
+            return;
+        }
+
+        FileSystem fileSystem = fileElement.getFileSystem();
+        if(fileSystem != null) {
+            fileSystem.Remove(fileElement);
+        }
+    }
+
+    // If fileElement is in this directory or in one of its sub directories, remove it from its parent
+    // The parent is found by following the parent pointers, so no directory is searched
+    // If its deleted return true
+    @Override
+    public boolean Remove(FileElement fileElement) {
+        long start = OperationMetrics.ENABLED ? System.nanoTime() : 0;
+        boolean removed = false;
+
+        while(!removed && isAncestorOf(fileElement)) {
+            Directory parent = fileElement.getParent();
+
+            // unlink() fails if another thread has moved the fileElement in the meantime, then check it again
+            removed = parent != null && parent.unlink(fileElement);
+        }
+
+        if(OperationMetrics.ENABLED) {
+            OperationMetrics.record(MeteredOperation.DIRECTORY_REMOVE, getType(), start);
+        }
+        return removed;
+    }
+
+    // Check whether the fileElement is somewhere under this directory by walking up from it
+    boolean isAncestorOf(FileElement fileElement) {
+        for(Directory directory = fileElement.getParent(); directory != null; directory = directory.getParent()) {
+            if(directory == this) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Remove a direct child of this directory by clearing its slot
+    // The list is compacted when more than half of it is empty, so removing is O(1) amortized
+    // Return false if the fileElement is not a child of this directory
+    boolean unlink(FileElement fileElement) {
+        lock.writeLock().lock();
+        try {
+            if(fileElement.getParent() != this) {
+                return false;
+            }
+
+            fileElements.set(fileElement.getPosition(), null);
+            removedCount++;
+            children = null;
+
+            NameIndex fileElementsByName = this.fileElementsByName;
+            if(fileElementsByName != null) {
+                unindexName(fileElementsByName, fileElement);
+            }
+
+            FileNameIndex fileNameIndex = getFileNameIndex();
+            if(fileNameIndex != null) {
+                fileNameIndex.remove(fileElement);
+            }
+            fileElement.detach();
+
+            if(removedCount > fileElements.size() / 2) {
+                compact();
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Drop the name of the removed child from the index, its slot must already be cleared
+    // If it is the indexed one, the last added child with the same name takes its place
+    // It must be called while holding the write lock
+    private void unindexName(NameIndex fileElementsByName, FileElement fileElement) {
+        if(!fileElementsByName.remove(fileElement)) {
+            // Another child with the name is indexed, so the removed one is hidden by it
+            if(fileElementsByName.containsName(fileElement)) {
+                hiddenNameCount--;
+            }
+            return;
+        }
+        if(hiddenNameCount == 0) {
+            return;
+        }
+
+        for(int i=fileElements.size()-1; i>=0; i--) {
+            FileElement child = fileElements.get(i);
+
+            if(child != null && fileElementsByName.haveSameName(child, fileElement)) {
+                fileElementsByName.put(child);
+                hiddenNameCount--;
+                return;
+            }
+        }
+    }
+
+    // Move the remaining elements to the front of the list by keeping their order
+    // It must be called while holding the write lock
+    private void compact() {
+        int size = 0;
+
+        for(int i=0; i<fileElements.size(); i++) {
+            FileElement fileElement = fileElements.get(i);
+
+            if(fileElement != null) {
+                fileElement.setPosition(size);
+                fileElements.set(size++, fileElement);
+            }
+        }
+
+        fileElements.subList(size, fileElements.size()).clear();
+        removedCount = 0;
+    }
+
+    // Return a snapshot of the fileElements of this directory in their order, without the removed ones
+    // The snapshot is not changed by later Add() or Remove() calls, it is shared, so it must not be changed by the caller
+    FileElement[] getChildren() {
+        load();
+
+        FileElement[] children = this.children;
+        if(children != null) {
+            return children;
+        }
+
+        lock.readLock().lock();
+        try {
+            return createChildren();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Create the snapshot of the children and publish it for the other readers
+    // It must be called while holding the read lock, so no writer can change the list before it is published
+    private FileElement[] createChildren() {
+        FileElement[] children = this.children;
+        if(children != null) {
+            return children;
+        }
+
+        children = new FileElement[fileElements.size() - removedCount];
+        int size = 0;
+
+        for(FileElement fileElement : fileElements) {
+            if(fileElement != null) {
+                children[size++] = fileElement;
+            }
+        }
+
+        this.children = children;
+        return children;
+    }
+
+    // Remove all children, e.g. when a LazyDirectory is evicted
+    void clearChildren() {
+        lock.writeLock().lock();
+        try {
+            FileNameIndex fileNameIndex = getFileNameIndex();
+
+            for(FileElement fileElement : fileElements) {
+                if(fileElement != null) {
+                    if(fileNameIndex != null) {
+                        fileNameIndex.remove(fileElement);
+                    }
+                    fileElement.detach();
+                }
+            }
+            fileElements.clear();
+            children = null;
+            fileElementsByName = null;
+            hiddenNameCount = 0;
+            removedCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Lock free if the children are not changed since the last read, the list is only compacted by the writers
+    @Override
+    public FileElement GetChild(int index) {
+        load();
+
+        FileElement[] children = this.children;
+        if(children != null) {
+            return children[index];
+        }
+
+        lock.readLock().lock();
+        try {
+            // Without removed elements the index is the index in the list, so there is no need for a snapshot
+            if(removedCount == 0) {
+                return this.fileElements.get(index);
+            }
+            // Indexes are counted without the removed elements
+            return createChildren()[index];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Find the fileElement by its name (e.g. "File1.lnx"), large directories use the name index
+    // If more than one element has the same name, the last added one is returned
+    @Override
+    public FileElement GetChild(String name) {
+        load();
+
+        NameIndex fileElementsByName = this.fileElementsByName;
+        if(fileElementsByName != null) {
+            return fileElementsByName.get(name);
+        }
+
+        FileElement[] children = getChildren();
+        for(int i=children.length-1; i>=0; i--) {
+            if(children[i].hasName(name)) {
+                return children[i];
+            }
+        }
+        return null;
+    }
+
+    // Name index of the children of a large directory
+    // The children are found by their base names, so the index does not create the full names of the children
+    // A file and a directory can have the same base name, so the files, the directories and the names without
+    // a suffix of the type (e.g. "File1" given to the constructor) are kept in different maps
+    private static final class NameIndex {
+        private final String fileSuffix;
+        private final String directorySuffix;
+        private final ConcurrentHashMap<String, FileElement> files = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, FileElement> directories = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, FileElement> others = new ConcurrentHashMap<>();
+
+        NameIndex(FileElementType type) {
+            this.fileSuffix = type.getFileSuffix();
+            this.directorySuffix = type.getDirectorySuffix();
+        }
+
+        FileElement get(String name) {
+            return mapOf(name).get(keyOf(name));
+        }
+
+        // Return the child with the same name that is hidden by the given one, or null
+        FileElement put(FileElement fileElement) {
+            return mapOf(fileElement).put(keyOf(fileElement), fileElement);
+        }
+
+        boolean remove(FileElement fileElement) {
+            return mapOf(fileElement).remove(keyOf(fileElement), fileElement);
+        }
+
+        boolean containsName(FileElement fileElement) {
+            return mapOf(fileElement).containsKey(keyOf(fileElement));
+        }
+
+        boolean haveSameName(FileElement fileElement1, FileElement fileElement2) {
+            return mapOf(fileElement1) == mapOf(fileElement2) && keyOf(fileElement1).equals(keyOf(fileElement2));
+        }
+
+        // A full name is found in the map of its suffix, the directory suffix is checked first,
+        // so the same full name always gives the same map and key
+        private ConcurrentHashMap<String, FileElement> mapOf(String name) {
+            if(name.endsWith(directorySuffix)) {
+                return directories;
+            }
+            return name.endsWith(fileSuffix) ? files : others;
+        }
+
+        private String keyOf(String name) {
+            if(name.endsWith(directorySuffix)) {
+                return name.substring(0, name.length() - directorySuffix.length());
+            }
+            return name.endsWith(fileSuffix) ? name.substring(0, name.length() - fileSuffix.length()) : name;
+        }
+
+        // Only a child whose name is given without the suffix has to look at its name
+        private ConcurrentHashMap<String, FileElement> mapOf(FileElement fileElement) {
+            if(fileElement.hasSuffix()) {
+                return (fileElement instanceof Directory) ? directories : files;
+            }
+            return mapOf(fileElement.getBaseName());
+        }
+
+        private String keyOf(FileElement fileElement) {
+            return fileElement.hasSuffix() ? fileElement.getBaseName() : keyOf(fileElement.getBaseName());
+        }
+    }
+}
+
+// Subclasses of Directory
+class LinuxDirectory extends Directory {
+    public LinuxDirectory(String name) {
+        super(FileElementType.LINUX, name);
+    }
+
+    LinuxDirectory(String name, boolean isBaseName) {
+        super(FileElementType.LINUX, name, isBaseName, true);
+    }
+
+    // Override the checkType() method to check the fileElement's type is Linux type or not
+    @Override
+    protected boolean checkType(FileElement fileElement) {
+        return fileElement.getType() == FileElementType.LINUX;
+    }
+}
+
+class BSDDirectory extends Directory {
+    public BSDDirectory(String name) {
+        super(FileElementType.BSD, name);
+    }
+
+    BSDDirectory(String name, boolean isBaseName) {
+        super(FileElementType.BSD, name, isBaseName, true);
+    }
+
+    // Override the checkType() method for check the fileElement's type is BSD type or not
+    @Override
+    protected boolean checkType(FileElement fileElement) {
+        return fileElement.getType() == FileElementType.BSD;
+    }
+}
+
+class NTDirectory extends Directory {
+
+    public NTDirectory(String name) {
+        super(FileElementType.NT, name);
+    }
+
+    NTDirectory(String name, boolean isBaseName) {
+        super(FileElementType.NT, name, isBaseName, true);
+    }
+
+    // Override the checkType() method for check the fileElement's type is NT type or not
+    @Override
+    protected boolean checkType(FileElement fileElement) {
+        return fileElement.getType() == FileElementType.NT;
+    }
+}
\ No newline at end of file
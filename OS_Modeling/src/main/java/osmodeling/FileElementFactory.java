@@ -0,0 +1,151 @@
+package osmodeling;
+
+// Abstract Factory (Abstract Factory Pattern)
+public interface FileElementFactory {
+    File createFile(String name);
+    Directory createDirectory(String name);
+    FileElementType getType(); // type of the created file elements
+
+    // Create a file for each name into files from offset, without a createFile() call for each of them
+    void createFiles(String[] names, File[] files, int offset);
+
+    // Create a directory for each name into directories from offset
+    void createDirectories(String[] names, Directory[] directories, int offset);
+}
+
+// Concrete Factory 1 (Abstract Factory Pattern)
+// It is used to create LinuxFile and create LinuxDirectory
+// Singleton Pattern
+class LinuxFileElementFactory implements FileElementFactory {
+
+    private LinuxFileElementFactory() {}
+
+    // The instance is created when InstanceHolder is first used, the JVM makes sure it is created only once
+    // so getInstance() does not need a lock
+    private static class InstanceHolder {
+        private static final LinuxFileElementFactory INSTANCE = new LinuxFileElementFactory();
+    }
+
+    public static LinuxFileElementFactory getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    @Override
+    public File createFile(String name) {
+        return new LinuxFile(name, true);
+    }
+
+    @Override
+    public Directory createDirectory(String name) {
+        return new LinuxDirectory(name, true);
+    }
+
+    @Override
+    public void createFiles(String[] names, File[] files, int offset) {
+        for(int i=0; i<names.length; i++) {
+            files[offset + i] = new LinuxFile(names[i], true);
+        }
+    }
+
+    @Override
+    public void createDirectories(String[] names, Directory[] directories, int offset) {
+        for(int i=0; i<names.length; i++) {
+            directories[offset + i] = new LinuxDirectory(names[i], true);
+        }
+    }
+
+    @Override
+    public FileElementType getType() {
+        return FileElementType.LINUX;
+    }
+}
+
+// Concrete Factory 2
+// It is used to create BSDFile and create BSDDirectory
+// Singleton Pattern
+class BSDFileElementFactory implements FileElementFactory {
+
+    private BSDFileElementFactory() {}
+
+    private static class InstanceHolder {
+        private static final BSDFileElementFactory INSTANCE = new BSDFileElementFactory();
+    }
+
+    public static BSDFileElementFactory getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    @Override
+    public File createFile(String name) {
+        return new BSDFile(name, true);
+    }
+
+    @Override
+    public Directory createDirectory(String name) {
+        return new BSDDirectory(name, true);
+    }
+
+    @Override
+    public void createFiles(String[] names, File[] files, int offset) {
+        for(int i=0; i<names.length; i++) {
+            files[offset + i] = new BSDFile(names[i], true);
+        }
+    }
+
+    @Override
+    public void createDirectories(String[] names, Directory[] directories, int offset) {
+        for(int i=0; i<names.length; i++) {
+            directories[offset + i] = new BSDDirectory(names[i], true);
+        }
+    }
+
+    @Override
+    public FileElementType getType() {
+        return FileElementType.BSD;
+    }
+}
+
+// Concrete Factory 3
+// It is used to create NTFile and create NTDirectory
+// Singleton Pattern
+class NTFileElementFactory implements FileElementFactory {
+
+    private NTFileElementFactory() {}
+
+    private static class InstanceHolder {
+        private static final NTFileElementFactory INSTANCE = new NTFileElementFactory();
+    }
+
+    public static NTFileElementFactory getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    @Override
+    public File createFile(String name) {
+        return new NTFile(name, true);
+    }
+
+    @Override
+    public Directory createDirectory(String name) {
+        return new NTDirectory(name, true);
+    }
+
+    @Override
+    public void createFiles(String[] names, File[] files, int offset) {
+        for(int i=0; i<names.length; i++) {
+            files[offset + i] = new NTFile(names[i], true);
+        }
+    }
+
+    @Override
+    public void createDirectories(String[] names, Directory[] directories, int offset) {
+        for(int i=0; i<names.length; i++) {
+            directories[offset + i] = new NTDirectory(names[i], true);
+        }
+    }
+
+    @Override
+    public FileElementType getType() {
+        return FileElementType.NT;
+    }
+}
\ No newline at end of file
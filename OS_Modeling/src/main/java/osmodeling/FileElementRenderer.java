@@ -0,0 +1,108 @@
+package osmodeling;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+// Prints a tree of FileElements in the same format as Display()
+// The tree is walked with a stack instead of recursion, so a deep tree does not overflow the call stack
+// The output is written to any Appendable, e.g. a StringBuilder or a buffered Writer
+public class FileElementRenderer {
+
+    private static final String SEPARATOR = "----------------------";
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final Appendable out;
+    private String indents; // the longest indent so far, shorter indents are appended as a prefix of it
+
+    public FileElementRenderer(Appendable out) {
+        this.out = out;
+        this.indents = "--------------------------------";
+    }
+
+    // Print the fileElement and everything under it, starting with the given indent
+    public void render(FileElement root, int indent) throws IOException {
+        ArrayDeque<FileElement> elements = new ArrayDeque<>();
+        IntStack elementIndents = new IntStack();
+
+        elements.push(root);
+        elementIndents.push(indent);
+
+        while(!elements.isEmpty()) {
+            FileElement fileElement = elements.pop();
+            int elementIndent = elementIndents.pop();
+
+            appendIndent(elementIndent);
+
+            if(fileElement instanceof Directory) {
+                out.append("+ ");
+                appendName(fileElement);
+                out.append(LINE_SEPARATOR);
+
+                // Push the children in reverse order, so they are printed in their original order
+                FileElement[] children = ((Directory) fileElement).getChildren();
+                for(int i=children.length-1; i>=0; i--) {
+                    elements.push(children[i]);
+                    elementIndents.push(elementIndent + 2);
+                }
+            } else {
+                out.append("  ");
+                appendName(fileElement);
+                out.append(" content => ").append(((File) fileElement).getContent()).append(LINE_SEPARATOR);
+            }
+        }
+    }
+
+    // Print a top level element of a file system between separator lines
+    public void renderTopLevel(FileElement fileElement) throws IOException {
+        out.append(SEPARATOR).append(LINE_SEPARATOR);
+        render(fileElement, 0);
+        out.append(SEPARATOR).append(LINE_SEPARATOR);
+    }
+
+    // The base name and the suffix are appended one after the other, so the full name is not created
+    private void appendName(FileElement fileElement) throws IOException {
+        out.append(fileElement.getBaseName());
+        if(fileElement.hasSuffix()) {
+            out.append(fileElement.getSuffix());
+        }
+    }
+
+    private void appendIndent(int indent) throws IOException {
+        if(indents.length() < indent) {
+            indents = indents.repeat(indent / indents.length() + 1);
+        }
+        out.append(indents, 0, indent);
+    }
+
+    // Print the fileElement to the output of its file system (see OperatingSystem.setOutput()) with a single print
+    // It is used by Display() of File and Directory
+    static void display(FileElement fileElement, int indent) {
+        StringBuilder text = new StringBuilder();
+
+        try {
+            new FileElementRenderer(text).render(fileElement, indent);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder does not throw it
+        }
+        fileElement.getOutput().print(text);
+    }
+
+    // Growable stack of int values for the indents, so they are not boxed
+    private static class IntStack {
+        private int[] values = new int[16];
+        private int size;
+
+        void push(int value) {
+            if(size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int pop() {
+            return values[--size];
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package osmodeling;
+
+// Visitor for FileSystemTraversal
+// Each worker thread collects into its own result, the results are combined at the end,
+// so visitFile() and visitDirectory() do not need to be thread-safe
+public abstract class FileElementVisitor<R> {
+    public abstract R newResult();
+    public abstract void visitFile(File file, R result);
+    public abstract void visitDirectory(Directory directory, R result);
+    public abstract R combine(R left, R right);
+}
@@ -0,0 +1,255 @@
+package osmodeling;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Sorted index of the names of all elements in a FileSystem, see FileSystem.enableFileNameIndex()
+// It is updated by FileSystem.Add/Remove and Directory.Add/Remove when the element is in the file system,
+// so a search by the beginning or the end of a name does not walk the tree.
+// The names are kept sorted twice: as they are for prefix searches, and reversed for suffix searches.
+// The paths (e.g. "Directory1.lnxd/File1.lnx") are kept sorted too, so the elements under a directory
+// are one range of the paths
+//
+// Directories that are not loaded yet (LazyDirectory) are indexed when they are loaded
+// A search only loads the unloaded directories in its range if the caller asks for it, otherwise their
+// children are not found. The unloaded directories are kept by their paths too, so the ones under
+// a directory are found without looking at the others
+public class FileNameIndex {
+
+    // The values are the FileElement, or a FileElement[] if more than one element has the name or the path
+    // The arrays are never changed, they are replaced, so readers can use them without locking
+    private final ConcurrentHashMap<String, Object> elementsByName;
+    private final ConcurrentSkipListMap<String, Object> elementsByPath;
+    private final ConcurrentSkipListSet<String> names;
+    private final ConcurrentSkipListSet<String> reversedNames;
+    private final ConcurrentSkipListMap<String, Object> unloadedDirectories; // directories that are not loaded yet
+    private final FileSystem fileSystem;
+
+    FileNameIndex(FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+        this.elementsByName = new ConcurrentHashMap<>();
+        this.elementsByPath = new ConcurrentSkipListMap<>();
+        this.names = new ConcurrentSkipListSet<>();
+        this.reversedNames = new ConcurrentSkipListSet<>();
+        this.unloadedDirectories = new ConcurrentSkipListMap<>();
+    }
+
+    // Add the fileElement and everything under it
+    // It must be called after the fileElement is attached to its place, so its path is known
+    void add(FileElement root) {
+        ArrayDeque<FileElement> pending = new ArrayDeque<>();
+        ArrayDeque<String> paths = new ArrayDeque<>();
+        pending.push(root);
+        paths.push(root.getPath());
+
+        while(!pending.isEmpty()) {
+            FileElement fileElement = pending.pop();
+            String path = paths.pop();
+
+            // The sorted sets are changed inside compute(), so they stay consistent with the map for each name
+            elementsByName.compute(fileElement.getName(), (name, elements) -> {
+                if(elements == null) {
+                    names.add(name);
+                    reversedNames.add(reverse(name));
+                }
+                return addElement(elements, fileElement);
+            });
+            elementsByPath.compute(path, (key, elements) -> addElement(elements, fileElement));
+
+            if(fileElement instanceof Directory) {
+                Directory directory = (Directory) fileElement;
+
+                // Do not load a LazyDirectory only to index it
+                if(!directory.isLoaded()) {
+                    unloadedDirectories.compute(path, (key, elements) -> addElement(elements, directory));
+                    continue;
+                }
+                for(FileElement child : directory.getChildren()) {
+                    pending.push(child);
+                    paths.push(path + '/' + child.getName());
+                }
+            }
+        }
+    }
+
+    private static Object addElement(Object elements, FileElement fileElement) {
+        if(elements == null) {
+            return fileElement;
+        }
+        if(elements instanceof FileElement) {
+            return (elements == fileElement) ? elements : new FileElement[]{(FileElement) elements, fileElement};
+        }
+
+        FileElement[] array = (FileElement[]) elements;
+        for(FileElement element : array) {
+            if(element == fileElement) {
+                return elements;
+            }
+        }
+        FileElement[] newArray = Arrays.copyOf(array, array.length + 1);
+        newArray[array.length] = fileElement;
+        return newArray;
+    }
+
+    // Remove the fileElement and everything under it
+    // It must be called before the fileElement is detached from its place, so its path is still known
+    void remove(FileElement root) {
+        ArrayDeque<FileElement> pending = new ArrayDeque<>();
+        ArrayDeque<String> paths = new ArrayDeque<>();
+        pending.push(root);
+        paths.push(root.getPath());
+
+        while(!pending.isEmpty()) {
+            FileElement fileElement = pending.pop();
+            String path = paths.pop();
+
+            elementsByName.computeIfPresent(fileElement.getName(), (name, elements) -> {
+                Object remaining = removeElement(elements, fileElement);
+                if(remaining == null) {
+                    names.remove(name);
+                    reversedNames.remove(reverse(name));
+                }
+                return remaining;
+            });
+            elementsByPath.computeIfPresent(path, (key, elements) -> removeElement(elements, fileElement));
+
+            if(fileElement instanceof Directory) {
+                Directory directory = (Directory) fileElement;
+
+                if(!directory.isLoaded()) {
+                    unloadedDirectories.computeIfPresent(path, (key, elements) -> removeElement(elements, directory));
+                    continue;
+                }
+                for(FileElement child : directory.getChildren()) {
+                    pending.push(child);
+                    paths.push(path + '/' + child.getName());
+                }
+            }
+        }
+    }
+
+    private static Object removeElement(Object elements, FileElement fileElement) {
+        if(elements instanceof FileElement) {
+            return (elements == fileElement) ? null : elements;
+        }
+
+        FileElement[] array = (FileElement[]) elements;
+        ArrayList<FileElement> remaining = new ArrayList<>(Arrays.asList(array));
+        remaining.remove(fileElement);
+        return (remaining.size() == 1) ? remaining.get(0) : remaining.toArray(new FileElement[0]);
+    }
+
+    // Called when a directory in the file system drops its children, e.g. by LazyDirectory.evict()
+    void addUnloaded(Directory directory) {
+        unloadedDirectories.compute(directory.getPath(), (key, elements) -> addElement(elements, directory));
+    }
+
+    // Load the unloaded directories whose path starts with the prefix (all of them if prefix is empty)
+    // Their children are indexed by Directory.addChild() while they are loaded, they can be unloaded
+    // directories again, so it is repeated until there is none left in the range
+    private void loadUnloaded(String prefix) {
+        ConcurrentMap<String, Object> range = prefix.isEmpty() ? unloadedDirectories
+                : unloadedDirectories.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+
+        while(!range.isEmpty()) {
+            for(Map.Entry<String, Object> entry : range.entrySet()) {
+                ArrayList<FileElement> directories = new ArrayList<>();
+                addElements(entry.getValue(), directories);
+
+                for(FileElement directory : directories) {
+                    range.computeIfPresent(entry.getKey(), (key, elements) -> removeElement(elements, directory));
+                    ((Directory) directory).load();
+                }
+            }
+        }
+    }
+
+    // All elements whose name starts with the prefix, e.g. "File"
+    // If loadLazyDirectories is true, the unloaded directories are loaded first, so their children are found too
+    public List<FileElement> findByPrefix(String prefix, boolean loadLazyDirectories) {
+        if(loadLazyDirectories) {
+            loadUnloaded("");
+        }
+        ArrayList<FileElement> result = new ArrayList<>();
+
+        for(String name : names.subSet(prefix, true, prefix + Character.MAX_VALUE, false)) {
+            addElements(elementsByName.get(name), result);
+        }
+
+        result.removeIf(fileElement -> !isInFileSystem(fileElement));
+        return result;
+    }
+
+    // All elements under the directory whose name ends with the suffix
+    // If directory is null, all elements of the file system are searched
+    // A search under a directory only reads the range of the paths under it, not all names with the suffix,
+    // and only loads the unloaded directories in that range
+    public List<FileElement> findBySuffix(String suffix, Directory directory, boolean loadLazyDirectories) {
+        ArrayList<FileElement> result = new ArrayList<>();
+
+        if(directory == null) {
+            if(loadLazyDirectories) {
+                loadUnloaded("");
+            }
+            String reversedSuffix = reverse(suffix);
+
+            for(String reversedName : reversedNames.subSet(reversedSuffix, true, reversedSuffix + Character.MAX_VALUE, false)) {
+                addElements(elementsByName.get(reverse(reversedName)), result);
+            }
+
+            result.removeIf(fileElement -> !isInFileSystem(fileElement));
+            return result;
+        }
+
+        String prefix = directory.getPath() + '/';
+        if(loadLazyDirectories) {
+            // The directory itself is kept at its path without the '/'
+            if(!directory.isLoaded()) {
+                unloadedDirectories.computeIfPresent(directory.getPath(),
+                        (key, elements) -> removeElement(elements, directory));
+                directory.load();
+            }
+            loadUnloaded(prefix);
+        }
+        ConcurrentMap<String, Object> elementsUnder = elementsByPath.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+
+        for(Map.Entry<String, Object> entry : elementsUnder.entrySet()) {
+            if(entry.getKey().endsWith(suffix)) {
+                addElements(entry.getValue(), result);
+            }
+        }
+
+        // An element that is moved while it is indexed can be left at its old path, so check where it is now
+        result.removeIf(fileElement -> !directory.isAncestorOf(fileElement));
+        return result;
+    }
+
+    // Check whether the top of the element is in the file system of the index
+    // An element that is removed while FileSystem.enableFileNameIndex() fills the index can be left in it
+    private boolean isInFileSystem(FileElement fileElement) {
+        FileElement root = fileElement;
+        while(root.getParent() != null) {
+            root = root.getParent();
+        }
+        return root.getFileSystem() == fileSystem;
+    }
+
+    private static void addElements(Object elements, List<FileElement> result) {
+        if(elements instanceof FileElement) {
+            result.add((FileElement) elements);
+        } else if(elements != null) {
+            result.addAll(Arrays.asList((FileElement[]) elements));
+        }
+    }
+
+    private static String reverse(String s) {
+        return new StringBuilder(s).reverse().toString();
+    }
+}
@@ -0,0 +1,412 @@
+package osmodeling;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Client in Abstract Factory
+// Client in Composite Pattern
+// The top level fileElements are guarded by a read-write lock, the directories have their own locks
+abstract public class FileSystem {
+    private String name;
+    private final ArrayList<FileElement> fileElements;
+    private final ConcurrentHashMap<String, FileElement> fileElementsByName; // name index of fileElements
+    private final ReentrantReadWriteLock lock; // guards fileElements
+    // Names of all elements, also the ones in the directories, null until enableFileNameIndex() is called
+    private volatile FileNameIndex fileNameIndex;
+    private final FileElementFactory fileElementFactory;
+    private volatile OutputSink output; // where displayFiles() and Display() of the elements print
+
+    public FileSystem(FileElementFactory fileElementFactory, String name) {
+        this.fileElementFactory = fileElementFactory;
+        this.fileElements = new ArrayList<>();
+        this.fileElementsByName = new ConcurrentHashMap<>();
+        this.lock = new ReentrantReadWriteLock();
+        this.name = name;
+        this.output = SystemOutputSink.getInstance();
+    }
+
+    // Print all fileElements to the output of the file system with a single print
+    public void displayFiles() {
+        StringBuilder text = new StringBuilder();
+
+        try {
+            displayFiles(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder does not throw it
+        }
+        output.print(text);
+    }
+
+    // Print all fileElements to the given output, e.g. a Writer or a StringBuilder
+    public void displayFiles(Appendable out) throws IOException {
+        FileElementRenderer renderer = new FileElementRenderer(out);
+
+        for (FileElement fileElement : getFileElements()) {
+            renderer.renderTopLevel(fileElement);
+        }
+    }
+
+    public void Add(FileElement fileElement) {
+        while(true) {
+            // Move the fileElement to the top of the file system if it is in a directory or in another file system
+            Directory parent = fileElement.getParent();
+            if(parent != null) {
+                parent.unlink(fileElement);
+            } else {
+                FileSystem fileSystem = fileElement.getFileSystem();
+                if(fileSystem != null) {
+                    fileSystem.Remove(fileElement);
+                }
+            }
+
+            lock.writeLock().lock();
+            try {
+                // attach() fails if another thread has added the fileElement somewhere in the meantime
+                if(fileElement.attach(this)) {
+                    this.fileElements.add(fileElement);
+                    this.fileElementsByName.put(fileElement.getName(), fileElement);
+
+                    FileNameIndex index = this.fileNameIndex;
+                    if(index != null) {
+                        index.add(fileElement);
+                    }
+                    return;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Remove the fileElement from the top of the file system or from the directory that contains it
+    public void Remove(FileElement fileElement) {
+        Directory parent = fileElement.getParent();
+
+        if(parent == null) {
+            lock.writeLock().lock();
+            try {
+                if(fileElement.getFileSystem() == this && this.fileElements.remove(fileElement)) {
+                    unindexName(fileElement);
+
+                    FileNameIndex index = this.fileNameIndex;
+                    if(index != null) {
+                        index.remove(fileElement);
+                    }
+                    fileElement.detach();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        // Find the top directory of the fileElement to make sure it belongs to this file system
+        FileElement root = parent;
+        while(root.getParent() != null) {
+            root = root.getParent();
+        }
+
+        if(root.getFileSystem() == this) {
+            parent.unlink(fileElement);
+        }
+    }
+
+    // Drop the name of the removed fileElement from the name index
+    // If it is the indexed one, the last added element with the same name takes its place
+    // It must be called while holding the write lock
+    private void unindexName(FileElement fileElement) {
+        String name = fileElement.getName();
+
+        if(this.fileElementsByName.remove(name, fileElement)) {
+            for(int i=this.fileElements.size()-1; i>=0; i--) {
+                if(this.fileElements.get(i).hasName(name)) {
+                    this.fileElementsByName.put(name, this.fileElements.get(i));
+                    return;
+                }
+            }
+        }
+    }
+
+    public FileElement Get(int index) {
+        lock.readLock().lock();
+        try {
+            return this.fileElements.get(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Return a snapshot of the top level fileElements
+    FileElement[] getFileElements() {
+        lock.readLock().lock();
+        try {
+            return this.fileElements.toArray(new FileElement[0]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public FileElement Get(String name) {
+        return this.fileElementsByName.get(name);
+    }
+
+    // Find the fileElement for a path like "Directory1.lnxd/Directory2.lnxd/File2.lnx"
+    // Each name in the path is looked up by GetChild(String), so the cost depends on the depth of the path
+    // Return null if any element of the path is not found
+    public FileElement resolve(String path) {
+        FileElement fileElement = null;
+        int start = 0;
+
+        while(start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if(end == -1) {
+                end = path.length();
+            }
+
+            // Skip empty names, e.g. leading, trailing or repeated '/'
+            if(end > start) {
+                String childName = path.substring(start, end);
+                fileElement = (fileElement == null) ? Get(childName) : fileElement.GetChild(childName);
+
+                if(fileElement == null) {
+                    return null;
+                }
+            }
+            start = end + 1;
+        }
+
+        return fileElement;
+    }
+
+    FileNameIndex getFileNameIndex() {
+        return fileNameIndex;
+    }
+
+    // Keep a sorted index of the names of all elements, so findByPrefix() and findBySuffix() do not walk the tree
+    // Each Add() and Remove() also changes the index, so it is only worth it for the file systems that search often
+    // The index is published before the existing elements are added to it, so the changes from now on are indexed,
+    // an element that is removed while the index is filled is dropped from the results (see FileNameIndex)
+    public synchronized void enableFileNameIndex() {
+        if(fileNameIndex != null) {
+            return;
+        }
+
+        FileNameIndex index = new FileNameIndex(this);
+        this.fileNameIndex = index;
+        for(FileElement fileElement : getFileElements()) {
+            index.add(fileElement);
+        }
+    }
+
+    // All elements in the file system whose name starts with the prefix, e.g. "File"
+    // The children of the LazyDirectories that are not loaded are not searched
+    public List<FileElement> findByPrefix(String prefix) {
+        return findByPrefix(prefix, false);
+    }
+
+    // If loadLazyDirectories is true, the LazyDirectories that are not loaded are loaded and searched too
+    public List<FileElement> findByPrefix(String prefix, boolean loadLazyDirectories) {
+        FileNameIndex index = this.fileNameIndex;
+
+        if(index == null) {
+            return FileSystemTraversal.find(getFileElements(), name -> name.startsWith(prefix), loadLazyDirectories);
+        }
+        return index.findByPrefix(prefix, loadLazyDirectories);
+    }
+
+    // All elements in the file system whose name ends with the suffix, e.g. ".nt"
+    public List<FileElement> findBySuffix(String suffix) {
+        return findBySuffix(suffix, false);
+    }
+
+    public List<FileElement> findBySuffix(String suffix, boolean loadLazyDirectories) {
+        FileNameIndex index = this.fileNameIndex;
+
+        if(index == null) {
+            return FileSystemTraversal.find(getFileElements(), name -> name.endsWith(suffix), loadLazyDirectories);
+        }
+        return index.findBySuffix(suffix, null, loadLazyDirectories);
+    }
+
+    // All elements under the directory of the path whose name ends with the suffix
+    // Return an empty list if the path is not a directory
+    public List<FileElement> findBySuffix(String suffix, String path) {
+        return findBySuffix(suffix, path, false);
+    }
+
+    public List<FileElement> findBySuffix(String suffix, String path, boolean loadLazyDirectories) {
+        FileElement fileElement = resolve(path);
+
+        if(!(fileElement instanceof Directory)) {
+            return new ArrayList<>();
+        }
+
+        Directory directory = (Directory) fileElement;
+        FileNameIndex index = this.fileNameIndex;
+
+        if(index != null) {
+            return index.findBySuffix(suffix, directory, loadLazyDirectories);
+        }
+        if(!loadLazyDirectories && !directory.isLoaded()) {
+            return new ArrayList<>();
+        }
+        return FileSystemTraversal.find(directory.getChildren(), name -> name.endsWith(suffix), loadLazyDirectories);
+    }
+
+    public File createFile(String name) {
+        return fileElementFactory.createFile(name);
+    }
+
+    public Directory createDirectory(String name) {
+        return fileElementFactory.createDirectory(name);
+    }
+
+    // Create a file for each name into files from offset
+    public void createFiles(String[] names, File[] files, int offset) {
+        fileElementFactory.createFiles(names, files, offset);
+    }
+
+    // Create a directory for each name into directories from offset
+    public void createDirectories(String[] names, Directory[] directories, int offset) {
+        fileElementFactory.createDirectories(names, directories, offset);
+    }
+
+    public FileElementFactory getFileElementFactory() {
+        return fileElementFactory;
+    }
+
+    public OutputSink getOutput() {
+        return output;
+    }
+
+    // Set by the OperatingSystem, see OperatingSystem.setOutput()
+    public void setOutput(OutputSink output) {
+        this.output = output;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
+
+// Adaptee1 in Adapter Pattern (TranslatorDPToLinux)
+class LinuxFileSystem extends FileSystem {
+
+    public LinuxFileSystem() {
+        super(LinuxFileElementFactory.getInstance(), "Linux File System");
+    }
+
+    // The print statement of LinuxFileSystem
+    public int uprintf(String str, File handle) {
+        return uprintf(str, handle, false);
+    }
+
+    // If append is true, str is added to the end of the content instead of replacing it
+    public int uprintf(String str, File handle, boolean append) {
+        if(handle==null) {
+            return 0;
+        }
+        // Some special operations for linux...
+
+        if(append) {
+            handle.appendContent(str);
+        } else {
+            handle.setContent(str);
+        }
+        return 1;
+    }
+
+    // Print length UTF-8 bytes of the array from offset, used for the batches that share one buffer
+    public int uprintf(byte[] bytes, int offset, int length, File handle) {
+        if(handle==null) {
+            return 0;
+        }
+
+        handle.setContent(bytes, offset, length);
+        return 1;
+    }
+}
+
+
+// Adaptee2 in Adapter Pattern (TranslatorDPToNT)
+class BSDFileSystem extends FileSystem {
+    public BSDFileSystem() {
+        super(BSDFileElementFactory.getInstance(), "BSD File System");
+    }
+
+    // The print statement of BSDFileSystem
+    public int uprintf(String str, File file) {
+        return uprintf(str, file, false);
+    }
+
+    // If append is true, str is added to the end of the content instead of replacing it
+    public int uprintf(String str, File file, boolean append) {
+        if(file==null) {
+            return 0;
+        }
+        // Some special operations for BSD...
+
+        if(append) {
+            file.appendContent(str);
+        } else {
+            file.setContent(str);
+        }
+        return 1;
+    }
+
+    // Print length UTF-8 bytes of the array from offset, used for the batches that share one buffer
+    public int uprintf(byte[] bytes, int offset, int length, File file) {
+        if(file==null) {
+            return 0;
+        }
+
+        file.setContent(bytes, offset, length);
+        return 1;
+    }
+}
+
+// Adaptee3 in Adapter Pattern (TranslatorDPToNT)
+class NTFileSystem extends FileSystem {
+
+    public NTFileSystem() {
+        super(NTFileElementFactory.getInstance(),"NT File System");
+    }
+
+    // The print statement of NTFileSystem
+    // The bytes are stored as they are, they are decoded only when the content is read as a String
+    public void printf(byte[] charArray, File file) {
+        printf(charArray, file, false);
+    }
+
+    // Print length bytes of the array from offset, used for the batches that share one buffer
+    public void printf(byte[] charArray, int offset, int length, File file) {
+        if(file==null) {
+            return;
+        }
+        file.setContent(charArray, offset, length);
+    }
+
+    // If append is true, the bytes are added to the end of the content instead of replacing it
+    // A null array replaces the content with null, like uprintf() of Linux and BSD with a null String
+    public void printf(byte[] charArray, File file, boolean append) {
+        if(file==null) {
+            return;
+        }
+
+        if(append) {
+            file.appendContent(charArray);
+        } else if(charArray == null) {
+            file.setContent((String) null);
+        } else {
+            file.setContent(charArray);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,409 @@
+package osmodeling;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+// Saves a FileSystem to a binary file and restores it from that file
+//
+// Format (big-endian):
+//   header    : int magic, short version, byte FileElementType ordinal, int number of top level elements
+//   file      : byte FILE, int name length, name (UTF-8), int content length, content
+//   directory : byte DIRECTORY, int name length, name (UTF-8), int number of children,
+//               int offset of the end of the directory, then the children
+// The elements are written in pre-order and the names are written without their suffix,
+// so they are created again by the FileElementFactory of the file system
+// Offsets are int values, so a snapshot can be at most 2 GiB
+public class FileSystemSnapshot {
+
+    static final int MAGIC = 0x46534E50; // "FSNP"
+    static final short VERSION = 1;
+    static final byte FILE = 0;
+    static final byte DIRECTORY = 1;
+
+    private FileSystemSnapshot() {}
+
+    // Write the snapshot to a temporary file and then move it to the path,
+    // so a snapshot that is mapped by restore() is never changed
+    public static void save(FileSystem fileSystem, Path path) throws IOException {
+        save(capture(fileSystem), fileSystem.getFileElementFactory().getType(), path);
+    }
+
+    // Copy the tree of the file system without the contents of the files, they are never changed (see FileContent)
+    // The copy can be saved later while the file system is changed, e.g. by CommandJournal.checkpoint()
+    static CapturedElement[] capture(FileSystem fileSystem) {
+        FileElement[] fileElements = fileSystem.getFileElements();
+        CapturedElement[] roots = new CapturedElement[fileElements.length];
+        ArrayDeque<CapturedElement> pending = new ArrayDeque<>();
+
+        for(int i=0; i<fileElements.length; i++) {
+            roots[i] = new CapturedElement(fileElements[i]);
+            pending.push(roots[i]);
+        }
+
+        while(!pending.isEmpty()) {
+            CapturedElement captured = pending.pop();
+            if(captured.children == null) {
+                continue;
+            }
+
+            FileElement[] children = captured.directory.getChildren();
+            captured.children = new CapturedElement[children.length];
+            for(int i=0; i<children.length; i++) {
+                captured.children[i] = new CapturedElement(children[i]);
+                pending.push(captured.children[i]);
+            }
+        }
+        return roots;
+    }
+
+    static void save(CapturedElement[] fileElements, FileElementType type, Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SnapshotWriter writer = new SnapshotWriter(channel);
+
+            writer.putInt(MAGIC);
+            writer.putShort(VERSION);
+            writer.put((byte) type.ordinal());
+            writer.putInt(fileElements.length);
+
+            for(CapturedElement fileElement : fileElements) {
+                writeTree(writer, fileElement);
+            }
+
+            writer.flush();
+            channel.force(false);
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Write the fileElement and everything under it, with a stack instead of recursion
+    private static void writeTree(SnapshotWriter writer, CapturedElement root) throws IOException {
+        ArrayDeque<WriteFrame> stack = new ArrayDeque<>();
+        writeElement(writer, root, stack);
+
+        while(!stack.isEmpty()) {
+            WriteFrame frame = stack.peek();
+
+            if(frame.next < frame.children.length) {
+                writeElement(writer, frame.children[frame.next++], stack);
+            } else {
+                // All children are written, so the end of the directory is known now
+                writer.patchInt(frame.endOffsetPosition, writer.offset());
+                stack.pop();
+            }
+        }
+    }
+
+    private static void writeElement(SnapshotWriter writer, CapturedElement fileElement, ArrayDeque<WriteFrame> stack)
+            throws IOException {
+        if(fileElement.children != null) {
+            CapturedElement[] children = fileElement.children;
+
+            writer.put(DIRECTORY);
+            writer.putName(fileElement.baseName);
+            writer.putInt(children.length);
+
+            stack.push(new WriteFrame(children, writer.position()));
+            writer.putInt(0); // end offset, it is set after the children are written
+        } else {
+            ByteBuffer content = fileElement.content.getBytes();
+
+            writer.put(FILE);
+            writer.putName(fileElement.baseName);
+            writer.putInt(content.remaining());
+            writer.put(content);
+        }
+    }
+
+    // Map the snapshot into memory and add its elements to the top of the file system
+    // The contents of the files are not copied, they point to the mapped snapshot
+    // Throw InvalidFileElementType if the snapshot is saved from a file system of another type
+    public static void restore(Path path, FileSystem fileSystem) throws IOException, InvalidFileElementType {
+        restore(path, fileSystem, false);
+    }
+
+    // If lazy is true, only the top level elements are created and the directories are LazyDirectory stubs,
+    // their children are read from the mapped snapshot when they are first used
+    public static void restore(Path path, FileSystem fileSystem, boolean lazy) throws IOException, InvalidFileElementType {
+        FileElementFactory factory = fileSystem.getFileElementFactory();
+        ByteBuffer buffer = map(path);
+
+        if(readHeader(buffer) != factory.getType()) {
+            throw new InvalidFileElementType();
+        }
+
+        int topLevelCount = buffer.getInt();
+        ElementReader reader = new ElementReader(buffer, factory);
+
+        if(lazy) {
+            for(int i=0; i<topLevelCount; i++) {
+                fileSystem.Add(reader.read(true));
+            }
+            return;
+        }
+
+        ArrayDeque<ReadFrame> stack = new ArrayDeque<>();
+
+        while(true) {
+            Directory parent = null;
+
+            if(!stack.isEmpty()) {
+                ReadFrame frame = stack.peek();
+                if(frame.remaining == 0) {
+                    stack.pop();
+                    // A top level directory is added to the file system after its tree is built,
+                    // so its elements are added to the FileNameIndex in one pass
+                    if(stack.isEmpty()) {
+                        fileSystem.Add(frame.directory);
+                    }
+                    continue;
+                }
+                frame.remaining--;
+                parent = frame.directory;
+            } else if(topLevelCount > 0) {
+                topLevelCount--;
+            } else {
+                break;
+            }
+
+            FileElement fileElement = reader.read(false);
+
+            if(parent != null) {
+                parent.Add(fileElement);
+            } else if(!(fileElement instanceof Directory)) {
+                fileSystem.Add(fileElement);
+            }
+
+            if(fileElement instanceof Directory) {
+                stack.push(new ReadFrame((Directory) fileElement, reader.childCount));
+            }
+        }
+    }
+
+    static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is larger than 2 GiB: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    // Check the magic and the version, and return the type of the saved file system
+    static FileElementType readHeader(ByteBuffer buffer) throws IOException {
+        if(buffer.remaining() < 11 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a file system snapshot");
+        }
+
+        short version = buffer.getShort();
+        if(version != VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+
+        int type = buffer.get();
+        if(type < 0 || type >= FileElementType.values().length) {
+            throw new IOException("Invalid file element type in snapshot: " + type);
+        }
+        return FileElementType.values()[type];
+    }
+
+    // A file or a directory as it was when the file system was captured
+    static class CapturedElement {
+        final String baseName;
+        final Directory directory; // only used by capture() to read the children
+        final FileContent content; // null for a directory
+        CapturedElement[] children; // null for a file
+
+        CapturedElement(FileElement fileElement) {
+            this.baseName = fileElement.getBaseName();
+
+            if(fileElement instanceof Directory) {
+                this.directory = (Directory) fileElement;
+                this.content = null;
+                this.children = new CapturedElement[0]; // set by capture()
+            } else {
+                this.directory = null;
+                this.content = ((File) fileElement).getFileContent();
+            }
+        }
+    }
+
+    // A directory whose children are being written
+    private static class WriteFrame {
+        final CapturedElement[] children;
+        final long endOffsetPosition;
+        int next;
+
+        WriteFrame(CapturedElement[] children, long endOffsetPosition) {
+            this.children = children;
+            this.endOffsetPosition = endOffsetPosition;
+        }
+    }
+
+    // A directory whose children are being read
+    private static class ReadFrame {
+        final Directory directory;
+        int remaining;
+
+        ReadFrame(Directory directory, int remaining) {
+            this.directory = directory;
+            this.remaining = remaining;
+        }
+    }
+
+    // Reads the elements of a mapped snapshot, it is also used by LazyDirectory to read its children
+    static class ElementReader {
+        private final ByteBuffer buffer;
+        private final FileElementFactory factory;
+        private final LazyDirectory source; // the LazyDirectory whose children are read, null for the top level
+        private byte[] nameBuffer;
+        int childCount; // number of children of the last read directory
+
+        ElementReader(ByteBuffer buffer, FileElementFactory factory) {
+            this(buffer, factory, null);
+        }
+
+        ElementReader(ByteBuffer buffer, FileElementFactory factory, LazyDirectory source) {
+            this.buffer = buffer;
+            this.factory = factory;
+            this.source = source;
+            this.nameBuffer = new byte[64];
+        }
+
+        // Read the element at the position of the buffer
+        // If lazy is true, a directory is returned as a LazyDirectory and the position is moved after its children,
+        // otherwise an empty directory is returned and the position stays at its first child
+        FileElement read(boolean lazy) throws IOException {
+            byte kind = buffer.get();
+            int nameLength = buffer.getInt();
+            if(nameBuffer.length < nameLength) {
+                nameBuffer = new byte[Math.max(nameLength, nameBuffer.length * 2)];
+            }
+            buffer.get(nameBuffer, 0, nameLength);
+            String name = new String(nameBuffer, 0, nameLength, StandardCharsets.UTF_8);
+
+            if(kind == DIRECTORY) {
+                childCount = buffer.getInt();
+                int endOffset = buffer.getInt();
+
+                if(!lazy) {
+                    return factory.createDirectory(name);
+                }
+
+                // The stub is not created by the factory, so it is given the name without the suffix like the factory
+                LazyDirectory directory = new LazyDirectory(factory.getType(), name, true, buffer, buffer.position(),
+                        childCount, factory, source);
+                buffer.position(endOffset);
+                return directory;
+            } else if(kind == FILE) {
+                File file = factory.createFile(name);
+                int contentLength = buffer.getInt();
+
+                file.setMappedContent(buffer.slice(buffer.position(), contentLength), source);
+                buffer.position(buffer.position() + contentLength);
+                return file;
+            }
+            throw new IOException("Invalid element kind in snapshot: " + kind);
+        }
+    }
+
+    // Buffers the writes to the channel and writes values back into already written positions
+    private static class SnapshotWriter {
+        private static final int BUFFER_SIZE = 1 << 20;
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private long flushed; // number of bytes written to the channel
+
+        SnapshotWriter(FileChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+
+        long position() {
+            return flushed + buffer.position();
+        }
+
+        // The position as an offset in the snapshot
+        int offset() throws IOException {
+            long position = position();
+            if(position > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is larger than 2 GiB");
+            }
+            return (int) position;
+        }
+
+        void put(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void putShort(short value) throws IOException {
+            ensure(2);
+            buffer.putShort(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putName(String name) throws IOException {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            put(ByteBuffer.wrap(bytes));
+        }
+
+        void put(ByteBuffer bytes) throws IOException {
+            if(bytes.remaining() > buffer.remaining()) {
+                flush();
+
+                // Write large contents directly to the channel
+                if(bytes.remaining() > buffer.capacity()) {
+                    while(bytes.hasRemaining()) {
+                        flushed += channel.write(bytes);
+                    }
+                    return;
+                }
+            }
+            buffer.put(bytes);
+        }
+
+        void patchInt(long position, int value) throws IOException {
+            if(position >= flushed) {
+                buffer.putInt((int) (position - flushed), value);
+            } else {
+                ByteBuffer bytes = ByteBuffer.allocate(4).putInt(0, value);
+                while(bytes.hasRemaining()) {
+                    channel.write(bytes, position + bytes.position());
+                }
+            }
+        }
+
+        private void ensure(int size) throws IOException {
+            if(buffer.remaining() < size) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while(buffer.hasRemaining()) {
+                flushed += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package osmodeling;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+// Walks the whole tree of a FileSystem in parallel with the fork/join framework
+// A task walks its part of the tree with a stack. When other workers are idle, the task gives
+// half of its pending subtrees to a new task, so big subtrees are split between the workers
+// The elements are visited in no particular order
+// A LazyDirectory that is not loaded yet is visited, but its children are only read if loadLazyDirectories is true,
+// so a traversal does not load the whole snapshot by default (see LazyDirectory)
+public class FileSystemTraversal {
+
+    private static final int SPLIT_THRESHOLD = 16; // minimum number of pending elements to split a task
+
+    private FileSystemTraversal() {}
+
+    public static <R> R traverse(FileSystem fileSystem, FileElementVisitor<R> visitor) {
+        return traverse(fileSystem, visitor, false);
+    }
+
+    public static <R> R traverse(FileSystem fileSystem, FileElementVisitor<R> visitor, boolean loadLazyDirectories) {
+        return traverse(fileSystem.getFileElements(), visitor, loadLazyDirectories);
+    }
+
+    public static <R> R traverse(FileElement root, FileElementVisitor<R> visitor) {
+        return traverse(root, visitor, false);
+    }
+
+    public static <R> R traverse(FileElement root, FileElementVisitor<R> visitor, boolean loadLazyDirectories) {
+        return traverse(new FileElement[]{root}, visitor, loadLazyDirectories);
+    }
+
+    private static <R> R traverse(FileElement[] roots, FileElementVisitor<R> visitor, boolean loadLazyDirectories) {
+        return ForkJoinPool.commonPool().invoke(new TraversalTask<>(Arrays.asList(roots), visitor, loadLazyDirectories));
+    }
+
+    // Number of files and directories of each type
+    public static EnumMap<FileElementType, Long> countByType(FileSystem fileSystem) {
+        long[] counts = traverse(fileSystem, new FileElementVisitor<long[]>() {
+            @Override
+            public long[] newResult() {
+                return new long[FileElementType.values().length];
+            }
+
+            @Override
+            public void visitFile(File file, long[] result) {
+                result[file.getType().ordinal()]++;
+            }
+
+            @Override
+            public void visitDirectory(Directory directory, long[] result) {
+                result[directory.getType().ordinal()]++;
+            }
+
+            @Override
+            public long[] combine(long[] left, long[] right) {
+                for(int i=0; i<left.length; i++) {
+                    left[i] += right[i];
+                }
+                return left;
+            }
+        });
+
+        EnumMap<FileElementType, Long> countsByType = new EnumMap<>(FileElementType.class);
+        for(FileElementType type : FileElementType.values()) {
+            countsByType.put(type, counts[type.ordinal()]);
+        }
+        return countsByType;
+    }
+
+    // Sum of the content lengths (in bytes) of all files
+    public static long totalContentBytes(FileSystem fileSystem) {
+        return traverse(fileSystem, new FileElementVisitor<long[]>() {
+            @Override
+            public long[] newResult() {
+                return new long[1];
+            }
+
+            @Override
+            public void visitFile(File file, long[] result) {
+                result[0] += file.getContentLength();
+            }
+
+            @Override
+            public void visitDirectory(Directory directory, long[] result) {
+                // Empty
+            }
+
+            @Override
+            public long[] combine(long[] left, long[] right) {
+                left[0] += right[0];
+                return left;
+            }
+        })[0];
+    }
+
+    // All files and directories whose name (with the suffix) matches the glob, e.g. "File*.lnx"
+    // '*' matches any number of characters, '?' matches one character
+    public static List<FileElement> findByGlob(FileSystem fileSystem, String glob) {
+        Pattern pattern = globToPattern(glob);
+        return find(fileSystem.getFileElements(), name -> pattern.matcher(name).matches(), false);
+    }
+
+    // The roots and the elements under them whose name (with the suffix) matches
+    // It is also used by FileSystem when it has no FileNameIndex
+    static List<FileElement> find(FileElement[] roots, Predicate<String> matcher, boolean loadLazyDirectories) {
+        return traverse(roots, new FileElementVisitor<List<FileElement>>() {
+            @Override
+            public List<FileElement> newResult() {
+                return new ArrayList<>();
+            }
+
+            @Override
+            public void visitFile(File file, List<FileElement> result) {
+                visit(file, result);
+            }
+
+            @Override
+            public void visitDirectory(Directory directory, List<FileElement> result) {
+                visit(directory, result);
+            }
+
+            private void visit(FileElement fileElement, List<FileElement> result) {
+                if(matcher.test(fileElement.getName())) {
+                    result.add(fileElement);
+                }
+            }
+
+            @Override
+            public List<FileElement> combine(List<FileElement> left, List<FileElement> right) {
+                left.addAll(right);
+                return left;
+            }
+        }, loadLazyDirectories);
+    }
+
+    static Pattern globToPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int literalStart = 0;
+
+        for(int i=0; i<glob.length(); i++) {
+            char c = glob.charAt(i);
+
+            if(c == '*' || c == '?') {
+                if(i > literalStart) {
+                    regex.append(Pattern.quote(glob.substring(literalStart, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                literalStart = i + 1;
+            }
+        }
+        if(glob.length() > literalStart) {
+            regex.append(Pattern.quote(glob.substring(literalStart)));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static class TraversalTask<R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<FileElement> roots;
+        private final FileElementVisitor<R> visitor;
+        private final boolean loadLazyDirectories;
+
+        TraversalTask(List<FileElement> roots, FileElementVisitor<R> visitor, boolean loadLazyDirectories) {
+            this.roots = roots;
+            this.visitor = visitor;
+            this.loadLazyDirectories = loadLazyDirectories;
+        }
+
+        @Override
+        protected R compute() {
+            R result = visitor.newResult();
+            ArrayDeque<FileElement> pending = new ArrayDeque<>(roots);
+            ArrayList<TraversalTask<R>> forked = new ArrayList<>();
+
+            while(!pending.isEmpty()) {
+                // Split only if there is not enough queued work for the other workers
+                if(pending.size() >= SPLIT_THRESHOLD && getSurplusQueuedTaskCount() <= 1) {
+                    TraversalTask<R> task = new TraversalTask<>(takeHalf(pending), visitor, loadLazyDirectories);
+                    task.fork();
+                    forked.add(task);
+                }
+
+                FileElement fileElement = pending.pop();
+
+                if(fileElement instanceof Directory) {
+                    Directory directory = (Directory) fileElement;
+                    visitor.visitDirectory(directory, result);
+
+                    if(loadLazyDirectories || directory.isLoaded()) {
+                        for(FileElement child : directory.getChildren()) {
+                            pending.push(child);
+                        }
+                    }
+                } else {
+                    visitor.visitFile((File) fileElement, result);
+                }
+            }
+
+            for(TraversalTask<R> task : forked) {
+                result = visitor.combine(result, task.join());
+            }
+            return result;
+        }
+
+        // Take the oldest half of the pending elements, they are the higher ones in the tree,
+        // so they are likely to have the bigger subtrees
+        private static List<FileElement> takeHalf(ArrayDeque<FileElement> pending) {
+            int size = pending.size() / 2;
+            ArrayList<FileElement> half = new ArrayList<>(size);
+
+            for(int i=0; i<size; i++) {
+                half.add(pending.pollLast());
+            }
+            return half;
+        }
+    }
+}
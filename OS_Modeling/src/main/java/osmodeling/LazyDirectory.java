@@ -0,0 +1,205 @@
+package osmodeling;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// A Directory that is created by FileSystemSnapshot.restore() in lazy mode
+// It only keeps the position of its children in the mapped snapshot and reads them
+// the first time they are used (GetChild, Add, Remove, Display ...)
+// Its sub directories are LazyDirectory stubs again, so only the used part of the tree is created
+// evict() turns a directory back into a stub if nothing under it is changed
+//
+// The stubs that are read from the same top level stub share one read-write lock: the changes of the children
+// and of the contents of the files take the read lock, evict() takes the write lock, so nothing is changed
+// while evict() checks and drops the tree. A file that is kept by the caller after its directory is evicted
+// is not in the file system anymore, so changing its content throws IllegalStateException
+public class LazyDirectory extends Directory {
+
+    private final ByteBuffer snapshot; // the mapped snapshot
+    private final int offset; // offset of the first child in the snapshot
+    private final int childCount;
+    private final FileElementFactory factory; // creates the children, so they have the same types as the other elements
+    private volatile boolean loaded;
+    private volatile boolean modified; // true if the children are changed after they are loaded
+    private final ReentrantReadWriteLock treeLock; // shared with the stubs that are read by the same top level stub
+    private int generation; // increased when the children are dropped by evict(), guarded by treeLock
+
+    public LazyDirectory(FileElementType type, String name, ByteBuffer snapshot, int offset, int childCount,
+                         FileElementFactory factory) {
+        this(type, name, false, snapshot, offset, childCount, factory, null);
+    }
+
+    // isBaseName is true if the name is given without the suffix (see FileElement)
+    // source is the LazyDirectory whose children are read, null for a top level stub
+    LazyDirectory(FileElementType type, String name, boolean isBaseName, ByteBuffer snapshot, int offset,
+                  int childCount, FileElementFactory factory, LazyDirectory source) {
+        super(type, name, isBaseName, true);
+        this.snapshot = snapshot;
+        this.offset = offset;
+        this.childCount = childCount;
+        this.factory = factory;
+        this.treeLock = (source == null) ? new ReentrantReadWriteLock() : source.treeLock;
+    }
+
+    // Override the checkType() method to check the fileElement's type is the type of this directory or not
+    @Override
+    protected boolean checkType(FileElement fileElement) {
+        return fileElement.getType() == getType();
+    }
+
+    @Override
+    protected void load() {
+        if(loaded) {
+            return;
+        }
+
+        synchronized (this) {
+            if(loaded) {
+                return;
+            }
+
+            ByteBuffer buffer = snapshot.duplicate();
+            buffer.position(offset);
+            FileSystemSnapshot.ElementReader reader = new FileSystemSnapshot.ElementReader(buffer, factory, this);
+
+            try {
+                for(int i=0; i<childCount; i++) {
+                    addChild(reader.read(true));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            loaded = true;
+        }
+    }
+
+    @Override
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // modified is set before the child is linked, so evict() never sees the new child with modified still false
+    @Override
+    public void Add(FileElement fileElement) throws InvalidFileElementType {
+        treeLock.readLock().lock();
+        try {
+            modified = true;
+            super.Add(fileElement);
+        } finally {
+            treeLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void AddAll(FileElement[] fileElements) throws InvalidFileElementType {
+        treeLock.readLock().lock();
+        try {
+            modified = true;
+            super.AddAll(fileElements);
+        } finally {
+            treeLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    boolean unlink(FileElement fileElement) {
+        treeLock.readLock().lock();
+        try {
+            modified = true;
+            return super.unlink(fileElement);
+        } finally {
+            treeLock.readLock().unlock();
+        }
+    }
+
+    int getGeneration() {
+        return generation;
+    }
+
+    // Called by a File whose content is read by this directory before the content is changed
+    // It takes the read lock until endChange(), so evict() cannot drop the file in the meantime
+    // Throw IllegalStateException if the file is already dropped by evict(), generation is the one of its content
+    void beginChange(int generation) {
+        treeLock.readLock().lock();
+
+        if(generation != this.generation) {
+            treeLock.readLock().unlock();
+            throw new IllegalStateException("The file is evicted with its directory, it must be found again: " + getName());
+        }
+        modified = true;
+    }
+
+    void endChange() {
+        treeLock.readLock().unlock();
+    }
+
+    // Drop the children and go back to the stub, so they can be garbage collected
+    // It is only done if the children, the sub directories and the contents of the files are not changed,
+    // otherwise the changes would be lost. Return true if the directory is evicted
+    public boolean evict() {
+        treeLock.writeLock().lock();
+        try {
+            synchronized (this) {
+                if(!loaded) {
+                    return true;
+                }
+
+                ArrayList<LazyDirectory> directories = getUnchangedDirectories();
+                if(directories == null) {
+                    return false;
+                }
+
+                // The files that are still used by the callers belong to an old load now
+                for(LazyDirectory directory : directories) {
+                    directory.generation++;
+                }
+
+                loaded = false;
+                clearChildren();
+
+                // The names of the children are not in the index anymore, a search loads the directory again
+                FileNameIndex fileNameIndex = getFileNameIndex();
+                if(fileNameIndex != null) {
+                    fileNameIndex.addUnloaded(this);
+                }
+                return true;
+            }
+        } finally {
+            treeLock.writeLock().unlock();
+        }
+    }
+
+    // Check the loaded part of the tree under this directory
+    // Return the loaded directories of the tree, or null if something is changed
+    private ArrayList<LazyDirectory> getUnchangedDirectories() {
+        ArrayList<LazyDirectory> loadedDirectories = new ArrayList<>();
+        ArrayDeque<LazyDirectory> directories = new ArrayDeque<>();
+        directories.push(this);
+
+        while(!directories.isEmpty()) {
+            LazyDirectory directory = directories.pop();
+
+            if(directory.modified) {
+                return null;
+            }
+            if(!directory.loaded) {
+                continue;
+            }
+            loadedDirectories.add(directory);
+
+            for(FileElement fileElement : directory.getChildren()) {
+                if(fileElement instanceof LazyDirectory) {
+                    directories.push((LazyDirectory) fileElement);
+                } else if(!(fileElement instanceof File) || !((File) fileElement).hasMappedContent()) {
+                    return null;
+                }
+            }
+        }
+        return loadedDirectories;
+    }
+}
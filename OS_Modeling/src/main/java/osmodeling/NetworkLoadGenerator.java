@@ -0,0 +1,76 @@
+package osmodeling;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.atomic.LongAdder;
+
+// Sends datagrams to a NetworkPort on the loopback interface and measures how many of them are received
+// Each sender thread sends the same preallocated buffer again and again until the time is over
+// Datagrams can be lost when the receiver is slower than the senders, the loss is printed too
+// Run: java -cp target/classes osmodeling.NetworkLoadGenerator [seconds] [datagram size] [senders]
+public class NetworkLoadGenerator {
+
+    private static final LongAdder sentCount = new LongAdder();
+    private static final LongAdder receivedCount = new LongAdder();
+    private static final LongAdder receivedBytes = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        int seconds = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+        int size = (args.length > 1) ? Integer.parseInt(args[1]) : 64;
+        int senders = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+
+        NetworkPort networkPort = new NetworkPort();
+        networkPort.AttachBufferObserver(payload -> {
+            receivedCount.increment();
+            receivedBytes.add(payload.remaining());
+        });
+        InetSocketAddress address = networkPort.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        Thread[] threads = new Thread[senders];
+
+        for(int i=0; i<senders; i++) {
+            threads[i] = new Thread(() -> send(address, size, end), "sender-" + i);
+            threads[i].start();
+        }
+
+        long start = System.nanoTime();
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Thread.sleep(100); // let the receiver read the datagrams that are still in the socket
+        networkPort.close();
+
+        long sent = sentCount.sum();
+        long received = receivedCount.sum();
+        System.out.printf("%-20s %15s %15s %10s%n", "", "messages", "messages/s", "loss");
+        System.out.printf("%-20s %15d %15.0f%n", "sent", sent, sent * 1e9 / elapsed);
+        System.out.printf("%-20s %15d %15.0f %9.2f%%%n", "received", received, received * 1e9 / elapsed,
+                (sent == 0) ? 0.0 : 100.0 * (sent - received) / sent);
+        System.out.printf("%-20s %15d%n", "received bytes", receivedBytes.sum());
+    }
+
+    private static void send(InetSocketAddress address, int size, long end) {
+        ByteBuffer datagram = ByteBuffer.allocateDirect(size);
+        for(int i=0; i<size; i++) {
+            datagram.put(i, (byte) ('a' + i % 26));
+        }
+
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            channel.connect(address);
+
+            while(System.nanoTime() < end) {
+                datagram.clear();
+                channel.write(datagram);
+                sentCount.increment();
+            }
+        } catch (IOException e) {
+            System.out.println("Sender failed: " + e.getMessage());
+        }
+    }
+}
@@ -1,3 +1,5 @@
+package osmodeling;
+
 import java.util.ArrayList;
 import java.util.Scanner;
 
@@ -126,18 +128,32 @@ class MainSystem {
 
     // Network Port object is created as IODevice and added to operating system as device.
     // Create 2 different Application objects as Observer then Attach them to NetworkPort as observers
+    // The applications are also in a ConsumerGroup, so the data is consumed by only one of them
     // change the data value of the Network Port object
     public static void sendData(OperatingSystem os) {
         IODevice networkPort = new NetworkPort();
         os.addDevice(networkPort);
 
-        Observer appA = new Application("Application A");
-        Observer appB = new Application("Application B");
+        Application appA = new Application("Application A", os.getOutput());
+        Application appB = new Application("Application B", os.getOutput());
         networkPort.Attach(appA);
         networkPort.Attach(appB);
 
+        ConsumerGroup consumers = new ConsumerGroup("Consumers");
+        consumers.Add(appA);
+        consumers.Add(appB);
+        networkPort.Attach(consumers);
+
         System.out.println("------------------------------");
         networkPort.setData("value");
+
+        // Wait until the data is consumed
+        try {
+            consumers.shutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        networkPort.Detach(consumers);
     }
 
     // Create a ShutDownCommand as Command. Create a User object as invoker.
@@ -155,15 +171,19 @@ abstract public class OperatingSystem {
     private FileSystem fileSystem;
     private final ArrayList<Device> devices;
     protected DPLanguage translator;
+    private final OperationMetrics metrics; // null if the metrics are not enabled, see OperationMetrics
+    private volatile OutputSink output; // where the devices, the applications and the file elements print
 
     public OperatingSystem(String name, FileSystem fileSystem) {
         this.name = name;
         this.fileSystem = fileSystem;
         this.devices = new ArrayList<>();
+        this.output = SystemOutputSink.getInstance();
+        this.metrics = OperationMetrics.register(name, fileSystem.getFileElementFactory().getType());
 
-        this.devices.add(new CPU());
-        this.devices.add(new HardDisk());
-        this.devices.add(new NetworkPort());
+        addDevice(new CPU());
+        addDevice(new HardDisk());
+        addDevice(new NetworkPort());
     }
 
     public String getName() {
@@ -179,6 +199,7 @@ abstract public class OperatingSystem {
     }
 
     public void setFileSystem(FileSystem fileSystem) {
+        fileSystem.setOutput(output);
         this.fileSystem = fileSystem;
     }
 
@@ -187,15 +208,38 @@ abstract public class OperatingSystem {
     }
 
     public void addDevice(Device device) {
+        device.setMetrics(metrics);
+        device.setOutput(output);
         this.devices.add(device);
     }
 
-    public void reset() {
+    // Latencies of the operations of this OperatingSystem, null if they are not enabled
+    public OperationMetrics getMetrics() {
+        return metrics;
+    }
+
+    public OutputSink getOutput() {
+        return output;
+    }
+
+    // Print the messages of the devices and the file system to the output,
+    // e.g. an AsyncOutputSink so the callers do not wait for the console, or NullOutputSink for the benchmarks
+    // The devices that are added later also print to it
+    public void setOutput(OutputSink output) {
+        this.output = output;
+        this.fileSystem.setOutput(output);
         for(Device device : devices) {
-            device.resetDevice();
+            device.setOutput(output);
         }
     }
 
+    // Reset the devices in parallel in the order of their dependencies and print how long each of them took
+    public ResetReport reset() {
+        ResetReport report = DeviceResetScheduler.reset(devices);
+        output.println("{}", report);
+        return report;
+    }
+
     public DPLanguage getTranslator() {
         return translator;
     }
@@ -203,51 +247,49 @@ abstract public class OperatingSystem {
 
 class Linux_OS extends OperatingSystem {
 
-    private static Linux_OS linux_os;
-
     private Linux_OS() {
         super("Linux Operating System", new LinuxFileSystem());
         super.translator = new TranslatorDPToLinux(this);
     }
 
+    // Created once by the JVM when InstanceHolder is first used, so getInstance() does not need a lock
+    private static class InstanceHolder {
+        private static final Linux_OS INSTANCE = new Linux_OS();
+    }
+
     public static Linux_OS getInstance() {
-        if(linux_os == null) {
-            linux_os = new Linux_OS();
-        }
-        return linux_os;
+        return InstanceHolder.INSTANCE;
     }
 }
 
 class BSD_OS extends OperatingSystem {
 
-    private static BSD_OS bsd_os;
-
     private BSD_OS() {
         super("BSD Operating System", new BSDFileSystem());
         super.translator = new TranslatorDPToBSD(this);
     }
 
+    private static class InstanceHolder {
+        private static final BSD_OS INSTANCE = new BSD_OS();
+    }
+
     public static BSD_OS getInstance() {
-        if(bsd_os == null) {
-            bsd_os = new BSD_OS();
-        }
-        return bsd_os;
+        return InstanceHolder.INSTANCE;
     }
 }
 
 class NT_OS extends OperatingSystem {
 
-    private static NT_OS nt_os;
-
     private NT_OS() {
         super("NT Operating System", new NTFileSystem());
         super.translator = new TranslatorDPToNT(this);
     }
 
+    private static class InstanceHolder {
+        private static final NT_OS INSTANCE = new NT_OS();
+    }
+
     public static NT_OS getInstance() {
-        if(nt_os == null) {
-            nt_os = new NT_OS();
-        }
-        return nt_os;
+        return InstanceHolder.INSTANCE;
     }
 }
\ No newline at end of file
@@ -0,0 +1,327 @@
+package osmodeling;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+// The operations that are measured by OperationMetrics
+enum MeteredOperation {
+    FPRINTF("Fprintf"),
+    FPRINTF_BATCH("FprintfBatch"),
+    DIRECTORY_ADD("DirectoryAdd"),
+    DIRECTORY_REMOVE("DirectoryRemove"),
+    NOTIFY("Notify"),
+    RESET_DEVICE("ResetDevice");
+
+    private final String attributePrefix; // prefix of the MBean attributes of the operation
+
+    MeteredOperation(String attributePrefix) {
+        this.attributePrefix = attributePrefix;
+    }
+
+    public String getAttributePrefix() {
+        return attributePrefix;
+    }
+}
+
+// Counters and latency histograms of the operations of one OperatingSystem, exposed as an MBean
+// named "OS_Modeling:type=OperatingSystem,name=<name of the OS>"
+// The measurements are only done when the JVM is started with -Dos.metrics=true. ENABLED is static final,
+// so the JIT removes the checks and the measurements when it is false, and no OperationMetrics is created
+// The file elements do not know their OperatingSystem, so the file system operations are found by the
+// FileElementType of the OperatingSystem (see forType()), the devices get the metrics when they are added
+//
+// Usage in an operation:
+//     long start = OperationMetrics.ENABLED ? System.nanoTime() : 0;
+//     ...
+//     if(OperationMetrics.ENABLED) { OperationMetrics.record(MeteredOperation.DIRECTORY_ADD, getType(), start); }
+public class OperationMetrics implements DynamicMBean {
+
+    static final boolean ENABLED = Boolean.getBoolean("os.metrics");
+
+    private static final String[] STATISTICS = {"Count", "MeanMicros", "P50Micros", "P99Micros", "MaxMicros"};
+
+    // The metrics of the OperatingSystem of each FileElementType, the last created one wins
+    private static final AtomicReferenceArray<OperationMetrics> BY_TYPE =
+            new AtomicReferenceArray<>(FileElementType.values().length);
+
+    private final String osName;
+    private final ObjectName objectName;
+    private final LatencyHistogram[] histograms; // for each MeteredOperation
+    private final MBeanInfo info;
+
+    private OperationMetrics(String osName) throws JMException {
+        this.osName = osName;
+        this.objectName = new ObjectName("OS_Modeling:type=OperatingSystem,name=" + ObjectName.quote(osName));
+        this.histograms = new LatencyHistogram[MeteredOperation.values().length];
+        for(int i=0; i<histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        this.info = createInfo();
+    }
+
+    // Create the metrics of the OperatingSystem and register them as an MBean
+    // Return null if the metrics are not enabled or the MBean can not be registered
+    static OperationMetrics register(String osName, FileElementType type) {
+        if(!ENABLED) {
+            return null;
+        }
+
+        try {
+            OperationMetrics metrics = new OperationMetrics(osName);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+            // An OperatingSystem with the same name replaces the old one
+            if(server.isRegistered(metrics.objectName)) {
+                server.unregisterMBean(metrics.objectName);
+            }
+            server.registerMBean(metrics, metrics.objectName);
+
+            BY_TYPE.set(type.ordinal(), metrics);
+            return metrics;
+        } catch (JMException e) {
+            System.err.println("ERROR: metrics of " + osName + " are not registered: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // The metrics of the OperatingSystem whose file elements have the type, null if there is none
+    static OperationMetrics forType(FileElementType type) {
+        return BY_TYPE.get(type.ordinal());
+    }
+
+    // Record the time from start to now for the OperatingSystem of the type
+    static void record(MeteredOperation operation, FileElementType type, long start) {
+        OperationMetrics metrics = forType(type);
+        if(metrics != null) {
+            metrics.record(operation, start);
+        }
+    }
+
+    // Record the time from start to now
+    void record(MeteredOperation operation, long start) {
+        histograms[operation.ordinal()].record(System.nanoTime() - start);
+    }
+
+    public LatencyHistogram getHistogram(MeteredOperation operation) {
+        return histograms[operation.ordinal()];
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    public void reset() {
+        for(LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(osName);
+        for(MeteredOperation operation : MeteredOperation.values()) {
+            text.append(String.format("%n  %-16s %s", operation.getAttributePrefix(), getHistogram(operation)));
+        }
+        return text.toString();
+    }
+
+    // DynamicMBean: one attribute for each statistic of each operation, e.g. "DirectoryAddP99Micros"
+
+    private MBeanInfo createInfo() {
+        ArrayList<MBeanAttributeInfo> attributes = new ArrayList<>();
+
+        for(MeteredOperation operation : MeteredOperation.values()) {
+            for(String statistic : STATISTICS) {
+                String type = statistic.equals("Count") ? "long" : "double";
+                attributes.add(new MBeanAttributeInfo(operation.getAttributePrefix() + statistic, type,
+                        statistic + " of " + operation.getAttributePrefix(), true, false, false));
+            }
+            attributes.add(new MBeanAttributeInfo(operation.getAttributePrefix() + "Buckets", "[J",
+                    "Number of calls in each bucket, bucket i has the calls shorter than "
+                            + "LatencyHistogram.getBucketLimit(i) nanoseconds", true, false, false));
+        }
+
+        MBeanOperationInfo resetInfo = new MBeanOperationInfo("reset", "Clear all counters and histograms",
+                new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+
+        return new MBeanInfo(getClass().getName(), "Operation latencies of " + osName,
+                attributes.toArray(new MBeanAttributeInfo[0]), null,
+                new MBeanOperationInfo[] {resetInfo}, null);
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        for(MeteredOperation operation : MeteredOperation.values()) {
+            String prefix = operation.getAttributePrefix();
+            if(!attribute.startsWith(prefix)) {
+                continue;
+            }
+
+            LatencyHistogram histogram = getHistogram(operation);
+            switch (attribute.substring(prefix.length())) {
+                case "Count":
+                    return histogram.getCount();
+                case "MeanMicros":
+                    return histogram.getMean() / 1e3;
+                case "P50Micros":
+                    return histogram.getPercentile(0.50) / 1e3;
+                case "P99Micros":
+                    return histogram.getPercentile(0.99) / 1e3;
+                case "MaxMicros":
+                    return histogram.getMax() / 1e3;
+                case "Buckets":
+                    return histogram.getBuckets();
+                default:
+                    // e.g. "FprintfBatchCount" also starts with "Fprintf"
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Attributes are read only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for(String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // Not added, like the other MBeans do
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if(actionName.equals("reset")) {
+            reset();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        return info;
+    }
+}
+
+// Number of calls and a histogram of their durations with fixed buckets, it can be recorded by many
+// threads without locks. The buckets are powers of two: bucket i has the durations shorter than
+// getBucketLimit(i), so a percentile is at most two times the real value
+class LatencyHistogram {
+
+    private static final int MIN_SHIFT = 7; // the first bucket has the durations shorter than 128 ns
+    private static final int BUCKET_COUNT = 40; // the last bucket has the durations longer than about 19 hours
+
+    private final LongAdder[] buckets;
+    private final LongAdder count;
+    private final LongAdder total;
+    private final LongAccumulator max;
+
+    LatencyHistogram() {
+        this.buckets = new LongAdder[BUCKET_COUNT];
+        for(int i=0; i<BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+        this.count = new LongAdder();
+        this.total = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    void record(long nanos) {
+        int bucket = Math.min(BUCKET_COUNT - 1, Math.max(0, 64 - Long.numberOfLeadingZeros(nanos) - MIN_SHIFT));
+        buckets[bucket].increment();
+        count.increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    // Upper limit of the bucket in nanoseconds, the last bucket has no limit
+    public static long getBucketLimit(int bucket) {
+        return (bucket == BUCKET_COUNT - 1) ? Long.MAX_VALUE : 1L << (bucket + MIN_SHIFT);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return (n == 0) ? 0 : (double) total.sum() / n;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long[] getBuckets() {
+        long[] counts = new long[BUCKET_COUNT];
+        for(int i=0; i<BUCKET_COUNT; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    // The upper limit of the bucket that has the percentile (0 < percentile <= 1), at most the maximum
+    public long getPercentile(double percentile) {
+        long[] counts = getBuckets();
+        long n = 0;
+        for(long bucketCount : counts) {
+            n += bucketCount;
+        }
+        if(n == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(percentile * n);
+        long seen = 0;
+        for(int i=0; i<BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if(seen >= rank) {
+                return Math.min(getBucketLimit(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    void reset() {
+        for(LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d calls, mean %.3f us, p50 %.3f us, p99 %.3f us, max %.3f us", getCount(),
+                getMean() / 1e3, getPercentile(0.50) / 1e3, getPercentile(0.99) / 1e3, getMax() / 1e3);
+    }
+}
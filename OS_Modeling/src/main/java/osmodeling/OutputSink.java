@@ -0,0 +1,387 @@
+package osmodeling;
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Destination of the messages of the devices, applications and file elements of an OperatingSystem
+// (see OperatingSystem.setOutput()). "{}" in a format is replaced by the next argument,
+// so a sink can keep the format and the arguments and build the String later, or never
+// The arguments must not be changed after the call, e.g. Strings and numbers
+public interface OutputSink {
+
+    void println(String format);
+
+    void println(String format, Object argument);
+
+    void println(String format, Object argument1, Object argument2);
+
+    // Print the text as it is, e.g. a rendered tree of file elements
+    void print(CharSequence text);
+
+    // Return when everything that is printed before is written
+    void flush();
+
+    // Append the format to the out, "{}" is replaced by the next argument ("{}" is kept if there are no more)
+    static void appendFormatted(StringBuilder out, String format, Object argument1, Object argument2, int argumentCount) {
+        int start = 0;
+        int used = 0;
+
+        while(used < argumentCount) {
+            int placeholder = format.indexOf("{}", start);
+            if(placeholder < 0) {
+                break;
+            }
+
+            out.append(format, start, placeholder).append(used == 0 ? argument1 : argument2);
+            start = placeholder + 2;
+            used++;
+        }
+        out.append(format, start, format.length());
+    }
+}
+
+// Prints to System.out at once, it is the default sink
+// Singleton Pattern
+class SystemOutputSink implements OutputSink {
+
+    private SystemOutputSink() {}
+
+    private static class InstanceHolder {
+        private static final SystemOutputSink INSTANCE = new SystemOutputSink();
+    }
+
+    public static SystemOutputSink getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    @Override
+    public void println(String format) {
+        System.out.println(format);
+    }
+
+    @Override
+    public void println(String format, Object argument) {
+        StringBuilder line = new StringBuilder(format.length() + 16);
+        OutputSink.appendFormatted(line, format, argument, null, 1);
+        System.out.println(line);
+    }
+
+    @Override
+    public void println(String format, Object argument1, Object argument2) {
+        StringBuilder line = new StringBuilder(format.length() + 32);
+        OutputSink.appendFormatted(line, format, argument1, argument2, 2);
+        System.out.println(line);
+    }
+
+    @Override
+    public void print(CharSequence text) {
+        System.out.print(text);
+    }
+
+    @Override
+    public void flush() {
+        System.out.flush();
+    }
+}
+
+// Drops everything, e.g. for the benchmarks, so they do not measure the console
+// Singleton Pattern
+class NullOutputSink implements OutputSink {
+
+    private NullOutputSink() {}
+
+    private static class InstanceHolder {
+        private static final NullOutputSink INSTANCE = new NullOutputSink();
+    }
+
+    public static NullOutputSink getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    @Override
+    public void println(String format) {
+        // Empty
+    }
+
+    @Override
+    public void println(String format, Object argument) {
+        // Empty
+    }
+
+    @Override
+    public void println(String format, Object argument1, Object argument2) {
+        // Empty
+    }
+
+    @Override
+    public void print(CharSequence text) {
+        // Empty
+    }
+
+    @Override
+    public void flush() {
+        // Empty
+    }
+}
+
+// Writes the messages on a background thread
+// The callers only put the format and the arguments into a preallocated slot of a ring buffer, the writer thread
+// builds the lines into a buffer and writes the buffer to the stream when it is full or the ring is empty,
+// so the callers do not format, allocate, take the lock of System.out or wait for the console
+// When the ring is full, the callers wait for the writer thread, so no message is lost
+// After close() the messages are written at once by the caller
+// Sequences are counted from 0 and never wrap, the slot of a sequence is (sequence & mask)
+class AsyncOutputSink implements OutputSink, AutoCloseable {
+
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1); // upper bound for a missed wake up
+    private static final int BUFFER_SIZE = 1 << 16; // bytes of the stream that are written at once
+
+    private final Message[] ring;
+    private final AtomicLongArray published; // the sequence that is written to each slot, -1 before the first one
+    private final int mask;
+    private final AtomicLong claimed; // number of sequences given to the callers
+    private volatile long consumed; // number of messages that are taken by the writer thread
+    private volatile long written; // number of messages that are written to the stream
+    private volatile boolean writerWaiting;
+    private volatile boolean running;
+    private final AtomicInteger publishing; // publish() calls that have passed the running check
+    private final Writer writer;
+    private final Thread writerThread;
+    private final Thread shutdownHook; // writes the rest when the JVM exits without close()
+    private final LongAdder fullWaits; // calls that waited because the ring was full
+
+    // Write to the standard output without the lock of System.out
+    public AsyncOutputSink(int capacity) {
+        this(new FileOutputStream(FileDescriptor.out), capacity);
+    }
+
+    // The capacity is rounded up to a power of two
+    public AsyncOutputSink(OutputStream out, int capacity) {
+        if(capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if(size < capacity) {
+            size <<= 1;
+        }
+
+        this.ring = new Message[size];
+        this.published = new AtomicLongArray(size);
+        for(int i=0; i<size; i++) {
+            ring[i] = new Message();
+            published.set(i, -1);
+        }
+        this.mask = size - 1;
+        this.claimed = new AtomicLong();
+        this.running = true;
+        this.publishing = new AtomicInteger();
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()), BUFFER_SIZE);
+        this.fullWaits = new LongAdder();
+
+        this.writerThread = new Thread(this::writeMessages, "output-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+
+        this.shutdownHook = new Thread(this::close, "output-close");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override
+    public void println(String format) {
+        publish(format, null, null, 0, true);
+    }
+
+    @Override
+    public void println(String format, Object argument) {
+        publish(format, argument, null, 1, true);
+    }
+
+    @Override
+    public void println(String format, Object argument1, Object argument2) {
+        publish(format, argument1, argument2, 2, true);
+    }
+
+    // The text may be a StringBuilder that is changed later, so it is copied
+    @Override
+    public void print(CharSequence text) {
+        publish(text.toString(), null, null, 0, false);
+    }
+
+    private void publish(String format, Object argument1, Object argument2, int argumentCount, boolean newLine) {
+        if(!tryPublish(format, argument1, argument2, argumentCount, newLine)) {
+            writeDirectly(format, argument1, argument2, argumentCount, newLine);
+            return;
+        }
+
+        if(writerWaiting) {
+            wakeUpWriter();
+        }
+    }
+
+    // Put the message into the ring, return false after close()
+    private boolean tryPublish(String format, Object argument1, Object argument2, int argumentCount, boolean newLine) {
+        // The writer thread does not stop while a publish() is between the check and the published slot
+        publishing.incrementAndGet();
+        try {
+            if(!running) {
+                return false;
+            }
+
+            long sequence = claimed.getAndIncrement();
+
+            // Wait until the writer has taken the message that was in the slot before
+            if(sequence - consumed > mask) {
+                fullWaits.increment();
+                do {
+                    wakeUpWriter();
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                } while(sequence - consumed > mask && writerThread.isAlive());
+            }
+
+            int slot = (int) sequence & mask;
+            Message message = ring[slot];
+            message.format = format;
+            message.argument1 = argument1;
+            message.argument2 = argument2;
+            message.argumentCount = argumentCount;
+            message.newLine = newLine;
+            published.set(slot, sequence);
+            return true;
+        } finally {
+            publishing.decrementAndGet();
+        }
+    }
+
+    // Used after close(), the messages of the ring are written first
+    // It does not wait for the writer thread to stop, only until the messages that are claimed before are written,
+    // the writer thread stops only when no publish() is running
+    private void writeDirectly(String format, Object argument1, Object argument2, int argumentCount, boolean newLine) {
+        StringBuilder line = new StringBuilder(format.length() + 32);
+        OutputSink.appendFormatted(line, format, argument1, argument2, argumentCount);
+        if(newLine) {
+            line.append(System.lineSeparator());
+        }
+
+        flush();
+        try {
+            synchronized (writer) { // the lock of the BufferedWriter, so the line is not mixed with a message of the ring
+                writer.append(line);
+                writer.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("ERROR: output is not written: " + e.getMessage());
+        }
+    }
+
+    private void wakeUpWriter() {
+        LockSupport.unpark(writerThread);
+    }
+
+    private void writeMessages() {
+        StringBuilder line = new StringBuilder(256);
+        long sequence = 0;
+
+        try {
+            while(true) {
+                int slot = (int) sequence & mask;
+
+                if(published.get(slot) == sequence) {
+                    Message message = ring[slot];
+                    line.setLength(0);
+                    OutputSink.appendFormatted(line, message.format, message.argument1, message.argument2,
+                            message.argumentCount);
+                    if(message.newLine) {
+                        line.append(System.lineSeparator());
+                    }
+                    message.clear();
+                    consumed = ++sequence;
+
+                    writer.append(line); // BufferedWriter writes to the stream when its buffer is full
+                    continue;
+                }
+
+                // The ring is empty, or a caller has claimed the slot but not written it yet
+                if(written != sequence) {
+                    writer.flush();
+                    written = sequence;
+                }
+                if(!running && publishing.get() == 0 && claimed.get() == sequence) {
+                    return;
+                }
+
+                writerWaiting = true;
+                if(published.get(slot) != sequence) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                writerWaiting = false;
+            }
+        } catch (IOException e) {
+            running = false;
+            System.err.println("ERROR: output is not written: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void flush() {
+        long target = claimed.get();
+
+        while(written < target && writerThread.isAlive()) {
+            wakeUpWriter();
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+    }
+
+    // Write the messages that are printed before and stop the writer thread
+    @Override
+    public void close() {
+        if(!running) {
+            return;
+        }
+
+        running = false;
+        wakeUpWriter();
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if(Thread.currentThread() != shutdownHook) {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        }
+    }
+
+    // Number of calls that waited because the writer thread was capacity messages behind
+    public long getFullWaitCount() {
+        return fullWaits.sum();
+    }
+
+    // A message in the ring, the String is built by the writer thread
+    private static class Message {
+        String format;
+        Object argument1;
+        Object argument2;
+        int argumentCount;
+        boolean newLine;
+
+        // Drop the references, so the arguments can be collected while the slot is not used
+        void clear() {
+            format = null;
+            argument1 = null;
+            argument2 = null;
+        }
+    }
+}
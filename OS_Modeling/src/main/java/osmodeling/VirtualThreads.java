@@ -0,0 +1,27 @@
+package osmodeling;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Creates executors that run each task on a virtual thread when the JVM has them (Java 21 and later)
+// The method is looked up with reflection, so the code also compiles and runs on older JVMs,
+// where a cached pool of daemon platform threads is used instead
+public class VirtualThreads {
+
+    private VirtualThreads() {}
+
+    public static ExecutorService newExecutor(String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadCount = new AtomicInteger();
+
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class AsyncDispatcherTest {
+
+    // Keeps the events, it waits in Update() of the first event until it is released
+    private static class BlockedObserver implements Observer {
+        final List<String> received = new CopyOnWriteArrayList<>();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public void Update(String newData) {
+            received.add(newData);
+            entered.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Test
+    void blockWaitsForTheSlowestObserver() throws InterruptedException {
+        AsyncDispatcher dispatcher = new AsyncDispatcher("block", 2, BackpressurePolicy.BLOCK);
+        BlockedObserver observer = new BlockedObserver();
+        dispatcher.subscribe(observer);
+
+        assertTrue(dispatcher.publish("0"));
+        assertTrue(observer.entered.await(10, TimeUnit.SECONDS));
+        assertTrue(dispatcher.publish("1"));
+
+        Thread producer = new Thread(() -> dispatcher.publish("2"));
+        producer.start();
+        producer.join(100);
+        assertTrue(producer.isAlive()); // the ring is full until the observer reads an event
+
+        observer.released.countDown();
+        producer.join();
+        dispatcher.shutdown();
+
+        assertEquals(List.of("0", "1", "2"), observer.received);
+        assertEquals(0, dispatcher.getStats().getDroppedCount());
+    }
+
+    @Test
+    void dropDropsTheNewEventsWhileTheRingIsFull() throws InterruptedException {
+        AsyncDispatcher dispatcher = new AsyncDispatcher("drop", 2, BackpressurePolicy.DROP);
+        BlockedObserver observer = new BlockedObserver();
+        dispatcher.subscribe(observer);
+
+        assertTrue(dispatcher.publish("0"));
+        assertTrue(observer.entered.await(10, TimeUnit.SECONDS));
+        assertTrue(dispatcher.publish("1"));
+        assertFalse(dispatcher.publish("2"));
+
+        observer.released.countDown();
+        dispatcher.shutdown();
+
+        assertEquals(List.of("0", "1"), observer.received);
+        assertEquals(1, dispatcher.getStats().getDroppedCount());
+    }
+
+    @Test
+    void dropOldestSkipsTheEventsThatAreWrittenOver() throws InterruptedException {
+        AsyncDispatcher dispatcher = new AsyncDispatcher("drop-oldest", 2, BackpressurePolicy.DROP_OLDEST);
+        BlockedObserver observer = new BlockedObserver();
+        dispatcher.subscribe(observer);
+
+        assertTrue(dispatcher.publish("0"));
+        assertTrue(observer.entered.await(10, TimeUnit.SECONDS));
+        assertTrue(dispatcher.publish("1"));
+        assertTrue(dispatcher.publish("2"));
+        assertTrue(dispatcher.publish("3"));
+
+        observer.released.countDown();
+        dispatcher.shutdown();
+
+        assertEquals(List.of("0", "2", "3"), observer.received);
+        assertEquals(1, dispatcher.getStats().getSkippedCount(0));
+    }
+
+    @Test
+    void aThrowingObserverGetsTheNextEvents() throws InterruptedException {
+        List<Throwable> reported = new CopyOnWriteArrayList<>();
+        Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> reported.add(e));
+        try {
+            AsyncDispatcher dispatcher = new AsyncDispatcher("throwing", 4, BackpressurePolicy.BLOCK);
+            List<String> received = new CopyOnWriteArrayList<>();
+            dispatcher.subscribe(newData -> {
+                if(newData.equals("bad")) {
+                    throw new IllegalStateException(newData);
+                }
+                received.add(newData);
+            });
+
+            for(String data : new String[] {"1", "bad", "2", "3", "4", "5"}) {
+                assertTrue(dispatcher.publish(data));
+            }
+            dispatcher.shutdown();
+
+            assertEquals(List.of("1", "2", "3", "4", "5"), received);
+            assertEquals(5, dispatcher.getStats().getDeliveredCount(0));
+            assertEquals(1, dispatcher.getStats().getFailedCount(0));
+            assertEquals(1, reported.size());
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class AsyncOutputSinkTest {
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private static String text(ByteArrayOutputStream out) {
+        return out.toString(Charset.defaultCharset());
+    }
+
+    @Test
+    void theMessagesAreFormattedInTheirOrder() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncOutputSink sink = new AsyncOutputSink(out, 4);
+
+        StringBuilder tree = new StringBuilder("tree");
+        sink.println("plain");
+        sink.println("one {}", 1);
+        sink.println("{} and {}", "two", null);
+        sink.println("{} {} {}", "missing", "argument");
+        sink.print(tree);
+        tree.append(" changed later"); // print() copies the text
+        sink.flush();
+
+        assertEquals("plain" + LINE_SEPARATOR + "one 1" + LINE_SEPARATOR + "two and null" + LINE_SEPARATOR
+                + "missing argument {}" + LINE_SEPARATOR + "tree", text(out));
+        sink.close();
+    }
+
+    @Test
+    void theMessagesOfEachThreadKeepTheirOrderWhenTheRingIsFull() throws InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncOutputSink sink = new AsyncOutputSink(out, 4);
+        int threadCount = 4;
+        int messages = 5000;
+        Thread[] threads = new Thread[threadCount];
+
+        for(int t=0; t<threadCount; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for(int i=0; i<messages; i++) {
+                    sink.println("{} {}", thread, i);
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        sink.close();
+
+        List<String> lines = Arrays.asList(text(out).split(LINE_SEPARATOR));
+        assertEquals(threadCount * messages, lines.size());
+
+        int[] next = new int[threadCount];
+        for(String line : lines) {
+            String[] parts = line.split(" ");
+            int thread = Integer.parseInt(parts[0]);
+            assertEquals(next[thread]++, Integer.parseInt(parts[1]), line);
+        }
+    }
+
+    @Test
+    void aCallerWaitsWhileTheRingIsFull() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+        // The first write to the stream waits until it is released
+        OutputStream out = new OutputStream() {
+            @Override
+            public synchronized void write(int b) {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public synchronized void write(byte[] bytes, int offset, int length) {
+                writing.countDown();
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                written.write(bytes, offset, length);
+            }
+        };
+        AsyncOutputSink sink = new AsyncOutputSink(out, 1);
+
+        sink.println("first");
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+        sink.println("second"); // fills the ring
+
+        Thread caller = new Thread(() -> sink.println("third"));
+        caller.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while(sink.getFullWaitCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, sink.getFullWaitCount());
+        assertTrue(caller.isAlive());
+
+        released.countDown();
+        caller.join();
+        sink.close();
+        assertEquals("first" + LINE_SEPARATOR + "second" + LINE_SEPARATOR + "third" + LINE_SEPARATOR, text(written));
+    }
+
+    @Test
+    void closeWritesEverythingAndTheLaterMessagesAreWrittenDirectly() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncOutputSink sink = new AsyncOutputSink(out, 1024);
+
+        for(int i=0; i<1000; i++) {
+            sink.println("{}", i);
+        }
+        sink.close();
+        sink.close(); // a second close does nothing
+
+        String[] lines = text(out).split(LINE_SEPARATOR);
+        assertEquals(1000, lines.length);
+        assertEquals("999", lines[999]);
+
+        sink.println("after {}", "close");
+        assertTrue(text(out).endsWith("999" + LINE_SEPARATOR + "after close" + LINE_SEPARATOR));
+    }
+}
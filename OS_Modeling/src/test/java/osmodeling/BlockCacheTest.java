@@ -0,0 +1,128 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BlockCacheTest {
+
+    private static final int BLOCK_SIZE = 16;
+
+    @TempDir
+    Path directory;
+
+    private BlockCache newCache(int capacity, CachePolicy policy, int writeBackBatch) throws IOException {
+        return new BlockCache(directory.resolve("disk.img"), BLOCK_SIZE, capacity, policy, writeBackBatch);
+    }
+
+    private static void read(BlockCache cache, long... blocks) throws IOException {
+        for(long block : blocks) {
+            cache.read(block, ByteBuffer.allocate(BLOCK_SIZE));
+        }
+    }
+
+    private static ByteBuffer block(int value) {
+        byte[] bytes = new byte[BLOCK_SIZE];
+        Arrays.fill(bytes, (byte) value);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    @Test
+    void theHitsAndMissesAreCounted() throws IOException {
+        try (BlockCache cache = newCache(4, CachePolicy.LRU, 4)) {
+            read(cache, 0, 1, 0, 1, 2);
+            assertEquals(2, cache.getHitCount());
+            assertEquals(3, cache.getMissCount());
+            assertEquals(0, cache.getEvictionCount());
+
+            // A read of two blocks is a hit or a miss for each of them
+            cache.read(2, ByteBuffer.allocate(2 * BLOCK_SIZE));
+            assertEquals(3, cache.getHitCount());
+            assertEquals(4, cache.getMissCount());
+        }
+    }
+
+    @Test
+    void lruEvictsTheLeastRecentlyUsedBlock() throws IOException {
+        try (BlockCache cache = newCache(2, CachePolicy.LRU, 4)) {
+            read(cache, 0, 1, 0, 2); // 1 is evicted, 0 is used after it
+            assertEquals(1, cache.getEvictionCount());
+
+            read(cache, 0);
+            assertEquals(2, cache.getHitCount());
+            read(cache, 1);
+            assertEquals(4, cache.getMissCount());
+        }
+    }
+
+    @Test
+    void arcKeepsTheFrequentlyUsedBlocksDuringAScan() throws IOException {
+        assertEquals(0, hitsAfterScan(CachePolicy.LRU));
+        assertEquals(2, hitsAfterScan(CachePolicy.ARC));
+    }
+
+    // Use blocks 0 and 1 twice, read 20 other blocks once, and count the hits of 0 and 1 after that
+    private long hitsAfterScan(CachePolicy policy) throws IOException {
+        try (BlockCache cache = newCache(4, policy, 4)) {
+            read(cache, 0, 1, 0, 1);
+            for(long block = 10; block < 30; block++) {
+                read(cache, block);
+            }
+
+            long hits = cache.getHitCount();
+            read(cache, 0, 1);
+            return cache.getHitCount() - hits;
+        }
+    }
+
+    @Test
+    void theDirtyBlocksAreWrittenInABatch() throws IOException {
+        try (BlockCache cache = newCache(8, CachePolicy.LRU, 4)) {
+            cache.write(0, block(1));
+            cache.write(1, block(2));
+            cache.write(5, block(3));
+            assertEquals(3, cache.getDirtyCount());
+            assertEquals(0, cache.getBlocksWritten());
+
+            // The fourth dirty block writes the batch, the neighbour blocks 0-2 are one write
+            cache.write(2, block(4));
+            assertEquals(0, cache.getDirtyCount());
+            assertEquals(4, cache.getBlocksWritten());
+            assertEquals(2, cache.getWriteCallCount());
+
+            // A block that is written again is dirty once
+            cache.write(3, block(5));
+            cache.write(3, block(6));
+            assertEquals(1, cache.getDirtyCount());
+            assertEquals(1, cache.flush());
+            assertEquals(3, cache.getWriteCallCount());
+        }
+
+        byte[] image = Files.readAllBytes(directory.resolve("disk.img"));
+        assertArrayEquals(block(6).array(), Arrays.copyOfRange(image, 3 * BLOCK_SIZE, 4 * BLOCK_SIZE));
+        assertArrayEquals(block(3).array(), Arrays.copyOfRange(image, 5 * BLOCK_SIZE, 6 * BLOCK_SIZE));
+    }
+
+    @Test
+    void anEvictedDirtyBlockIsWrittenBeforeItIsDropped() throws IOException {
+        try (BlockCache cache = newCache(2, CachePolicy.LRU, 100)) {
+            cache.write(0, block(7));
+            cache.write(1, block(8));
+            read(cache, 2);
+            assertEquals(1, cache.getEvictionCount());
+            assertEquals(2, cache.getBlocksWritten());
+
+            ByteBuffer data = ByteBuffer.allocate(BLOCK_SIZE);
+            cache.read(0, data);
+            assertArrayEquals(block(7).array(), data.array());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ColumnarFileSystemTest {
+
+    @Test
+    void aUsedViewIsReturnedAgain() throws InvalidFileElementType {
+        ColumnarFileSystem fileSystem = new ColumnarFileSystem(FileElementType.NT);
+        Directory directory = fileSystem.createDirectory("Directory");
+        File file = fileSystem.createFile("File");
+        fileSystem.Add(directory);
+        directory.Add(file);
+
+        assertSame(file, directory.GetChild(0));
+        assertSame(file, directory.GetChild("File.nt"));
+        assertSame(directory, file.getParent());
+    }
+
+    @Test
+    void getChildByIndexFollowsTheChanges() throws InvalidFileElementType {
+        ColumnarFileSystem fileSystem = new ColumnarFileSystem(FileElementType.LINUX);
+        Directory directory = fileSystem.createDirectory("Directory");
+
+        for(int i=0; i<10; i++) {
+            directory.Add(fileSystem.createFile("File" + i));
+        }
+        assertEquals("File5.lnx", directory.GetChild(5).getName());
+
+        directory.Remove(directory.GetChild(2));
+        assertEquals("File6.lnx", directory.GetChild(5).getName());
+
+        directory.Add(directory.GetChild(0));
+        assertEquals("File0.lnx", directory.GetChild(8).getName());
+        assertEquals("File1.lnx", directory.GetChild(0).getName());
+    }
+
+    @Test
+    void removedNodesKeepTheirNamesAndContentsWhileTheyAreUsed() throws InvalidFileElementType {
+        ColumnarFileSystem fileSystem = new ColumnarFileSystem(FileElementType.BSD);
+        Directory directory = fileSystem.createDirectory("Directory");
+        File file = fileSystem.createFile("File");
+        fileSystem.Add(directory);
+        directory.Add(file);
+        file.setContent("content");
+
+        directory.Remove(file);
+        for(int i=0; i<1000; i++) {
+            directory.Add(fileSystem.createFile("Other" + i));
+            directory.Remove(directory.GetChild(0));
+        }
+
+        assertEquals("File.bsd", file.getName());
+        assertEquals("content", file.getContent());
+        directory.Add(file);
+        assertSame(file, directory.GetChild("File.bsd"));
+    }
+
+    @Test
+    void aSnapshotKeepsTheContentsOfTheFiles(@TempDir Path directory) throws IOException, InvalidFileElementType {
+        ColumnarFileSystem fileSystem = new ColumnarFileSystem(FileElementType.LINUX);
+        Directory directory1 = fileSystem.createDirectory("Directory1");
+        File file1 = fileSystem.createFile("File1");
+        File file2 = fileSystem.createFile("File2");
+        File file3 = fileSystem.createFile("File3");
+        fileSystem.Add(directory1);
+        fileSystem.Add(file3);
+        directory1.Add(file1);
+        directory1.Add(file2);
+        file1.setContent("content1");
+        file2.appendContent("appended");
+
+        Path path = directory.resolve("columnar.snapshot");
+        FileSystemSnapshot.save(fileSystem, path);
+        file1.setContent("changed");
+
+        ColumnarFileSystem restored = new ColumnarFileSystem(FileElementType.LINUX);
+        FileSystemSnapshot.restore(path, restored);
+
+        assertEquals("content1", ((File) restored.resolve("Directory1.lnxd/File1.lnx")).getContent());
+        assertEquals("-appended", ((File) restored.resolve("Directory1.lnxd/File2.lnx")).getContent());
+        assertEquals("-", ((File) restored.resolve("File3.lnx")).getContent());
+    }
+
+    @Test
+    void aContentThatIsReadBackCanBeRestored() {
+        ColumnarFileSystem fileSystem = new ColumnarFileSystem(FileElementType.NT);
+        File file = fileSystem.createFile("File");
+        file.setContent("first");
+
+        FileContent first = file.getFileContent();
+        file.setContent("second");
+        assertEquals("first", first.getText());
+
+        file.restoreContent(first);
+        assertEquals("first", file.getContent());
+
+        file.setContent((String) null);
+        assertNull(file.getContent());
+        assertEquals(0, file.getContentLength());
+
+        FileContent none = file.getFileContent();
+        file.setContent("third");
+        file.restoreContent(none);
+        assertNull(file.getContent());
+
+        file.appendContent("appended");
+        assertEquals("appended", file.getContent());
+    }
+
+    @Test
+    void aDirectoryCannotBeAddedBelowItself() throws InvalidFileElementType {
+        ColumnarFileSystem fileSystem = new ColumnarFileSystem(FileElementType.BSD);
+        Directory directory1 = fileSystem.createDirectory("Directory1");
+        Directory directory2 = fileSystem.createDirectory("Directory2");
+        fileSystem.Add(directory1);
+        directory1.Add(directory2);
+
+        assertThrows(IllegalArgumentException.class, () -> directory2.Add(directory1));
+        assertThrows(IllegalArgumentException.class, () -> directory2.AddAll(new FileElement[] {directory2}));
+        assertSame(directory1, directory2.getParent());
+        assertSame(directory1, fileSystem.Get("Directory1.bsdir"));
+    }
+
+    @Test
+    void theElementsPrintToTheOutputOfTheFileSystem() throws InvalidFileElementType {
+        ColumnarFileSystem fileSystem = new ColumnarFileSystem(FileElementType.LINUX);
+        StringBuilder printed = new StringBuilder();
+        fileSystem.setOutput(new OutputSink() {
+            public void println(String format) { }
+            public void println(String format, Object argument) { }
+            public void println(String format, Object argument1, Object argument2) { }
+            public void print(CharSequence text) { printed.append(text); }
+            public void flush() { }
+        });
+
+        Directory directory = fileSystem.createDirectory("Directory");
+        fileSystem.Add(directory);
+        directory.Add(fileSystem.createFile("File"));
+
+        directory.GetChild(0).Display(0);
+        assertTrue(printed.toString().contains("File.lnx"));
+    }
+}
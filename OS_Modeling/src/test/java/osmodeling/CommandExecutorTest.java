@@ -0,0 +1,176 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class CommandExecutorTest {
+
+    // Records its name when it is executed, the commands with the same key are batched
+    private static class RecordingCommand implements BatchableCommand {
+        final String name;
+        final CommandPriority priority;
+        final Object batchKey;
+        final List<String> executed;
+
+        RecordingCommand(String name, CommandPriority priority, Object batchKey, List<String> executed) {
+            this.name = name;
+            this.priority = priority;
+            this.batchKey = batchKey;
+            this.executed = executed;
+        }
+
+        @Override
+        public void Execute() {
+            executed.add(name);
+        }
+
+        @Override
+        public CommandPriority getPriority() {
+            return priority;
+        }
+
+        @Override
+        public Object getBatchKey() {
+            return batchKey;
+        }
+
+        @Override
+        public void ExecuteBatch(List<Command> batch) {
+            ArrayList<String> names = new ArrayList<>();
+            for(Command command : batch) {
+                names.add(((RecordingCommand) command).name);
+            }
+            executed.add(String.join("+", names));
+        }
+    }
+
+    // A command that waits until it is released, so the next commands stay in their lanes
+    private static class BlockingCommand implements Command {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public void Execute() {
+            started.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Test
+    void theHigherLanesAreExecutedFirst() throws Exception {
+        CommandExecutor executor = new CommandExecutor(16, 1, 1);
+        List<String> executed = new CopyOnWriteArrayList<>();
+        BlockingCommand blocking = new BlockingCommand();
+
+        executor.submit(blocking);
+        assertTrue(blocking.started.await(10, TimeUnit.SECONDS));
+        executor.submit(new RecordingCommand("low", CommandPriority.LOW, "low", executed));
+        executor.submit(new RecordingCommand("normal", CommandPriority.NORMAL, "normal", executed));
+        executor.submit(new RecordingCommand("high", CommandPriority.HIGH, "high", executed));
+        blocking.released.countDown();
+
+        assertTrue(executor.shutdown(10, TimeUnit.SECONDS));
+        assertEquals(List.of("high", "normal", "low"), executed);
+        assertEquals(1, executor.getStats(CommandPriority.HIGH).getCount());
+        assertEquals(2, executor.getStats(CommandPriority.NORMAL).getCount());
+    }
+
+    @Test
+    void theNeighbourCommandsWithTheSameKeyAreBatched() throws Exception {
+        CommandExecutor executor = new CommandExecutor(16, 1, 3);
+        List<String> executed = new CopyOnWriteArrayList<>();
+        BlockingCommand blocking = new BlockingCommand();
+
+        executor.submit(blocking);
+        assertTrue(blocking.started.await(10, TimeUnit.SECONDS));
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for(String name : new String[] {"a1", "a2", "a3", "a4", "b1", "a5"}) {
+            futures.add(executor.submit(new RecordingCommand(name, CommandPriority.NORMAL, name.charAt(0), executed)));
+        }
+        blocking.released.countDown();
+
+        assertTrue(executor.shutdown(10, TimeUnit.SECONDS));
+        assertEquals(List.of("a1+a2+a3", "a4", "b1", "a5"), executed);
+        assertEquals(1, executor.getStats(CommandPriority.NORMAL).getBatchCount());
+        for(CompletableFuture<Void> future : futures) {
+            assertTrue(future.isDone() && !future.isCompletedExceptionally());
+        }
+    }
+
+    @Test
+    void submitWaitsWhileTheLaneIsFull() throws Exception {
+        CommandExecutor executor = new CommandExecutor(1, 1, 1);
+        List<String> executed = new CopyOnWriteArrayList<>();
+        BlockingCommand blocking = new BlockingCommand();
+
+        executor.submit(blocking);
+        assertTrue(blocking.started.await(10, TimeUnit.SECONDS));
+        executor.submit(new RecordingCommand("1", CommandPriority.NORMAL, "1", executed));
+
+        Thread client = new Thread(() -> {
+            try {
+                executor.submit(new RecordingCommand("2", CommandPriority.NORMAL, "2", executed));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        client.start();
+        client.join(100);
+        assertTrue(client.isAlive());
+
+        blocking.released.countDown();
+        client.join();
+        assertTrue(executor.shutdown(10, TimeUnit.SECONDS));
+        assertEquals(List.of("1", "2"), executed);
+    }
+
+    @Test
+    void aFailedCommandCompletesItsFutureExceptionally() throws Exception {
+        CommandExecutor executor = new CommandExecutor(16, 2, 1);
+
+        CompletableFuture<Void> future = executor.submit(() -> {
+            throw new IllegalStateException("broken");
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertTrue(executor.shutdown(10, TimeUnit.SECONDS));
+        assertEquals(1, executor.getStats(CommandPriority.NORMAL).getFailedCount());
+    }
+
+    @Test
+    void shutdownWithoutWaitingCancelsTheWaitingCommands() throws Exception {
+        CommandExecutor executor = new CommandExecutor(16, 1, 1);
+        List<String> executed = new CopyOnWriteArrayList<>();
+        BlockingCommand blocking = new BlockingCommand();
+
+        executor.submit(blocking);
+        assertTrue(blocking.started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Void> waiting = executor.submit(new RecordingCommand("waiting", CommandPriority.NORMAL,
+                "waiting", executed));
+
+        assertFalse(executor.shutdown(0, TimeUnit.SECONDS)); // the blocking command is still running
+        assertTrue(waiting.isCancelled());
+        assertThrows(RejectedExecutionException.class, () -> executor.submit(blocking));
+
+        blocking.released.countDown();
+        assertTrue(executed.isEmpty());
+    }
+}
@@ -0,0 +1,131 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CommandJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private static OperatingSystem newOperatingSystem() throws ReflectiveOperationException {
+        Constructor<Linux_OS> constructor = Linux_OS.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        OperatingSystem os = constructor.newInstance();
+        os.setOutput(NullOutputSink.getInstance());
+        return os;
+    }
+
+    private List<String> fileNames() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void aRecordThatIsNotCompletelyWrittenIsDropped() throws Exception {
+        OperatingSystem os = newOperatingSystem();
+        try (CommandJournal journal = CommandJournal.open(os, directory, Long.MAX_VALUE)) {
+            Directory directory1 = os.getFileSystem().createDirectory("Directory1");
+            File file1 = os.getFileSystem().createFile("File1");
+            journal.Add(null, directory1);
+            journal.Add(directory1, file1);
+            journal.fprintf(file1, "content", false);
+        }
+
+        // The length of the record is written, but only a part of its payload
+        Path journalPath = directory.resolve("journal-0.log");
+        long validSize = Files.size(journalPath);
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 100, 1, 2, 3, 4, 5, 6}));
+        }
+
+        OperatingSystem restored = newOperatingSystem();
+        try (CommandJournal journal = CommandJournal.open(restored, directory, Long.MAX_VALUE)) {
+            assertEquals("content", ((File) restored.getFileSystem().resolve("Directory1.lnxd/File1.lnx")).getContent());
+            assertEquals(validSize, Files.size(journalPath));
+
+            journal.Add(null, restored.getFileSystem().createFile("File2"));
+        }
+
+        OperatingSystem again = newOperatingSystem();
+        CommandJournal.open(again, directory, Long.MAX_VALUE).close();
+        assertEquals("File2.lnx", again.getFileSystem().resolve("File2.lnx").getName());
+    }
+
+    @Test
+    void aChangeWhoseRecordCanNotBeWrittenIsUndone() throws Exception {
+        OperatingSystem os = newOperatingSystem();
+        CommandJournal journal = CommandJournal.open(os, directory, Long.MAX_VALUE);
+        File file1 = os.getFileSystem().createFile("File1");
+        journal.Add(null, file1);
+        journal.fprintf(file1, "durable", false);
+
+        // Close the channel under the journal, so the next write fails
+        Field channelField = CommandJournal.class.getDeclaredField("channel");
+        channelField.setAccessible(true);
+        ((FileChannel) channelField.get(journal)).close();
+
+        File file2 = os.getFileSystem().createFile("File2");
+        assertThrows(IOException.class, () -> journal.Add(null, file2));
+        assertNull(os.getFileSystem().resolve("File2.lnx"));
+
+        // The journal is failed, the next change is not applied
+        assertThrows(IOException.class, () -> journal.fprintf(file1, "lost", false));
+        assertEquals("durable", file1.getContent());
+        journal.close();
+    }
+
+    @Test
+    void aCheckpointDeletesTheOldGenerations() throws Exception {
+        OperatingSystem os = newOperatingSystem();
+        try (CommandJournal journal = CommandJournal.open(os, directory, 0)) {
+            for(int i=0; i<5; i++) {
+                journal.Add(null, os.getFileSystem().createFile("File" + i));
+            }
+        }
+        assertEquals(List.of("checkpoint-5.snap", "journal-5.log"), fileNames());
+
+        OperatingSystem restored = newOperatingSystem();
+        CommandJournal.open(restored, directory, 0).close();
+        for(int i=0; i<5; i++) {
+            assertEquals("File" + i + ".lnx", restored.getFileSystem().resolve("File" + i + ".lnx").getName());
+        }
+    }
+
+    @Test
+    void aFailedCheckpointDoesNotFailTheChange() throws Exception {
+        // A directory where the checkpoint is written before it is moved, so it can not be written
+        Path blocked = Files.createDirectories(directory.resolve("checkpoint-1.snap.tmp"));
+
+        OperatingSystem os = newOperatingSystem();
+        try (CommandJournal journal = CommandJournal.open(os, directory, 0)) {
+            journal.Add(null, os.getFileSystem().createFile("File1"));
+            assertEquals(1, journal.getFailedCheckpointCount());
+        }
+
+        Files.delete(blocked);
+        assertEquals(List.of("journal-0.log", "journal-1.log"), fileNames());
+
+        // The journals of both generations are replayed
+        OperatingSystem restored = newOperatingSystem();
+        CommandJournal.open(restored, directory, Long.MAX_VALUE).close();
+        assertEquals("File1.lnx", restored.getFileSystem().resolve("File1.lnx").getName());
+    }
+}
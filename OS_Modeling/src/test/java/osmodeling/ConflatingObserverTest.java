@@ -0,0 +1,107 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class ConflatingObserverTest {
+
+    private static final String NULL = "<null>"; // a null data in the queue of the received data
+
+    // Keeps the data, it waits in Update() of the first data until it is released
+    private static class BlockedObserver implements Observer {
+        final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public void Update(String newData) {
+            received.add(newData == null ? NULL : newData);
+            entered.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Test
+    void onlyTheNewestDataIsDeliveredAfterABusyUpdate() throws InterruptedException {
+        BlockedObserver observer = new BlockedObserver();
+        ConflatingObserver conflatingObserver = new ConflatingObserver(observer, 0, TimeUnit.MILLISECONDS);
+
+        conflatingObserver.Update("first");
+        assertTrue(observer.entered.await(10, TimeUnit.SECONDS));
+        for(int i=0; i<100; i++) {
+            conflatingObserver.Update("data" + i);
+        }
+        observer.released.countDown();
+
+        assertEquals("first", observer.received.poll(10, TimeUnit.SECONDS));
+        assertEquals("data99", observer.received.poll(10, TimeUnit.SECONDS));
+        assertEquals(101, conflatingObserver.getReceivedCount());
+        assertEquals(2, conflatingObserver.getDeliveredCount());
+    }
+
+    @Test
+    void theUpdatesAreAtLeastAnIntervalApart() throws InterruptedException {
+        long interval = 200;
+        BlockingQueue<Long> deliveryTimes = new LinkedBlockingQueue<>();
+        ConflatingObserver conflatingObserver = new ConflatingObserver(newData -> deliveryTimes.add(System.nanoTime()),
+                interval, TimeUnit.MILLISECONDS);
+
+        conflatingObserver.Update("1");
+        long first = deliveryTimes.poll(10, TimeUnit.SECONDS);
+        conflatingObserver.Update("2");
+        conflatingObserver.Update("3");
+        long second = deliveryTimes.poll(10, TimeUnit.SECONDS);
+
+        assertTrue(second - first >= TimeUnit.MILLISECONDS.toNanos(interval), "updates " + (second - first) + " ns apart");
+        assertEquals(2, conflatingObserver.getDeliveredCount());
+    }
+
+    @Test
+    void aThrowingObserverGetsTheNextData() throws InterruptedException {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        ConflatingObserver conflatingObserver = new ConflatingObserver(newData -> {
+            received.add(newData == null ? NULL : newData);
+            if(newData != null && newData.equals("bad")) {
+                throw new IllegalStateException(newData);
+            }
+        }, 0, TimeUnit.MILLISECONDS);
+
+        conflatingObserver.Update("bad");
+        assertEquals("bad", received.poll(10, TimeUnit.SECONDS));
+        conflatingObserver.Update(null);
+        assertEquals(NULL, received.poll(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void aDetachedObserverIsNotUpdated() throws InterruptedException {
+        NetworkPort networkPort = new NetworkPort();
+        networkPort.setOutput(NullOutputSink.getInstance());
+        BlockedObserver observer = new BlockedObserver();
+        ConflatingObserver conflatingObserver = networkPort.Attach(observer, 0, TimeUnit.MILLISECONDS);
+
+        networkPort.setData("first");
+        assertTrue(observer.entered.await(10, TimeUnit.SECONDS));
+        networkPort.setData("second");
+        networkPort.Detach(observer); // found by the observer that is wrapped
+        networkPort.setData("third");
+        observer.released.countDown();
+
+        // The data that is waiting when the observer is detached is dropped
+        assertEquals("first", observer.received.poll(10, TimeUnit.SECONDS));
+        assertNull(observer.received.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(2, conflatingObserver.getReceivedCount());
+        assertEquals(1, conflatingObserver.getDeliveredCount());
+    }
+}
@@ -0,0 +1,98 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+class ConsumerGroupTest {
+
+    // Keeps the consumed data, it throws for "bad"
+    private static class RecordingApplication extends Application {
+        final Set<String> consumed;
+
+        RecordingApplication(String name, Set<String> consumed) {
+            super(name, NullOutputSink.getInstance());
+            this.consumed = consumed;
+        }
+
+        @Override
+        public void Consume(String data) {
+            if(data.equals("bad")) {
+                throw new IllegalStateException(data);
+            }
+            if(!consumed.add(data)) {
+                throw new AssertionError("Consumed twice: " + data);
+            }
+        }
+    }
+
+    @Test
+    void eachDataIsConsumedOnce() throws InterruptedException {
+        Set<String> consumed = ConcurrentHashMap.newKeySet();
+        ConsumerGroup group = new ConsumerGroup("group");
+        RecordingApplication application1 = new RecordingApplication("A", consumed);
+        RecordingApplication application2 = new RecordingApplication("B", consumed);
+        group.Add(application1);
+        group.Add(application2);
+
+        for(int i=0; i<1000; i++) {
+            group.Update("data" + i);
+        }
+        group.shutdown();
+
+        assertEquals(1000, consumed.size());
+        assertEquals(1000, group.getConsumedCount(application1) + group.getConsumedCount(application2));
+        assertEquals(0, group.getRejectedCount());
+    }
+
+    @Test
+    void aThrowingApplicationKeepsConsuming() throws InterruptedException {
+        Set<String> consumed = ConcurrentHashMap.newKeySet();
+        Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> { });
+        try {
+            ConsumerGroup group = new ConsumerGroup("group");
+            RecordingApplication application = new RecordingApplication("A", consumed);
+            group.Add(application);
+
+            group.Update("1");
+            group.Update("bad");
+            group.Update("2");
+            group.shutdown();
+
+            assertEquals(Set.of("1", "2"), consumed);
+            assertEquals(1, group.getFailedCount(application));
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+    }
+
+    @Test
+    void theDataThatRacesWithShutdownIsConsumedOrRejected() throws InterruptedException {
+        for(int round=0; round<20; round++) {
+            Set<String> consumed = ConcurrentHashMap.newKeySet();
+            ConsumerGroup group = new ConsumerGroup("group");
+            RecordingApplication application1 = new RecordingApplication("A", consumed);
+            RecordingApplication application2 = new RecordingApplication("B", consumed);
+            group.Add(application1);
+            group.Add(application2);
+
+            int count = 10000;
+            Thread producer = new Thread(() -> {
+                for(int i=0; i<count; i++) {
+                    group.Update("data" + i);
+                }
+            });
+            producer.start();
+            Thread.sleep(round % 3);
+            group.shutdown();
+            producer.join();
+
+            assertEquals(count, consumed.size() + group.getRejectedCount());
+            assertEquals(consumed.size(), group.getConsumedCount(application1) + group.getConsumedCount(application2));
+        }
+    }
+}
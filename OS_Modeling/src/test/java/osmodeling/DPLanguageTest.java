@@ -0,0 +1,91 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class DPLanguageTest {
+
+    private static <T extends OperatingSystem> T newOperatingSystem(Class<T> type) throws ReflectiveOperationException {
+        Constructor<T> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        T os = constructor.newInstance();
+        os.setOutput(NullOutputSink.getInstance());
+        return os;
+    }
+
+    private static DPLanguage[] translators() throws ReflectiveOperationException {
+        return new DPLanguage[] {
+                new TranslatorDPToLinux(newOperatingSystem(Linux_OS.class)),
+                new TranslatorDPToBSD(newOperatingSystem(BSD_OS.class)),
+                new TranslatorDPToNT(newOperatingSystem(NT_OS.class))
+        };
+    }
+
+    // Small Strings that fill more than one chunk of the encoder, a String that gets its own array,
+    // multi-byte characters and an unpaired surrogate
+    private static Map<File, String> writes() {
+        Map<File, String> writes = new LinkedHashMap<>();
+
+        for(int i=0; i<2000; i++) {
+            writes.put(new LinuxFile("File" + i + ".lnx"), "content" + i + (i % 3 == 0 ? "ç€" : ""));
+        }
+        writes.put(new LinuxFile("Large.lnx"), "x".repeat(10000));
+        writes.put(new LinuxFile("Malformed.lnx"), "a\uD800b");
+        writes.put(new LinuxFile("Empty.lnx"), "");
+        return writes;
+    }
+
+    @Test
+    void theBatchWritesTheSameContentAsSingleWrites() throws ReflectiveOperationException {
+        for(DPLanguage translator : translators()) {
+            for(boolean parallel : new boolean[] {false, true}) {
+                Map<File, String> writes = writes();
+                translator.fprintf(writes, parallel);
+
+                for(Map.Entry<File, String> write : writes.entrySet()) {
+                    File expected = new LinuxFile("Expected.lnx");
+                    translator.fprintf(expected, write.getValue());
+
+                    // The bytes are the same, the text of a single write to Linux or BSD keeps an unpaired surrogate
+                    assertEquals(expected.getContentBytes(), write.getKey().getContentBytes(),
+                            translator.getClass().getSimpleName() + " " + write.getKey().getName());
+                    assertEquals(new String(write.getValue().getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8),
+                            write.getKey().getContent());
+                }
+            }
+        }
+    }
+
+    @Test
+    void nullsAreHandledTheSameByAllTranslators() throws ReflectiveOperationException {
+        for(DPLanguage translator : translators()) {
+            File before = new LinuxFile("Before.lnx");
+            File nullContent = new LinuxFile("Null.lnx");
+            File after = new LinuxFile("After.lnx");
+
+            Map<File, String> writes = new LinkedHashMap<>();
+            writes.put(before, "before");
+            writes.put(null, "skipped");
+            writes.put(nullContent, null);
+            writes.put(after, "after");
+            translator.fprintf(writes, false);
+
+            assertEquals("before", before.getContent());
+            assertNull(nullContent.getContent());
+            assertEquals("after", after.getContent());
+
+            // The same as fprintf() of one file
+            File single = new LinuxFile("Single.lnx");
+            translator.fprintf(null, "skipped");
+            translator.fprintf(single, null);
+            assertNull(single.getContent());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class DeviceResetSchedulerTest {
+
+    // A device whose reset runs the action and records when it starts and ends
+    private abstract static class TestDevice extends Device {
+        private final List<Class<? extends Device>> dependencies;
+        private final List<String> events;
+        private Runnable action = () -> { };
+
+        TestDevice(String name, List<Class<? extends Device>> dependencies, List<String> events) {
+            super(name);
+            this.dependencies = dependencies;
+            this.events = events;
+            setOutput(NullOutputSink.getInstance());
+        }
+
+        TestDevice onReset(Runnable action) {
+            this.action = action;
+            return this;
+        }
+
+        @Override
+        public List<Class<? extends Device>> getResetDependencies() {
+            return dependencies;
+        }
+
+        @Override
+        protected void reset() {
+            events.add("start " + getName());
+            action.run();
+            events.add("end " + getName());
+        }
+    }
+
+    private static class First extends TestDevice {
+        First(List<String> events) {
+            super("First", List.of(), events);
+        }
+    }
+
+    private static class Second extends TestDevice {
+        Second(List<String> events) {
+            super("Second", List.of(First.class), events);
+        }
+    }
+
+    private static class Third extends TestDevice {
+        Third(List<String> events) {
+            super("Third", List.of(Second.class), events);
+        }
+    }
+
+    private static class Independent extends TestDevice {
+        Independent(List<String> events) {
+            super("Independent", List.of(), events);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if(!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("not released");
+            }
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> statuses(ResetReport report) {
+        return report.getResults().stream().map(DeviceResetResult::getStatus).toList();
+    }
+
+    @Test
+    void aDeviceIsResetAfterItsDependenciesAndBesideTheOthers() {
+        List<String> events = new CopyOnWriteArrayList<>();
+        CountDownLatch independentStarted = new CountDownLatch(1);
+
+        // First only finishes while Independent is running, so they must be reset at the same time
+        List<Device> devices = List.of(
+                new Third(events),
+                new Second(events),
+                new First(events).onReset(() -> await(independentStarted)),
+                new Independent(events).onReset(independentStarted::countDown));
+
+        ResetReport report = DeviceResetScheduler.reset(devices);
+
+        assertEquals(List.of("OK", "OK", "OK", "OK"), statuses(report));
+        assertEquals(List.of("Third", "Second", "First", "Independent"),
+                report.getResults().stream().map(DeviceResetResult::getDeviceName).toList());
+        assertTrue(events.indexOf("end First") < events.indexOf("start Second"), events.toString());
+        assertTrue(events.indexOf("end Second") < events.indexOf("start Third"), events.toString());
+    }
+
+    @Test
+    void theDependentsOfATimedOutDeviceAreSkipped() {
+        List<String> events = new CopyOnWriteArrayList<>();
+        CountDownLatch stuck = new CountDownLatch(1);
+        TestDevice first = new First(events).onReset(() -> await(stuck));
+        first.setResetTimeout(100);
+
+        try {
+            ResetReport report = DeviceResetScheduler.reset(List.of(first, new Second(events), new Third(events),
+                    new Independent(events)));
+
+            assertEquals(List.of("TIMED OUT", "SKIPPED: First is not reset", "SKIPPED: Second is not reset", "OK"),
+                    statuses(report));
+            assertFalse(events.contains("start Second"));
+            assertFalse(events.contains("start Third"));
+        } finally {
+            stuck.countDown();
+        }
+    }
+
+    @Test
+    void theDependentsOfAFailedDeviceAreReset() {
+        List<String> events = new CopyOnWriteArrayList<>();
+        TestDevice first = new First(events).onReset(() -> {
+            throw new IllegalStateException("broken");
+        });
+
+        ResetReport report = DeviceResetScheduler.reset(List.of(first, new Second(events)));
+
+        assertEquals(List.of("FAILED: java.lang.IllegalStateException: broken", "OK"), statuses(report));
+    }
+
+    @Test
+    void aCycleIsRejected() {
+        List<String> events = new CopyOnWriteArrayList<>();
+
+        // Second depends on First, and this First depends on Second
+        Device first = new First(events) {
+            @Override
+            public List<Class<? extends Device>> getResetDependencies() {
+                return List.of(Second.class);
+            }
+        };
+
+        assertThrows(IllegalArgumentException.class, () -> DeviceResetScheduler.reset(List.of(first, new Second(events))));
+        assertTrue(events.isEmpty());
+    }
+}
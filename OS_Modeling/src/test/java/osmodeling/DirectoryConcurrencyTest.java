@@ -0,0 +1,119 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+
+// Stress test for reading a directory while another thread adds and removes its children
+// How the reads scale with the reader threads is measured by DirectoryReadBenchmark
+class DirectoryConcurrencyTest {
+
+    private static final int STABLE_CHILDREN = 1000; // children that are never removed, they are before the changed ones
+    private static final long RUN_MILLIS = 300;
+
+    @Test
+    void readsSeeTheStableChildrenWhileWritersRun() throws Exception {
+        Directory directory = createDirectory();
+        long reads = measureReads(directory, 4);
+
+        assertTrue(reads > 0, "the readers made no progress while the writer was running");
+        assertEquals(STABLE_CHILDREN, directory.getChildren().length);
+    }
+
+    @Test
+    void getChildByIndexSkipsTheRemovedChildren() throws Exception {
+        Directory directory = new LinuxDirectory("Directory.lnxd");
+        File[] files = new File[4];
+
+        for(int i=0; i<files.length; i++) {
+            files[i] = new LinuxFile("File" + i + ".lnx");
+            directory.Add(files[i]);
+        }
+
+        assertSame(files[1], directory.GetChild(1));
+        directory.Remove(files[0]);
+        assertSame(files[2], directory.GetChild(1));
+        directory.Add(files[0]);
+        assertSame(files[0], directory.GetChild(3));
+        assertNull(directory.GetChild("File0.nt"));
+    }
+
+    private static Directory createDirectory() throws InvalidFileElementType {
+        Directory directory = new LinuxDirectory("Directory.lnxd");
+
+        for(int i=0; i<STABLE_CHILDREN; i++) {
+            directory.Add(new LinuxFile("File" + i + ".lnx"));
+        }
+        return directory;
+    }
+
+    // Run the readers against the directory for RUN_MILLIS while one writer adds and removes children after
+    // the stable ones, and return the number of reads. Each read checks that it sees the right stable child
+    private static long measureReads(Directory directory, int readers) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        LongAdder reads = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[readers + 1];
+
+        threads[0] = new Thread(() -> {
+            try {
+                start.await();
+                for(int i=0; running.get(); i++) {
+                    File file = new LinuxFile("Temporary" + (i % 64) + ".lnx");
+                    directory.Add(file);
+                    directory.Remove(file);
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+
+        for(int t=1; t<=readers; t++) {
+            int seed = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    long count = 0;
+                    for(int i=seed; running.get(); i++) {
+                        int index = i % STABLE_CHILDREN;
+                        FileElement byIndex = directory.GetChild(index);
+                        FileElement byName = directory.GetChild("File" + index + ".lnx");
+
+                        if(byIndex != byName) {
+                            throw new AssertionError("GetChild(" + index + ") returned " + byIndex.getName());
+                        }
+                        count++;
+                    }
+                    reads.add(count);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+        }
+
+        for(Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        TimeUnit.MILLISECONDS.sleep(RUN_MILLIS);
+        running.set(false);
+
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        if(failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        return reads.sum();
+    }
+}
@@ -0,0 +1,166 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class FileContentTest {
+
+    private static final String LARGE = "ç".repeat(FileContent.OFF_HEAP_THRESHOLD); // two UTF-8 bytes per char
+
+    @Test
+    void theTextIsStoredAsUtf8Bytes() {
+        FileContent content = FileContent.of("aç€");
+
+        assertEquals(6, content.length());
+        assertArrayEquals("aç€".getBytes(StandardCharsets.UTF_8), toArray(content.getBytes()));
+        assertEquals("aç€", content.getText());
+        assertFalse(content.isOffHeap());
+    }
+
+    @Test
+    void aLargeContentIsStoredOffHeapAndItsTextIsNotCached() {
+        FileContent content = FileContent.of(LARGE);
+
+        assertTrue(content.isOffHeap());
+        assertEquals(2 * FileContent.OFF_HEAP_THRESHOLD, content.length());
+        assertEquals(LARGE, content.getText());
+        assertNotSame(content.getText(), content.getText());
+
+        FileContent bytes = FileContent.of(LARGE.getBytes(StandardCharsets.UTF_8));
+        assertTrue(bytes.isOffHeap());
+        assertEquals(LARGE, bytes.getText());
+    }
+
+    @Test
+    void aPartOfAnArrayIsUsed() {
+        byte[] bytes = "xxcontentyy".getBytes(StandardCharsets.UTF_8);
+        File file = new LinuxFile("File1.lnx");
+        file.setContent(bytes, 2, 7);
+
+        assertEquals("content", file.getContent());
+        assertEquals(7, file.getContentLength());
+        assertEquals(7, file.getContentBytes().remaining());
+    }
+
+    @Test
+    void theBytesCanNotBeChangedThroughTheFile() {
+        File file = new LinuxFile("File1.lnx");
+        file.setContent(ByteBuffer.wrap("content".getBytes(StandardCharsets.UTF_8)));
+
+        ByteBuffer bytes = file.getContentBytes();
+        assertTrue(bytes.isReadOnly());
+        assertThrows(ReadOnlyBufferException.class, () -> bytes.put(0, (byte) 'x'));
+        assertEquals("content", file.getContent());
+    }
+
+    @Test
+    void aNullContentIsKept() {
+        File file = new LinuxFile("File1.lnx");
+        assertEquals("-", file.getContent());
+
+        file.setContent((String) null);
+        assertNull(file.getContent());
+        assertEquals(0, file.getContentLength());
+        assertTrue(file.getFileContent().isNull());
+    }
+
+    @Test
+    void appendingKeepsThePreviousContent() {
+        FileContent first = FileContent.of("a");
+        FileContent content = first;
+        StringBuilder expected = new StringBuilder("a");
+
+        for(int i=0; i<1000; i++) {
+            content = content.append(Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+            expected.append(i);
+        }
+
+        assertEquals(expected.toString(), content.getText());
+        assertEquals(expected.length(), content.length());
+        assertEquals("a", first.getText());
+        assertSame(content, content.append(new byte[0]));
+
+        // A content that is appended to after it is joined is joined again from its bytes
+        FileContent longer = content.append("end".getBytes(StandardCharsets.UTF_8));
+        assertEquals(expected + "end", longer.getText());
+    }
+
+    @Test
+    void anAppendedContentIsMovedOffHeapWhenItGrowsLarge() {
+        File file = new LinuxFile("File1.lnx");
+        String small = "a".repeat(FileContent.OFF_HEAP_THRESHOLD - 1);
+        file.setContent(small);
+        assertFalse(file.getFileContent().isOffHeap());
+
+        file.appendContent("ç");
+        assertTrue(file.getFileContent().isOffHeap());
+        assertEquals(small + "ç", file.getContent());
+    }
+
+    @Test
+    void concurrentAppendsAreAllKept() throws InterruptedException {
+        File file = new LinuxFile("File1.lnx");
+        file.setContent("");
+        Thread[] threads = new Thread[4];
+
+        for(int t=0; t<threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for(int i=0; i<1000; i++) {
+                    file.appendContent("x");
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals("x".repeat(4000), file.getContent());
+    }
+
+    @Test
+    void fprintfAppendsInAllTranslators() throws ReflectiveOperationException {
+        Constructor<Linux_OS> linux = Linux_OS.class.getDeclaredConstructor();
+        Constructor<BSD_OS> bsd = BSD_OS.class.getDeclaredConstructor();
+        Constructor<NT_OS> nt = NT_OS.class.getDeclaredConstructor();
+        linux.setAccessible(true);
+        bsd.setAccessible(true);
+        nt.setAccessible(true);
+
+        DPLanguage[] translators = {
+                new TranslatorDPToLinux(linux.newInstance()),
+                new TranslatorDPToBSD(bsd.newInstance()),
+                new TranslatorDPToNT(nt.newInstance())
+        };
+
+        for(DPLanguage translator : translators) {
+            File file = new LinuxFile("File1.lnx");
+            translator.fprintf(file, "first");
+            translator.fprintf(file, " second", true);
+            translator.fprintf(file, " third", true);
+            assertEquals("first second third", file.getContent());
+
+            translator.fprintf(file, "replaced", false);
+            assertEquals("replaced", file.getContent());
+        }
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,91 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class FileElementFactoryTest {
+
+    private static final FileElementFactory[] FACTORIES = {
+            LinuxFileElementFactory.getInstance(),
+            BSDFileElementFactory.getInstance(),
+            NTFileElementFactory.getInstance()
+    };
+
+    @Test
+    void theBulkMethodsCreateTheSameElementsAsTheSingleOnes() {
+        String[] names = {"A", "B", "C"};
+
+        for(FileElementFactory factory : FACTORIES) {
+            File[] files = new File[5];
+            Directory[] directories = new Directory[5];
+            factory.createFiles(names, files, 1);
+            factory.createDirectories(names, directories, 2);
+
+            assertNull(files[0]);
+            assertNull(files[4]);
+            assertNull(directories[1]);
+            for(int i=0; i<names.length; i++) {
+                File file = factory.createFile(names[i]);
+                Directory directory = factory.createDirectory(names[i]);
+
+                assertEquals(file.getName(), files[1 + i].getName());
+                assertSame(file.getClass(), files[1 + i].getClass());
+                assertSame(factory.getType(), files[1 + i].getType());
+                assertEquals(directory.getName(), directories[2 + i].getName());
+                assertSame(directory.getClass(), directories[2 + i].getClass());
+            }
+        }
+    }
+
+    @Test
+    void allThreadsGetTheSameInstance() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            Callable<Object[]> getInstances = () -> {
+                start.await();
+                return new Object[] {
+                        LinuxFileElementFactory.getInstance(), BSDFileElementFactory.getInstance(),
+                        NTFileElementFactory.getInstance(), Linux_OS.getInstance(), BSD_OS.getInstance(),
+                        NT_OS.getInstance()
+                };
+            };
+
+            @SuppressWarnings("unchecked")
+            Future<Object[]>[] results = new Future[threads];
+            for(int i=0; i<threads; i++) {
+                results[i] = executor.submit(getInstances);
+            }
+            start.countDown();
+
+            Object[] first = results[0].get();
+            for(Future<Object[]> result : results) {
+                Object[] instances = result.get();
+                for(int i=0; i<instances.length; i++) {
+                    assertSame(first[i], instances[i]);
+                }
+            }
+
+            Set<Object> distinct = new HashSet<>();
+            for(Object instance : first) {
+                distinct.add(instance);
+            }
+            assertEquals(first.length, distinct.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
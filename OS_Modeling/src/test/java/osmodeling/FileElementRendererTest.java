@@ -0,0 +1,118 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class FileElementRendererTest {
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    // The recursive Display() that FileElementRenderer replaced, it printed each line with System.out.println
+    private static void displayRecursively(FileElement fileElement, int indent, StringBuilder out) {
+        String s = "";
+
+        for(int i=0; i<indent; i++) {
+            s += "-";
+        }
+
+        if(fileElement instanceof Directory) {
+            s += "+ " + fileElement.getName();
+            out.append(s).append(LINE_SEPARATOR);
+
+            for(FileElement child : ((Directory) fileElement).getChildren()) {
+                displayRecursively(child, indent+2, out);
+            }
+        } else {
+            s += "  " + fileElement.getName();
+            s += " content => " + ((File) fileElement).getContent();
+            out.append(s).append(LINE_SEPARATOR);
+        }
+    }
+
+    private static FileSystem createFileSystem() throws InvalidFileElementType {
+        FileElementFactory factory = LinuxFileElementFactory.getInstance();
+        FileSystem fileSystem = new LinuxFileSystem();
+        Directory parent = factory.createDirectory("Directory0");
+        fileSystem.Add(parent);
+
+        // Deeper than the first indent string of the renderer, so it has to grow
+        for(int depth=1; depth<24; depth++) {
+            File file = factory.createFile("File" + depth);
+            file.setContent("content" + depth);
+            parent.Add(file);
+            parent.Add(factory.createDirectory("Empty" + depth));
+
+            Directory child = factory.createDirectory("Directory" + depth);
+            parent.Add(child);
+            parent = child;
+        }
+
+        fileSystem.Add(factory.createFile("TopLevelFile"));
+        return fileSystem;
+    }
+
+    @Test
+    void theOutputIsTheSameAsTheRecursiveDisplay() throws Exception {
+        FileSystem fileSystem = createFileSystem();
+
+        StringBuilder expected = new StringBuilder();
+        for(FileElement fileElement : fileSystem.getFileElements()) {
+            expected.append("----------------------").append(LINE_SEPARATOR);
+            displayRecursively(fileElement, 0, expected);
+            expected.append("----------------------").append(LINE_SEPARATOR);
+        }
+
+        StringBuilder rendered = new StringBuilder();
+        fileSystem.displayFiles(rendered);
+        assertEquals(expected.toString(), rendered.toString());
+
+        // Display() renders a sub tree with the given indent
+        FileElement directory = fileSystem.resolve("Directory0.lnxd/Directory1.lnxd");
+        expected.setLength(0);
+        displayRecursively(directory, 3, expected);
+        rendered.setLength(0);
+        new FileElementRenderer(rendered).render(directory, 3);
+        assertEquals(expected.toString(), rendered.toString());
+    }
+
+    @Test
+    void aDeepTreeDoesNotOverflowTheStack() throws Exception {
+        FileElementFactory factory = LinuxFileElementFactory.getInstance();
+        int depth = 100_000;
+
+        // Built from the bottom, so each Add() checks a directory without parents
+        Directory root = factory.createDirectory("Directory" + depth);
+        for(int i=depth-1; i>=0; i--) {
+            Directory parent = factory.createDirectory("Directory" + i);
+            parent.Add(root);
+            root = parent;
+        }
+
+        // Count the lines, the indents of all lines would not fit in a String
+        long[] lines = new long[1];
+        new FileElementRenderer(new Appendable() {
+            @Override
+            public Appendable append(CharSequence csq) {
+                if(csq.equals(LINE_SEPARATOR)) {
+                    lines[0]++;
+                }
+                return this;
+            }
+
+            @Override
+            public Appendable append(CharSequence csq, int start, int end) {
+                return this;
+            }
+
+            @Override
+            public Appendable append(char c) {
+                return this;
+            }
+        }).render(root, 0);
+
+        assertEquals(depth + 1, lines[0]);
+    }
+}
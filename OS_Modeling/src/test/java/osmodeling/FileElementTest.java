@@ -0,0 +1,166 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Constructor;
+
+import org.junit.jupiter.api.Test;
+
+class FileElementTest {
+
+    @Test
+    void theNameIsKeptAsItIsGiven() {
+        assertEquals("x.lnx", new LinuxFile("x.lnx").getName());
+        assertEquals("x", new LinuxFile("x").getName());
+        assertEquals("x", new LinuxFile("x.lnx").getBaseName());
+    }
+
+    @Test
+    void theFactoryAddsTheSuffixOfTheType() {
+        FileElementFactory factory = NTFileElementFactory.getInstance();
+
+        assertEquals("File1.nt", factory.createFile("File1").getName());
+        assertEquals("Directory1.ntdir", factory.createDirectory("Directory1").getName());
+        assertEquals("File1", factory.createFile("File1").getBaseName());
+    }
+
+    @Test
+    void theBaseNamesAreShared() {
+        FileElementFactory factory = LinuxFileElementFactory.getInstance();
+
+        assertSame(factory.createFile("File" + 1).getBaseName(), factory.createFile("File" + 1).getBaseName());
+        assertSame(factory.createFile("File1").getBaseName(), new LinuxFile("File1.lnx").getBaseName());
+    }
+
+    @Test
+    void getChildByNameTellsFilesDirectoriesAndNamesWithoutSuffixApart() throws InvalidFileElementType {
+        FileElementFactory factory = LinuxFileElementFactory.getInstance();
+
+        // Small directories are searched, large ones use the name index
+        for(int count : new int[] {0, 20}) {
+            Directory directory = factory.createDirectory("Directory");
+            for(int i=0; i<count; i++) {
+                directory.Add(factory.createFile("Other" + i));
+            }
+
+            File file = factory.createFile("x");
+            Directory subDirectory = factory.createDirectory("x");
+            File plain = new LinuxFile("x");
+            Directory plainDirectory = new LinuxDirectory("y.lnx");
+            directory.Add(file);
+            directory.Add(subDirectory);
+            directory.Add(plain);
+            directory.Add(plainDirectory);
+
+            assertSame(file, directory.GetChild("x.lnx"));
+            assertSame(subDirectory, directory.GetChild("x.lnxd"));
+            assertSame(plain, directory.GetChild("x"));
+            assertSame(plainDirectory, directory.GetChild("y.lnx"));
+            assertNull(directory.GetChild("y"));
+            assertNull(directory.GetChild("y.lnxd"));
+
+            // A file that is named like a directory hides the directory with the same full name
+            File namedLikeDirectory = new LinuxFile("x.lnxd");
+            directory.Add(namedLikeDirectory);
+            assertSame(namedLikeDirectory, directory.GetChild("x.lnxd"));
+            directory.Remove(namedLikeDirectory);
+            assertSame(subDirectory, directory.GetChild("x.lnxd"));
+        }
+    }
+
+    @Test
+    void getChildByNameFindsTheChildrenOfSmallAndLargeDirectories() throws InvalidFileElementType {
+        FileElementFactory factory = LinuxFileElementFactory.getInstance();
+        Directory directory = factory.createDirectory("Directory");
+        File[] files = new File[20];
+
+        for(int i=0; i<files.length; i++) {
+            files[i] = factory.createFile("File" + i);
+            directory.Add(files[i]);
+            // The name index is created when the directory grows, the children added before it must be found too
+            assertSame(files[0], directory.GetChild("File0.lnx"));
+            assertSame(files[i], directory.GetChild("File" + i + ".lnx"));
+        }
+
+        directory.Remove(files[3]);
+        assertNull(directory.GetChild("File3.lnx"));
+        assertNull(directory.GetChild("File3"));
+
+        // The last added one is returned if more than one child has the name
+        File duplicate = factory.createFile("File4");
+        directory.Add(duplicate);
+        assertSame(duplicate, directory.GetChild("File4.lnx"));
+    }
+
+    @Test
+    void aDirectoryCannotBeAddedToItselfOrBelowItself() throws InvalidFileElementType {
+        FileElementFactory factory = LinuxFileElementFactory.getInstance();
+        Directory directory1 = factory.createDirectory("Directory1");
+        Directory directory2 = factory.createDirectory("Directory2");
+        Directory directory3 = factory.createDirectory("Directory3");
+        directory1.Add(directory2);
+        directory2.Add(directory3);
+
+        assertThrows(IllegalArgumentException.class, () -> directory1.Add(directory1));
+        assertThrows(IllegalArgumentException.class, () -> directory2.Add(directory1));
+        assertThrows(IllegalArgumentException.class, () -> directory3.Add(directory1));
+        assertThrows(IllegalArgumentException.class, () -> directory3.AddAll(new FileElement[] {directory1}));
+
+        // Nothing is moved by the rejected calls
+        assertSame(directory1, directory2.getParent());
+        assertSame(directory2, directory3.getParent());
+        assertNull(directory1.getParent());
+
+        // Moving a directory up is still allowed
+        directory1.Add(directory3);
+        assertSame(directory1, directory3.getParent());
+    }
+
+    @Test
+    void removingADuplicateNameKeepsTheOtherChildFound() throws InvalidFileElementType {
+        FileElementFactory factory = LinuxFileElementFactory.getInstance();
+
+        // A small directory is searched, a large one has a name index
+        for(int size : new int[] {2, 20}) {
+            Directory directory = factory.createDirectory("Directory");
+            for(int i=0; i<size; i++) {
+                directory.Add(factory.createFile("File" + i));
+            }
+            File first = factory.createFile("Duplicate");
+            File second = factory.createFile("Duplicate");
+            File third = factory.createFile("Duplicate");
+            directory.Add(first);
+            directory.Add(second);
+            directory.Add(third);
+
+            directory.Remove(third);
+            assertSame(second, directory.GetChild("Duplicate.lnx"));
+            directory.Remove(first);
+            assertSame(second, directory.GetChild("Duplicate.lnx"));
+            directory.Remove(second);
+            assertNull(directory.GetChild("Duplicate.lnx"));
+        }
+    }
+
+    @Test
+    void removingADuplicateNameKeepsTheOtherTopLevelElementFound() throws ReflectiveOperationException {
+        Constructor<Linux_OS> constructor = Linux_OS.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        FileSystem fileSystem = constructor.newInstance().getFileSystem();
+        File first = fileSystem.createFile("Duplicate");
+        File second = fileSystem.createFile("Duplicate");
+        Directory directory = fileSystem.createDirectory("Directory");
+        fileSystem.Add(first);
+        fileSystem.Add(directory);
+        fileSystem.Add(second);
+
+        fileSystem.Remove(second);
+        assertSame(first, fileSystem.Get("Duplicate.lnx"));
+        assertSame(first, fileSystem.resolve("Duplicate.lnx"));
+        fileSystem.Remove(first);
+        assertNull(fileSystem.Get("Duplicate.lnx"));
+    }
+}
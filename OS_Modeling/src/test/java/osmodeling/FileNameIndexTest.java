@@ -0,0 +1,110 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileNameIndexTest {
+
+    @TempDir
+    Path directory;
+
+    // D.lnxd/S.lnxd has A0.lnx ... A9.lnx, E.lnxd has B0.lnx ... B9.lnx
+    private static FileSystem createFileSystem(boolean indexed) throws InvalidFileElementType {
+        FileSystem fileSystem = new LinuxFileSystem();
+        if(indexed) {
+            fileSystem.enableFileNameIndex();
+        }
+        Directory d = fileSystem.createDirectory("D");
+        Directory e = fileSystem.createDirectory("E");
+        Directory s = fileSystem.createDirectory("S");
+        fileSystem.Add(d);
+        fileSystem.Add(e);
+        d.Add(s);
+
+        for(int i=0; i<10; i++) {
+            s.Add(fileSystem.createFile("A" + i));
+            e.Add(fileSystem.createFile("B" + i));
+        }
+        return fileSystem;
+    }
+
+    @Test
+    void findBySuffixUnderADirectoryOnlyReturnsItsElements() throws InvalidFileElementType {
+        // Without the index the tree is walked, the results are the same
+        for(boolean indexed : new boolean[] {true, false}) {
+            FileSystem fileSystem = createFileSystem(indexed);
+
+            assertEquals(20, fileSystem.findBySuffix(".lnx").size());
+            assertEquals(10, fileSystem.findBySuffix(".lnx", "D.lnxd").size());
+            assertEquals("A1.lnx", fileSystem.findBySuffix("1.lnx", "D.lnxd").get(0).getName());
+            assertEquals(10, fileSystem.findByPrefix("B").size());
+        }
+    }
+
+    @Test
+    void theIndexIsOnlyKeptWhenItIsEnabled() throws InvalidFileElementType {
+        FileSystem fileSystem = createFileSystem(false);
+        assertNull(fileSystem.getFileNameIndex());
+
+        // The elements that are already in the file system are indexed when it is enabled
+        fileSystem.enableFileNameIndex();
+        assertNotNull(fileSystem.getFileNameIndex());
+        assertEquals(10, fileSystem.findByPrefix("A").size());
+
+        fileSystem.resolve("E.lnxd").Add(fileSystem.createFile("A10"));
+        fileSystem.Remove(fileSystem.resolve("D.lnxd/S.lnxd/A0.lnx"));
+        assertEquals(10, fileSystem.findByPrefix("A").size());
+        assertEquals(1, fileSystem.findByPrefix("A10").size());
+        assertEquals(0, fileSystem.findByPrefix("A0").size());
+    }
+
+    @Test
+    void movedElementsAreFoundAtTheirNewPath() throws InvalidFileElementType {
+        FileSystem fileSystem = createFileSystem(true);
+        Directory s = (Directory) fileSystem.resolve("D.lnxd/S.lnxd");
+
+        fileSystem.resolve("E.lnxd").Add(s);
+
+        assertEquals(0, fileSystem.findBySuffix(".lnx", "D.lnxd").size());
+        assertEquals(20, fileSystem.findBySuffix(".lnx", "E.lnxd").size());
+        assertEquals(10, fileSystem.findBySuffix(".lnx", "E.lnxd/S.lnxd").size());
+    }
+
+    @Test
+    void searchesOnlyLoadTheUnloadedLazyDirectoriesWhenTheyAreAskedTo() throws Exception {
+        Path snapshot = Files.createFile(directory.resolve("index.snap"));
+        FileSystemSnapshot.save(createFileSystem(false), snapshot);
+
+        for(boolean indexed : new boolean[] {true, false}) {
+            FileSystem fileSystem = new LinuxFileSystem();
+            if(indexed) {
+                fileSystem.enableFileNameIndex();
+            }
+            FileSystemSnapshot.restore(snapshot, fileSystem, true);
+            LazyDirectory e = (LazyDirectory) fileSystem.Get("E.lnxd");
+
+            assertEquals(0, fileSystem.findByPrefix("B").size());
+            assertFalse(e.isLoaded());
+            assertEquals(10, fileSystem.findByPrefix("B", true).size());
+            assertTrue(e.isLoaded());
+
+            // Only the directories under the path are loaded
+            assertTrue(e.evict());
+            assertEquals(1, fileSystem.findBySuffix("3.lnx", "D.lnxd/S.lnxd", true).size());
+            assertFalse(e.isLoaded());
+
+            // The names of an evicted directory are found again
+            assertEquals(10, fileSystem.findBySuffix(".lnx").size());
+            assertEquals(20, fileSystem.findBySuffix(".lnx", true).size());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileSystemSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private static FileSystem createFileSystem() throws InvalidFileElementType {
+        FileSystem fileSystem = new LinuxFileSystem();
+        FileElementFactory factory = fileSystem.getFileElementFactory();
+
+        Directory directory1 = factory.createDirectory("Directory1");
+        Directory directory2 = factory.createDirectory("Directory2");
+        File file1 = factory.createFile("File1");
+        File file2 = factory.createFile("File2");
+        File file3 = factory.createFile("File3");
+        file1.setContent("content1");
+        file2.setContent("aç€");
+        file3.setContent("x".repeat(FileContent.OFF_HEAP_THRESHOLD));
+
+        directory1.Add(file1);
+        directory1.Add(directory2);
+        directory1.Add(factory.createDirectory("Empty"));
+        directory2.Add(file2);
+
+        fileSystem.Add(directory1);
+        fileSystem.Add(file3);
+        fileSystem.Add(factory.createDirectory("TopLevelEmpty"));
+        return fileSystem;
+    }
+
+    private static String render(FileSystem fileSystem) throws IOException {
+        StringBuilder text = new StringBuilder();
+        fileSystem.displayFiles(text);
+        return text.toString();
+    }
+
+    @Test
+    void aRestoredFileSystemIsTheSameAsTheSavedOne() throws Exception {
+        FileSystem fileSystem = createFileSystem();
+        Path path = directory.resolve("snapshot");
+        FileSystemSnapshot.save(fileSystem, path);
+
+        for(boolean lazy : new boolean[] {false, true}) {
+            FileSystem restored = new LinuxFileSystem();
+            FileSystemSnapshot.restore(path, restored, lazy);
+            assertEquals(render(fileSystem), render(restored), "lazy: " + lazy);
+        }
+    }
+
+    @Test
+    void theContentsPointToTheSnapshotUntilTheyAreWritten() throws Exception {
+        Path path = directory.resolve("snapshot");
+        FileSystemSnapshot.save(createFileSystem(), path);
+
+        FileSystem restored = new LinuxFileSystem();
+        FileSystemSnapshot.restore(path, restored);
+        File file = (File) restored.resolve("Directory1.lnxd/File1.lnx");
+        assertTrue(file.hasMappedContent());
+
+        file.setContent("changed");
+        assertFalse(file.hasMappedContent());
+
+        // A snapshot that is saved again is written next to the mapped one and moved over it
+        FileSystemSnapshot.save(restored, path);
+        FileSystem again = new LinuxFileSystem();
+        FileSystemSnapshot.restore(path, again);
+        assertEquals("changed", ((File) again.resolve("Directory1.lnxd/File1.lnx")).getContent());
+        assertEquals("aç€", ((File) again.resolve("Directory1.lnxd/Directory2.lnxd/File2.lnx")).getContent());
+    }
+
+    @Test
+    void aDeepTreeIsSavedAndRestored() throws Exception {
+        FileElementFactory factory = LinuxFileElementFactory.getInstance();
+        int depth = 10_000;
+
+        // Built from the bottom, so each Add() checks a directory without parents
+        Directory root = factory.createDirectory("Directory" + depth);
+        for(int i=depth-1; i>=0; i--) {
+            Directory parent = factory.createDirectory("Directory" + i);
+            parent.Add(root);
+            root = parent;
+        }
+        FileSystem fileSystem = new LinuxFileSystem();
+        fileSystem.Add(root);
+
+        Path path = directory.resolve("snapshot");
+        FileSystemSnapshot.save(fileSystem, path);
+        FileSystem restored = new LinuxFileSystem();
+        FileSystemSnapshot.restore(path, restored);
+
+        FileElement fileElement = restored.getFileElements()[0];
+        for(int i=0; i<depth; i++) {
+            fileElement = fileElement.GetChild(0);
+        }
+        assertEquals("Directory" + depth + ".lnxd", fileElement.getName());
+    }
+
+    @Test
+    void aSnapshotOfAnotherTypeOrFormatIsRejected() throws Exception {
+        Path path = directory.resolve("snapshot");
+        FileSystemSnapshot.save(createFileSystem(), path);
+
+        FileSystem fileSystem = new NTFileSystem();
+        assertThrows(InvalidFileElementType.class, () -> FileSystemSnapshot.restore(path, fileSystem));
+        assertEquals(0, fileSystem.getFileElements().length);
+
+        Path invalid = Files.write(directory.resolve("invalid"), new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        assertThrows(IOException.class, () -> FileSystemSnapshot.restore(invalid, new LinuxFileSystem()));
+    }
+}
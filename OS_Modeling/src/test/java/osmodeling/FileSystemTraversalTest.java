@@ -0,0 +1,136 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileSystemTraversalTest {
+
+    private static final int DIRECTORIES = 50;
+    private static final int FILES_PER_DIRECTORY = 40; // more than the split threshold, so the tasks are split
+
+    // Directory0..49, each with File0..39 whose content is "content" and one sub directory
+    private static FileSystem createFileSystem() throws InvalidFileElementType {
+        FileSystem fileSystem = new LinuxFileSystem();
+        FileElementFactory factory = fileSystem.getFileElementFactory();
+
+        for(int d=0; d<DIRECTORIES; d++) {
+            Directory directory = factory.createDirectory("Directory" + d);
+            for(int f=0; f<FILES_PER_DIRECTORY; f++) {
+                File file = factory.createFile("File" + f);
+                file.setContent("content");
+                directory.Add(file);
+            }
+            directory.Add(factory.createDirectory("Sub" + d));
+            fileSystem.Add(directory);
+        }
+        return fileSystem;
+    }
+
+    private static Set<String> names(List<FileElement> fileElements) {
+        return fileElements.stream().map(FileElement::getName).collect(Collectors.toSet());
+    }
+
+    @Test
+    void theAggregatesCountEveryElement() throws InvalidFileElementType {
+        FileSystem fileSystem = createFileSystem();
+
+        EnumMap<FileElementType, Long> counts = FileSystemTraversal.countByType(fileSystem);
+        assertEquals(DIRECTORIES * (FILES_PER_DIRECTORY + 2), counts.get(FileElementType.LINUX));
+        assertEquals(0, counts.get(FileElementType.NT));
+        assertEquals(DIRECTORIES * FILES_PER_DIRECTORY * 7L, FileSystemTraversal.totalContentBytes(fileSystem));
+    }
+
+    @Test
+    void aVisitorOutsideTheTraversalIsCombined() throws InvalidFileElementType {
+        FileSystem fileSystem = createFileSystem();
+
+        int longestName = FileSystemTraversal.traverse(fileSystem.getFileElements()[0], new FileElementVisitor<int[]>() {
+            @Override
+            public int[] newResult() {
+                return new int[1];
+            }
+
+            @Override
+            public void visitFile(File file, int[] result) {
+                result[0] = Math.max(result[0], file.getName().length());
+            }
+
+            @Override
+            public void visitDirectory(Directory directory, int[] result) {
+                // Empty
+            }
+
+            @Override
+            public int[] combine(int[] left, int[] right) {
+                left[0] = Math.max(left[0], right[0]);
+                return left;
+            }
+        })[0];
+        assertEquals("File10.lnx".length(), longestName);
+    }
+
+    @Test
+    void findByGlobMatchesTheWholeName() throws InvalidFileElementType {
+        FileSystem fileSystem = createFileSystem();
+
+        assertEquals(DIRECTORIES * 10, FileSystemTraversal.findByGlob(fileSystem, "File?.lnx").size());
+        assertEquals(Set.of("Sub1.lnxd", "Sub10.lnxd", "Sub11.lnxd", "Sub12.lnxd", "Sub13.lnxd", "Sub14.lnxd",
+                "Sub15.lnxd", "Sub16.lnxd", "Sub17.lnxd", "Sub18.lnxd", "Sub19.lnxd"),
+                names(FileSystemTraversal.findByGlob(fileSystem, "Sub1*")));
+        assertEquals(Set.of("Directory7.lnxd"), names(FileSystemTraversal.findByGlob(fileSystem, "Directory7.lnxd")));
+
+        // The other characters are not regular expressions
+        assertTrue(FileSystemTraversal.findByGlob(fileSystem, "File1.lnx.*").isEmpty());
+        assertTrue(FileSystemTraversal.findByGlob(fileSystem, "File[1].lnx").isEmpty());
+        assertTrue(FileSystemTraversal.findByGlob(fileSystem, "File1").isEmpty());
+    }
+
+    @Test
+    void lazyDirectoriesAreOnlyLoadedWhenAsked(@TempDir Path directory) throws Exception {
+        Path path = directory.resolve("snapshot");
+        FileSystemSnapshot.save(createFileSystem(), path);
+        FileSystem fileSystem = new LinuxFileSystem();
+        FileSystemSnapshot.restore(path, fileSystem, true);
+
+        assertEquals(DIRECTORIES, FileSystemTraversal.countByType(fileSystem).get(FileElementType.LINUX));
+        assertFalse(((Directory) fileSystem.getFileElements()[0]).isLoaded());
+
+        EnumMap<FileElementType, Long> counts = FileSystemTraversal.traverse(fileSystem,
+                new FileElementVisitor<EnumMap<FileElementType, Long>>() {
+            @Override
+            public EnumMap<FileElementType, Long> newResult() {
+                return new EnumMap<>(FileElementType.class);
+            }
+
+            @Override
+            public void visitFile(File file, EnumMap<FileElementType, Long> result) {
+                result.merge(file.getType(), 1L, Long::sum);
+            }
+
+            @Override
+            public void visitDirectory(Directory directory, EnumMap<FileElementType, Long> result) {
+                result.merge(directory.getType(), 1L, Long::sum);
+            }
+
+            @Override
+            public EnumMap<FileElementType, Long> combine(EnumMap<FileElementType, Long> left,
+                    EnumMap<FileElementType, Long> right) {
+                right.forEach((type, count) -> left.merge(type, count, Long::sum));
+                return left;
+            }
+        }, true);
+
+        assertEquals(DIRECTORIES * (FILES_PER_DIRECTORY + 2), counts.get(FileElementType.LINUX));
+        assertTrue(((Directory) fileSystem.getFileElements()[0]).isLoaded());
+    }
+}
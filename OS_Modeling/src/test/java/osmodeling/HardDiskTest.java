@@ -0,0 +1,118 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HardDiskTest {
+
+    private static final int BLOCK_SIZE = 16;
+
+    @TempDir
+    Path directory;
+
+    private HardDisk newHardDisk() throws IOException {
+        HardDisk hardDisk = new HardDisk();
+        hardDisk.setOutput(NullOutputSink.getInstance());
+        hardDisk.attach(new BlockCache(directory.resolve("disk.img"), BLOCK_SIZE, 8, CachePolicy.LRU, 4));
+        return hardDisk;
+    }
+
+    private static File newFile(String name, int blockCount) {
+        File file = new LinuxFile(name);
+        file.setContent("x".repeat(blockCount * BLOCK_SIZE));
+        return file;
+    }
+
+    @Test
+    void theRunOfAGrownFileIsGivenToTheNextFile() throws IOException {
+        HardDisk hardDisk = newHardDisk();
+        File file1 = newFile("File1", 1);
+        File file2 = newFile("File2", 1);
+        hardDisk.write(file1);
+        hardDisk.write(file2);
+
+        // File1 does not fit in its block anymore, it is moved after File2
+        file1.setContent("y".repeat(3 * BLOCK_SIZE));
+        hardDisk.write(file1);
+        assertEquals(5, hardDisk.getUsedBlockCount());
+
+        // The first block is free again
+        File file3 = newFile("File3", 1);
+        hardDisk.write(file3);
+        assertEquals(5, hardDisk.getUsedBlockCount());
+
+        File copy = new LinuxFile("File1");
+        hardDisk.delete(file1);
+        assertFalse(hardDisk.read(copy));
+        assertTrue(hardDisk.read(file3));
+        assertEquals("x".repeat(BLOCK_SIZE), file3.getContent());
+    }
+
+    @Test
+    void theFreeRunsAreJoinedAndTheEndIsGivenBack() throws IOException {
+        HardDisk hardDisk = newHardDisk();
+        File file1 = newFile("File1", 1);
+        File file2 = newFile("File2", 2);
+        File file3 = newFile("File3", 1);
+        hardDisk.write(file1);
+        hardDisk.write(file2);
+        hardDisk.write(file3);
+
+        assertTrue(hardDisk.delete(file1));
+        assertTrue(hardDisk.delete(file2));
+        assertFalse(hardDisk.delete(file2));
+
+        // The three free blocks are one run
+        File file4 = newFile("File4", 3);
+        hardDisk.write(file4);
+        assertEquals(4, hardDisk.getUsedBlockCount());
+
+        assertTrue(hardDisk.delete(file3));
+        assertEquals(3, hardDisk.getUsedBlockCount());
+        assertTrue(hardDisk.delete(file4));
+        assertEquals(0, hardDisk.getUsedBlockCount());
+    }
+
+    @Test
+    void theExtentTableIsLoadedByAttach() throws IOException {
+        HardDisk hardDisk = newHardDisk();
+        File file1 = newFile("File1", 1);
+        File file2 = newFile("File2", 1);
+        File file3 = newFile("File3", 1);
+        hardDisk.write(file1);
+        hardDisk.write(file2);
+        hardDisk.write(file3);
+        hardDisk.delete(file2);
+        hardDisk.flush();
+        hardDisk.getCache().close();
+
+        HardDisk restarted = newHardDisk();
+        File restored = new LinuxFile("File1");
+        assertTrue(restarted.read(restored));
+        assertEquals(file1.getContent(), restored.getContent());
+        assertFalse(restarted.read(new LinuxFile("File2")));
+
+        // The block of File2 is free after the restart too
+        restarted.write(newFile("File4", 1));
+        assertEquals(3, restarted.getUsedBlockCount());
+        restarted.getCache().close();
+    }
+
+    @Test
+    void twoFilesWithTheSamePathCanNotBeSaved() throws IOException {
+        HardDisk hardDisk = newHardDisk();
+        hardDisk.write(newFile("File1", 1));
+        hardDisk.write(newFile("File1", 1));
+
+        assertThrows(IOException.class, hardDisk::flush);
+        hardDisk.getCache().close();
+    }
+}
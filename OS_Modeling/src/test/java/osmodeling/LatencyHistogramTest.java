@@ -0,0 +1,105 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+
+import javax.management.AttributeNotFoundException;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void eachDurationIsInThePowerOfTwoBucketAboveIt() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(127);
+        histogram.record(128);
+        histogram.record(255);
+        histogram.record(256);
+        histogram.record(Long.MAX_VALUE);
+
+        long[] buckets = histogram.getBuckets();
+        assertEquals(2, buckets[0]);
+        assertEquals(2, buckets[1]);
+        assertEquals(1, buckets[2]);
+        assertEquals(1, buckets[buckets.length - 1]);
+        assertEquals(128, LatencyHistogram.getBucketLimit(0));
+        assertEquals(256, LatencyHistogram.getBucketLimit(1));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.getBucketLimit(buckets.length - 1));
+    }
+
+    @Test
+    void aPercentileIsTheLimitOfItsBucketAndAtMostTheMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(0.5));
+
+        // 98 calls of 100 ns, one of 1000 ns and one of 5000 ns
+        for(int i=0; i<98; i++) {
+            histogram.record(100);
+        }
+        histogram.record(1000);
+        histogram.record(5000);
+
+        assertEquals(128, histogram.getPercentile(0.50));
+        assertEquals(128, histogram.getPercentile(0.98));
+        assertEquals(1024, histogram.getPercentile(0.99));
+        assertEquals(5000, histogram.getPercentile(1.0)); // the bucket limit 8192 is above the maximum
+        assertEquals(100, histogram.getCount());
+        assertEquals((98 * 100 + 1000 + 5000) / 100.0, histogram.getMean());
+        assertEquals(5000, histogram.getMax());
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertArrayEquals(new long[histogram.getBuckets().length], histogram.getBuckets());
+    }
+
+    @Test
+    void recordsOfManyThreadsAreAllCounted() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+
+        for(int t=0; t<threads.length; t++) {
+            long nanos = 1000L * (t + 1);
+            threads[t] = new Thread(() -> {
+                for(int i=0; i<10000; i++) {
+                    histogram.record(nanos);
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40000, histogram.getCount());
+        assertEquals(4000, histogram.getMax());
+        assertEquals(2500.0, histogram.getMean());
+    }
+
+    @Test
+    void theMBeanAttributesAreFoundByTheirWholeName() throws Exception {
+        Constructor<OperationMetrics> constructor = OperationMetrics.class.getDeclaredConstructor(String.class);
+        constructor.setAccessible(true);
+        OperationMetrics metrics = constructor.newInstance("Test OS");
+
+        long start = System.nanoTime();
+        metrics.record(MeteredOperation.FPRINTF_BATCH, start);
+        metrics.record(MeteredOperation.FPRINTF_BATCH, start);
+        metrics.record(MeteredOperation.FPRINTF, start);
+
+        // "FprintfBatchCount" also starts with "Fprintf"
+        assertEquals(2L, metrics.getAttribute("FprintfBatchCount"));
+        assertEquals(1L, metrics.getAttribute("FprintfCount"));
+        assertEquals(2L, Arrays.stream((long[]) metrics.getAttribute("FprintfBatchBuckets")).sum());
+        assertThrows(AttributeNotFoundException.class, () -> metrics.getAttribute("FprintfUnknown"));
+
+        metrics.invoke("reset", new Object[0], new String[0]);
+        assertEquals(0L, metrics.getAttribute("FprintfBatchCount"));
+    }
+}
@@ -0,0 +1,54 @@
+package osmodeling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class NetworkPortTest {
+
+    @Test
+    void aThrowingObserverDoesNotStopTheReceiver() throws IOException, InterruptedException {
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        NetworkPort networkPort = new NetworkPort();
+        networkPort.setOutput(NullOutputSink.getInstance());
+        networkPort.Attach(newData -> {
+            if(newData.equals("bad")) {
+                throw new IllegalStateException(newData);
+            }
+            received.add(newData);
+            if(newData.equals("last")) {
+                done.countDown();
+            }
+        });
+
+        Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> { });
+        try (DatagramChannel sender = DatagramChannel.open()) {
+            InetSocketAddress address = networkPort.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+            for(String data : new String[] {"first", "bad", "last"}) {
+                sender.send(ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8)), address);
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            networkPort.close();
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+
+        assertEquals(List.of("first", "last"), received);
+        assertEquals("last", networkPort.getData());
+    }
+}